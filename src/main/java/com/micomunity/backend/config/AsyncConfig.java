@@ -0,0 +1,58 @@
+package com.micomunity.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Ejecutor por defecto de Spring Boot (respuestas asíncronas de MVC y @Async sin nombre).
+     * Se declara aquí porque al definir otro Executor la autoconfiguración deja de crearlo.
+     */
+    @Primary
+    @Bean(name = {
+            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME
+    })
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Ejecutor para el trabajo que se dispara tras el commit de una reserva
+     * (notificaciones, promociones...) sin bloquear la transacción de la reserva.
+     */
+    @Bean(name = "reservasEventosExecutor")
+    public ThreadPoolTaskExecutor reservasEventosExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(10_000);
+        executor.setThreadNamePrefix("reservas-eventos-");
+        return executor;
+    }
+
+    /**
+     * Ejecutor que vacía las colas de salida de las sesiones del chat: cada sesión
+     * tiene como mucho una tarea en marcha, así que un cliente lento ocupa un hilo
+     * solo mientras dura su envío.
+     */
+    @Bean(name = "chatEnvioExecutor")
+    public ThreadPoolTaskExecutor chatEnvioExecutor(@Value("${chat.envio.hilos:4}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(100_000);
+        executor.setThreadNamePrefix("chat-envio-");
+        return executor;
+    }
+}
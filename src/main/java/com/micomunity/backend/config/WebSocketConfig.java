@@ -1,6 +1,8 @@
 package com.micomunity.backend.config;
 
 import com.micomunity.backend.websocket.ChatHandler;
+import com.micomunity.backend.websocket.DisponibilidadHandler;
+import com.micomunity.backend.websocket.JwtHandshakeInterceptor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
@@ -15,19 +17,31 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final ChatHandler chatHandler;
+    private final DisponibilidadHandler disponibilidadHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         log.info("Configurando WebSocket handlers");
         
+        // Chat por comunidad: el handshake liga la sesión a la comunidad del usuario (requiere ?token=<JWT>)
         registry.addHandler(chatHandler, "/ws/chat")
+                .addInterceptors(jwtHandshakeInterceptor)
                 .setAllowedOrigins("*") // Permitir todas las conexiones CORS
                 .withSockJS(); // Opcional: habilitar SockJS como fallback
         
         // También registrar sin SockJS para WebSocket puro
         registry.addHandler(chatHandler, "/ws/chat")
+                .addInterceptors(jwtHandshakeInterceptor)
                 .setAllowedOrigins("*");
         
         log.info("WebSocket handler registrado en: /ws/chat");
+        
+        // Cambios de disponibilidad de reservas por zona y fecha (requiere ?token=<JWT>)
+        registry.addHandler(disponibilidadHandler, "/ws/reservas")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOrigins("*");
+        
+        log.info("WebSocket handler registrado en: /ws/reservas");
     }
 } 
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.micomunity.backend.controller;
+
+import com.micomunity.backend.dto.TokenCalendarioResponse;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.service.CalendarioFeedService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/calendario")
+@RequiredArgsConstructor
+@Slf4j
+public class CalendarioController {
+
+    private static final MediaType TEXT_CALENDAR = MediaType.parseMediaType("text/calendar;charset=UTF-8");
+
+    private final CalendarioFeedService calendarioFeedService;
+
+    /**
+     * Generar (o regenerar) el token de suscripción a los calendarios
+     * POST /api/calendario/token
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenCalendarioResponse> generarToken(@AuthenticationPrincipal User user) {
+        try {
+            log.info("Generando token de calendario para: {}", user.getEmail());
+            TokenCalendarioResponse response = calendarioFeedService.generarToken(user);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            log.error("Error al generar el token de calendario: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Revocar el token de suscripción a los calendarios
+     * DELETE /api/calendario/token
+     */
+    @DeleteMapping("/token")
+    public ResponseEntity<Void> revocarToken(@AuthenticationPrincipal User user) {
+        try {
+            log.info("Revocando token de calendario de: {}", user.getEmail());
+            calendarioFeedService.revocarToken(user);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("Error al revocar el token de calendario: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Feed iCalendar con mis reservas (público, autenticado por el token)
+     * GET /api/calendario/feed/{token}/mis-reservas.ics
+     */
+    @GetMapping("/feed/{token}/mis-reservas.ics")
+    public ResponseEntity<String> feedMisReservas(
+            @PathVariable String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responder(calendarioFeedService.obtenerFeedUsuario(token, ifNoneMatch));
+    }
+
+    /**
+     * Feed iCalendar con las reservas de una zona común (público, autenticado por el token)
+     * GET /api/calendario/feed/{token}/zonas/{zonaId}.ics
+     */
+    @GetMapping("/feed/{token}/zonas/{zonaId}.ics")
+    public ResponseEntity<String> feedZona(
+            @PathVariable String token,
+            @PathVariable UUID zonaId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responder(calendarioFeedService.obtenerFeedZona(token, zonaId, ifNoneMatch));
+    }
+
+    private ResponseEntity<String> responder(CalendarioFeedService.Feed feed) {
+        // Sin max-age: el cliente revalida siempre con If-None-Match y casi siempre recibe 304
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (feed.noModificado()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(feed.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(feed.etag())
+                .cacheControl(cacheControl)
+                .contentType(TEXT_CALENDAR)
+                .body(feed.contenido());
+    }
+}
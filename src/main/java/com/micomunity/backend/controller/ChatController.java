@@ -1,18 +1,22 @@
 package com.micomunity.backend.controller;
 
-import com.micomunity.backend.dto.ChatMessageDTO;
-import com.micomunity.backend.model.ChatMessage;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.micomunity.backend.dto.HistorialChatPage;
+import com.micomunity.backend.dto.UsuarioConectadoDTO;
+import com.micomunity.backend.model.User;
 import com.micomunity.backend.service.ChatService;
+import com.micomunity.backend.service.PresenciaChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -21,30 +25,54 @@ import java.util.stream.Collectors;
 public class ChatController {
 
     private final ChatService chatService;
+    private final PresenciaChatService presenciaChatService;
 
     /**
-     * Obtener historial de mensajes (endpoint REST alternativo)
+     * Obtener los últimos mensajes de la comunidad del usuario (endpoint REST alternativo).
+     * Se sirven desde memoria, como mucho chat.historial.limite mensajes
      * GET /api/chat/historial?limite=50
      */
     @GetMapping("/historial")
-    public ResponseEntity<List<ChatMessageDTO>> obtenerHistorial(
+    public ResponseEntity<List<RawValue>> obtenerHistorial(
+            @AuthenticationPrincipal User user,
             @RequestParam(defaultValue = "50") int limite) {
         
+        if (user == null || user.getCommunity() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
         log.info("Solicitando historial de {} mensajes via REST", limite);
         
-        List<ChatMessage> mensajes = chatService.obtenerHistorial(limite);
+        return ResponseEntity.ok(chatService.obtenerHistorialReciente(user.getCommunity().getId(), limite));
+    }
+
+    /**
+     * Cargar mensajes más antiguos de la comunidad del usuario (scrollback por cursor)
+     * GET /api/chat/historial/anteriores?antesDe={idMensaje}&limite=50
+     */
+    @GetMapping("/historial/anteriores")
+    public ResponseEntity<HistorialChatPage> obtenerMensajesAnteriores(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) Long antesDe,
+            @RequestParam(defaultValue = "50") int limite) {
         
-        List<ChatMessageDTO> mensajesDTO = mensajes.stream()
-                .map(mensaje -> new ChatMessageDTO(
-                        mensaje.getId(),
-                        mensaje.getContenido(),
-                        mensaje.getUsuarioNombre(),
-                        mensaje.getTimestamp(),
-                        "historial"
-                ))
-                .collect(Collectors.toList());
+        if (user == null || user.getCommunity() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        log.info("Solicitando {} mensajes anteriores a {} via REST", limite, antesDe);
         
-        return ResponseEntity.ok(mensajesDTO);
+        return ResponseEntity.ok(chatService.obtenerMensajesAnteriores(user.getCommunity().getId(), antesDe, limite));
+    }
+
+    /**
+     * Usuarios conectados ahora mismo al chat de la comunidad del usuario
+     * GET /api/chat/conectados
+     */
+    @GetMapping("/conectados")
+    public ResponseEntity<List<UsuarioConectadoDTO>> obtenerConectados(@AuthenticationPrincipal User user) {
+        if (user == null || user.getCommunity() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(presenciaChatService.conectados(user.getCommunity().getId()));
     }
 
     /**
@@ -0,0 +1,81 @@
+package com.micomunity.backend.controller;
+
+import com.micomunity.backend.dto.ListaEsperaResponse;
+import com.micomunity.backend.dto.ReservaRequest;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.service.ListaEsperaService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/reservas/lista-espera")
+@RequiredArgsConstructor
+@Slf4j
+public class ListaEsperaController {
+
+    private final ListaEsperaService listaEsperaService;
+
+    /**
+     * Apuntarse a la lista de espera de una franja ya reservada
+     * POST /api/reservas/lista-espera
+     */
+    @PostMapping
+    @PreAuthorize("hasAnyRole('VECINO', 'PRESIDENTE')")
+    public ResponseEntity<ListaEsperaResponse> apuntarse(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody ReservaRequest request) {
+        try {
+            log.info("Apuntando a lista de espera de zona: {}", request.getZonaComunId());
+            ListaEsperaResponse response = listaEsperaService.apuntarse(user, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            log.error("Error al apuntarse a la lista de espera: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Salir de la lista de espera
+     * DELETE /api/reservas/lista-espera/{id}
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyRole('VECINO', 'PRESIDENTE')")
+    public ResponseEntity<Void> abandonar(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id) {
+        try {
+            log.info("Saliendo de la lista de espera: {}", id);
+            listaEsperaService.abandonar(user, id);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("Error al salir de la lista de espera {}: {}", id, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Peticiones en lista de espera del usuario actual (desde hoy)
+     * GET /api/reservas/lista-espera
+     */
+    @GetMapping
+    public ResponseEntity<List<ListaEsperaResponse>> obtenerMisEsperas(
+            @AuthenticationPrincipal User user) {
+        try {
+            log.info("Obteniendo lista de espera del usuario: {}", user.getEmail());
+            List<ListaEsperaResponse> esperas = listaEsperaService.obtenerMisEsperas(user);
+            return ResponseEntity.ok(esperas);
+        } catch (Exception e) {
+            log.error("Error al obtener la lista de espera: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+}
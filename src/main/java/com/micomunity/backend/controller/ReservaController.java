@@ -4,20 +4,33 @@ import com.micomunity.backend.dto.ReservaRequest;
 import com.micomunity.backend.dto.ReservaResponse;
 import com.micomunity.backend.dto.CalendarioReservasResponse;
 import com.micomunity.backend.dto.MisReservasResponse;
+import com.micomunity.backend.dto.HistorialReservasPage;
 import com.micomunity.backend.dto.HorariosDisponiblesResponse;
+import com.micomunity.backend.dto.OcupacionReservasResponse;
+import com.micomunity.backend.dto.ProximosHuecosResponse;
+import com.micomunity.backend.dto.ReservaRecurrenteRequest;
+import com.micomunity.backend.dto.ReservaRecurrenteResponse;
+import com.micomunity.backend.dto.UsoZonasResponse;
 import com.micomunity.backend.model.User;
+import com.micomunity.backend.service.ReservaExportService;
 import com.micomunity.backend.service.ReservaService;
+import com.micomunity.backend.service.UsoZonasService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,6 +41,8 @@ import java.util.UUID;
 public class ReservaController {
 
     private final ReservaService reservaService;
+    private final ReservaExportService reservaExportService;
+    private final UsoZonasService usoZonasService;
 
     /**
      * Crear nueva reserva (solo vecinos)
@@ -48,6 +63,26 @@ public class ReservaController {
         }
     }
 
+    /**
+     * Crear reservas recurrentes o en bloque
+     * POST /api/reservas/recurrentes
+     */
+    @PostMapping("/recurrentes")
+    @PreAuthorize("hasAnyRole('VECINO', 'PRESIDENTE')")
+    public ResponseEntity<ReservaRecurrenteResponse> crearReservasRecurrentes(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody ReservaRecurrenteRequest request) {
+        try {
+            log.info("Creando reservas recurrentes para zona: {}", request.getZonaComunId());
+            ReservaRecurrenteResponse response = reservaService.crearReservasRecurrentes(user, request);
+            HttpStatus status = response.getCreadas() > 0 ? HttpStatus.CREATED : HttpStatus.OK;
+            return ResponseEntity.status(status).body(response);
+        } catch (Exception e) {
+            log.error("Error al crear reservas recurrentes: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
     /**
      * Cancelar reserva (solo vecino propietario)
      * DELETE /api/reservas/{id}
@@ -86,9 +121,11 @@ public class ReservaController {
     }
 
     /**
-     * Ver historial de reservas (solo presidente)
+     * Ver historial de reservas (solo presidente): las 200 más recientes
      * GET /api/reservas/historial
+     * @deprecated usar GET /api/reservas/historial/paginado
      */
+    @Deprecated
     @GetMapping("/historial")
     @PreAuthorize("hasRole('PRESIDENTE')")
     public ResponseEntity<List<ReservaResponse>> obtenerHistorialReservas(
@@ -100,13 +137,65 @@ public class ReservaController {
             log.info("Obteniendo historial de reservas. Zona: {}, Fecha inicio: {}, Fecha fin: {}", 
                     zonaId, fechaInicio, fechaFin);
             List<ReservaResponse> reservas = reservaService.obtenerHistorialReservas(user, zonaId, fechaInicio, fechaFin);
-            return ResponseEntity.ok(reservas);
+            return ResponseEntity.ok()
+                    .header("Deprecation", "true")
+                    .header(HttpHeaders.LINK, "</api/reservas/historial/paginado>; rel=\"successor-version\"")
+                    .body(reservas);
         } catch (Exception e) {
             log.error("Error al obtener historial de reservas: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * Ver historial de reservas paginado por cursor (solo presidente)
+     * GET /api/reservas/historial/paginado
+     */
+    @GetMapping("/historial/paginado")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<HistorialReservasPage> obtenerHistorialPaginado(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) UUID zonaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        try {
+            log.info("Obteniendo historial paginado de reservas. Zona: {}, Cursor: {}", zonaId, cursor);
+            HistorialReservasPage pagina = reservaService.obtenerHistorialPaginado(
+                    user, zonaId, fechaInicio, fechaFin, cursor, limite);
+            return ResponseEntity.ok(pagina);
+        } catch (Exception e) {
+            log.error("Error al obtener historial paginado de reservas: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Exportar historial de reservas en CSV o NDJSON (solo presidente)
+     * GET /api/reservas/historial/exportar?formato=csv
+     */
+    @GetMapping("/historial/exportar")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<StreamingResponseBody> exportarHistorial(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) UUID zonaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(defaultValue = "csv") String formato) {
+        log.info("Exportando historial de reservas en formato {}", formato);
+        StreamingResponseBody cuerpo = reservaExportService.exportarHistorial(
+                user, zonaId, fechaInicio, fechaFin, formato);
+        
+        boolean csv = ReservaExportService.FORMATO_CSV.equals(formato);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"historial-reservas." + formato + "\"")
+                .body(cuerpo);
+    }
+
     /**
      * Ver mis reservas (usuario actual)
      * GET /api/reservas/mis-reservas
@@ -162,6 +251,70 @@ public class ReservaController {
         }
     }
 
+    /**
+     * Ver ocupación agregada por zona y día (vista mensual del calendario)
+     * GET /api/reservas/ocupacion
+     */
+    @GetMapping("/ocupacion")
+    public ResponseEntity<OcupacionReservasResponse> obtenerOcupacion(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+        try {
+            log.info("Obteniendo ocupación de la comunidad del {} al {}", fechaInicio, fechaFin);
+            OcupacionReservasResponse ocupacion = reservaService.obtenerOcupacion(user, fechaInicio, fechaFin);
+            return ResponseEntity.ok(ocupacion);
+        } catch (Exception e) {
+            log.error("Error al obtener la ocupación de la comunidad: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ver utilización de las zonas por día de la semana y hora (solo presidente)
+     * GET /api/reservas/estadisticas/uso?zonaId=...&fechaInicio=...&fechaFin=...
+     */
+    @GetMapping("/estadisticas/uso")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<UsoZonasResponse> obtenerMapaUso(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) UUID zonaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+        try {
+            log.info("Obteniendo utilización de zonas del {} al {}. Zona: {}", fechaInicio, fechaFin, zonaId);
+            UsoZonasResponse uso = usoZonasService.obtenerMapaUso(user, zonaId, fechaInicio, fechaFin);
+            return ResponseEntity.ok(uso);
+        } catch (Exception e) {
+            log.error("Error al obtener la utilización de zonas: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Buscar las primeras franjas libres en varias zonas comunes
+     * GET /api/reservas/proximos-huecos?zonaIds=...&fechaInicio=...&fechaFin=...&horaDesde=18:00&limite=10
+     */
+    @GetMapping("/proximos-huecos")
+    public ResponseEntity<ProximosHuecosResponse> buscarProximosHuecos(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) List<UUID> zonaIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime horaDesde,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime horaHasta,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            log.info("Buscando huecos libres del {} al {} en zonas {}", fechaInicio, fechaFin, zonaIds);
+            ProximosHuecosResponse huecos = reservaService.buscarProximosHuecos(
+                    user, zonaIds, fechaInicio, fechaFin, horaDesde, horaHasta, limite);
+            return ResponseEntity.ok(huecos);
+        } catch (Exception e) {
+            log.error("Error al buscar huecos libres: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
     /**
      * Ver horarios disponibles para formulario de reserva
      * GET /api/reservas/horarios-disponibles/{zonaId}
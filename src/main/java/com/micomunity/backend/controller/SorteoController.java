@@ -0,0 +1,117 @@
+package com.micomunity.backend.controller;
+
+import com.micomunity.backend.dto.ReservaRequest;
+import com.micomunity.backend.dto.SolicitudSorteoResponse;
+import com.micomunity.backend.dto.VentanaSorteoRequest;
+import com.micomunity.backend.dto.VentanaSorteoResponse;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.service.SorteoService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/reservas/sorteos")
+@RequiredArgsConstructor
+@Slf4j
+public class SorteoController {
+
+    private final SorteoService sorteoService;
+
+    /**
+     * Abrir un periodo de solicitudes con asignación por sorteo (solo presidente)
+     * POST /api/reservas/sorteos
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<VentanaSorteoResponse> crearVentana(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody VentanaSorteoRequest request) {
+        try {
+            log.info("Creando sorteo para zona: {}", request.getZonaComunId());
+            VentanaSorteoResponse response = sorteoService.crearVentana(user, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            log.error("Error al crear sorteo: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Eliminar un sorteo aún no resuelto (solo presidente)
+     * DELETE /api/reservas/sorteos/{id}
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<Void> eliminarVentana(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id) {
+        try {
+            log.info("Eliminando sorteo: {}", id);
+            sorteoService.eliminarVentana(user, id);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("Error al eliminar sorteo {}: {}", id, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Listar los sorteos de la comunidad
+     * GET /api/reservas/sorteos
+     */
+    @GetMapping
+    public ResponseEntity<List<VentanaSorteoResponse>> obtenerVentanas(
+            @AuthenticationPrincipal User user) {
+        try {
+            log.info("Obteniendo sorteos para usuario: {}", user.getEmail());
+            return ResponseEntity.ok(sorteoService.obtenerVentanas(user));
+        } catch (Exception e) {
+            log.error("Error al obtener sorteos: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Enviar una solicitud de reserva durante el periodo de solicitudes
+     * POST /api/reservas/sorteos/solicitudes
+     */
+    @PostMapping("/solicitudes")
+    @PreAuthorize("hasAnyRole('VECINO', 'PRESIDENTE')")
+    public ResponseEntity<SolicitudSorteoResponse> solicitar(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody ReservaRequest request) {
+        try {
+            log.info("Solicitud de sorteo para zona: {}", request.getZonaComunId());
+            SolicitudSorteoResponse response = sorteoService.solicitar(user, request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (Exception e) {
+            log.error("Error al enviar solicitud de sorteo: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Solicitudes de sorteo del usuario actual y su resultado
+     * GET /api/reservas/sorteos/solicitudes
+     */
+    @GetMapping("/solicitudes")
+    public ResponseEntity<List<SolicitudSorteoResponse>> obtenerMisSolicitudes(
+            @AuthenticationPrincipal User user) {
+        try {
+            log.info("Obteniendo solicitudes de sorteo del usuario: {}", user.getEmail());
+            return ResponseEntity.ok(sorteoService.obtenerMisSolicitudes(user));
+        } catch (Exception e) {
+            log.error("Error al obtener solicitudes de sorteo: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.micomunity.backend.controller;
 
+import com.micomunity.backend.dto.BloqueoZonaRequest;
+import com.micomunity.backend.dto.BloqueoZonaResponse;
+import com.micomunity.backend.dto.HorarioZonaRequest;
 import com.micomunity.backend.dto.ZonaComunRequest;
 import com.micomunity.backend.dto.ZonaComunResponse;
 import com.micomunity.backend.model.User;
@@ -78,4 +81,82 @@ public class ZonaComunController {
             throw e;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Cambiar el horario de reservas de una zona común (solo presidente)
+     * PUT /api/zonas/{id}/horario
+     */
+    @PutMapping("/{id}/horario")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<ZonaComunResponse> actualizarHorario(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id,
+            @Valid @RequestBody HorarioZonaRequest request) {
+        try {
+            log.info("Actualizando horario de zona común: {}", id);
+            ZonaComunResponse response = zonaComunService.actualizarHorario(user, id, request);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error al actualizar horario de zona común {}: {}", id, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Listar bloqueos (cierres y mantenimientos) de una zona común
+     * GET /api/zonas/{id}/bloqueos
+     */
+    @GetMapping("/{id}/bloqueos")
+    public ResponseEntity<List<BloqueoZonaResponse>> obtenerBloqueos(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id) {
+        try {
+            log.info("Obteniendo bloqueos de zona común: {}", id);
+            List<BloqueoZonaResponse> bloqueos = zonaComunService.obtenerBloqueos(user, id);
+            return ResponseEntity.ok(bloqueos);
+        } catch (Exception e) {
+            log.error("Error al obtener bloqueos de zona común {}: {}", id, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Bloquear una zona común en una fecha o en una ventana semanal (solo presidente)
+     * POST /api/zonas/{id}/bloqueos
+     */
+    @PostMapping("/{id}/bloqueos")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<BloqueoZonaResponse> crearBloqueo(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id,
+            @Valid @RequestBody BloqueoZonaRequest request) {
+        try {
+            log.info("Creando bloqueo en zona común: {}", id);
+            BloqueoZonaResponse response = zonaComunService.crearBloqueo(user, id, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            log.error("Error al crear bloqueo en zona común {}: {}", id, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Eliminar un bloqueo de una zona común (solo presidente)
+     * DELETE /api/zonas/{id}/bloqueos/{bloqueoId}
+     */
+    @DeleteMapping("/{id}/bloqueos/{bloqueoId}")
+    @PreAuthorize("hasRole('PRESIDENTE')")
+    public ResponseEntity<Void> eliminarBloqueo(
+            @AuthenticationPrincipal User user,
+            @PathVariable UUID id,
+            @PathVariable UUID bloqueoId) {
+        try {
+            log.info("Eliminando bloqueo {} de zona común {}", bloqueoId, id);
+            zonaComunService.eliminarBloqueo(user, id, bloqueoId);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("Error al eliminar bloqueo {} de zona común {}: {}", bloqueoId, id, e.getMessage(), e);
+            throw e;
+        }
+    }
+}
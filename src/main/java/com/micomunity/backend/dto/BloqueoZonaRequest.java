@@ -0,0 +1,35 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Bloqueo de una zona común: se indica una fecha (cierre puntual) o un día de la
+ * semana (mantenimiento recurrente). Sin horas, el bloqueo abarca el día completo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BloqueoZonaRequest {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    private DayOfWeek diaSemana;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    @Size(max = 255, message = "El motivo no puede superar 255 caracteres")
+    private String motivo;
+}
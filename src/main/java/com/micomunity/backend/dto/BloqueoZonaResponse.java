@@ -0,0 +1,33 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BloqueoZonaResponse {
+    
+    private UUID id;
+    private UUID zonaComunId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    private DayOfWeek diaSemana;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    private String motivo;
+}
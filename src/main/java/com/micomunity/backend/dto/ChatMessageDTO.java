@@ -1,6 +1,8 @@
 package com.micomunity.backend.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -12,6 +14,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class ChatMessageDTO {
     
+    // Los ids de GeneradorIdsChat superan 2^53: en JSON van como texto para que JavaScript no los redondee
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private String contenido;
     private String usuarioNombre;
@@ -0,0 +1,35 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Cambio de disponibilidad enviado por WebSocket a los suscriptores de una zona y fecha.
+ * La máscara usa el mismo orden de franjas que HorariosDisponiblesResponse para la zona.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadEventoDTO {
+    
+    private String tipo; // "disponibilidad"
+    private UUID zonaComunId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    private boolean ocupada; // true si se ha reservado, false si se ha liberado
+    private long franjas;
+}
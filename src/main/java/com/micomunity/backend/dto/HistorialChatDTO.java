@@ -0,0 +1,23 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Historial del chat enviado en un único frame a los clientes que declaran la versión 2
+ * del protocolo (?protocolo=2). Los clientes antiguos siguen recibiendo un frame
+ * "historial" por mensaje.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialChatDTO {
+    
+    private String tipo; // "historial_lote"
+    private int version;
+    private List<RawValue> mensajes; // JSON ya serializado de cada ChatMessageDTO
+}
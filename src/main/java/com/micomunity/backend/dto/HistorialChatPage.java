@@ -0,0 +1,18 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialChatPage {
+    private List<ChatMessageDTO> mensajes; // del más antiguo al más reciente
+    @JsonSerialize(using = ToStringSerializer.class) // supera 2^53: en JSON va como texto
+    private Long siguienteCursor; // id del mensaje más antiguo de la página; null cuando no hay más
+    private boolean hayMas;
+}
@@ -0,0 +1,15 @@
+package com.micomunity.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialReservasPage {
+    private List<ReservaResponse> reservas;
+    private String siguienteCursor; // null cuando no hay más páginas
+    private boolean hayMas;
+}
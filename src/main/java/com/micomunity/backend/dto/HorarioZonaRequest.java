@@ -0,0 +1,32 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HorarioZonaRequest {
+    
+    @NotNull(message = "La hora de apertura es obligatoria")
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaApertura;
+    
+    @NotNull(message = "La hora de cierre es obligatoria")
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaCierre;
+    
+    @NotNull(message = "La duración de la franja es obligatoria")
+    @Min(value = 15, message = "La duración de la franja debe ser de al menos 15 minutos")
+    private Integer duracionFranjaMinutos;
+    
+    // Plazas por franja; sin indicar, se mantiene la capacidad actual
+    @Min(value = 1, message = "La capacidad debe ser de al menos una plaza")
+    private Integer capacidad;
+}
@@ -26,5 +26,7 @@ public class HorariosDisponiblesResponse {
         private String horaFin;
         private boolean disponible;
         private String motivoNoDisponible;
+        private int capacidad; // plazas por franja (1 en zonas de uso exclusivo)
+        private int plazasLibres;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.micomunity.backend.model.EstadoListaEspera;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListaEsperaResponse {
+    
+    private UUID id;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    private EstadoListaEspera estado;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime fechaCreacion;
+    
+    private UUID reservaId; // reserva creada al promover la petición
+    private Integer posicion; // solo al apuntarse: 1 = primera de la lista
+}
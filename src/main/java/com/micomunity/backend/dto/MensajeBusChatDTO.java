@@ -0,0 +1,24 @@
+package com.micomunity.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mensaje de chat tal como viaja entre nodos por el bus (una línea JSON). Un borrado
+ * viaja con eliminado=true y solo el id y la comunidad.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MensajeBusChatDTO {
+    
+    private Long id;
+    private Long communityId;
+    private String contenido;
+    private String usuarioNombre;
+    private LocalDateTime timestamp;
+    private boolean eliminado;
+}
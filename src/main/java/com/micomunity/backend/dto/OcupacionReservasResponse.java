@@ -0,0 +1,48 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ocupación agregada por zona y día. Solo se incluyen los días con alguna reserva;
+ * en la máscara el bit i indica que la franja i de "franjas" de la zona está ocupada
+ * (cada zona tiene su propio horario).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcupacionReservasResponse {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaInicio;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaFin;
+    
+    private List<OcupacionZona> zonas;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OcupacionZona {
+        private UUID zonaComunId;
+        private String zonaComunNombre;
+        private List<String> franjas;
+        private Map<LocalDate, OcupacionDia> dias;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OcupacionDia {
+        private int reservas;
+        private long mascara;
+    }
+}
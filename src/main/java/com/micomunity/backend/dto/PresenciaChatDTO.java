@@ -0,0 +1,21 @@
+package com.micomunity.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cambios de presencia de una comunidad acumulados durante un intervalo
+ * (chat.presencia.tick-ms), enviados en un único frame a la sala.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenciaChatDTO {
+    
+    private String tipo; // "presencia"
+    private List<UsuarioConectadoDTO> conectados;
+    private List<Long> desconectados; // ids de usuario
+}
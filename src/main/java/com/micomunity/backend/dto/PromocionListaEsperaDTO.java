@@ -0,0 +1,34 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Aviso enviado por WebSocket al usuario cuya petición en lista de espera se ha
+ * convertido en reserva.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromocionListaEsperaDTO {
+    
+    private String tipo; // "promocion"
+    private UUID reservaId;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+}
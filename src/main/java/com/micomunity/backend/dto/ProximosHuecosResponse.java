@@ -0,0 +1,48 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Primeras franjas libres de varias zonas comunes en un rango de fechas, ordenadas
+ * por fecha y hora de inicio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProximosHuecosResponse {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaInicio;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaFin;
+
+    private List<Hueco> huecos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hueco {
+        private UUID zonaComunId;
+        private String zonaComunNombre;
+
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate fecha;
+
+        @JsonFormat(pattern = "HH:mm")
+        private LocalTime horaInicio;
+
+        @JsonFormat(pattern = "HH:mm")
+        private LocalTime horaFin;
+
+        private int plazasLibres;
+    }
+}
@@ -0,0 +1,33 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Recordatorio enviado por WebSocket al titular de una reserva que está a punto de empezar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordatorioReservaDTO {
+    
+    private String tipo; // "recordatorio"
+    private UUID reservaId;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+}
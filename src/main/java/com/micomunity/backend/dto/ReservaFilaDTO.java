@@ -0,0 +1,53 @@
+package com.micomunity.backend.dto;
+
+import com.micomunity.backend.model.EstadoReserva;
+import com.micomunity.backend.model.Reserva;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Fila plana de una reserva con los datos de zona y usuario que necesitan los listados.
+ * Los repositorios la rellenan con expresiones constructoras (SELECT new ...) para no
+ * hidratar entidades gestionadas ni disparar cargas perezosas al construir las respuestas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaFilaDTO {
+    
+    private UUID id;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    private Long usuarioId;
+    private String usuarioNombre;
+    private String usuarioEmail;
+    private LocalDate fecha;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+    private EstadoReserva estado;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaCancelacion;
+    
+    public static ReservaFilaDTO de(Reserva reserva) {
+        return new ReservaFilaDTO(
+                reserva.getId(),
+                reserva.getZonaComun().getId(),
+                reserva.getZonaComun().getNombre(),
+                reserva.getUsuario().getId(),
+                reserva.getUsuario().getFullName(),
+                reserva.getUsuario().getEmail(),
+                reserva.getFecha(),
+                reserva.getHoraInicio(),
+                reserva.getHoraFin(),
+                reserva.getEstado(),
+                reserva.getFechaCreacion(),
+                reserva.getFechaCancelacion()
+        );
+    }
+}
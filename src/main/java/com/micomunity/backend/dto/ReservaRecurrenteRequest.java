@@ -0,0 +1,52 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Petición de reservas en bloque. Se indica una lista explícita de fechas o bien una
+ * recurrencia semanal (fechaInicio + diaSemana + semanas), p. ej. "todos los martes
+ * de 18:00 a 20:00 durante 12 semanas".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaRecurrenteRequest {
+    
+    @NotNull(message = "El ID de la zona común es obligatorio")
+    private UUID zonaComunId;
+    
+    @NotNull(message = "La hora de inicio es obligatoria")
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @NotNull(message = "La hora de fin es obligatoria")
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    // Fechas explícitas (alternativa a la recurrencia)
+    @Size(max = 52, message = "No se pueden solicitar más de 52 fechas a la vez")
+    private List<LocalDate> fechas;
+    
+    // Recurrencia semanal
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaInicio;
+    
+    private DayOfWeek diaSemana;
+    
+    @Min(value = 1, message = "El número de semanas debe ser al menos 1")
+    @Max(value = 52, message = "El número de semanas no puede superar 52")
+    private Integer semanas;
+}
@@ -0,0 +1,41 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaRecurrenteResponse {
+    
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    private int creadas;
+    private int rechazadas;
+    private List<ResultadoFecha> resultados;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ResultadoFecha {
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate fecha;
+        private String estado; // "CREADA", "CONFLICTO", "LIMITE", "FECHA_PASADA"
+        private UUID reservaId;
+        private String motivo;
+    }
+}
@@ -0,0 +1,41 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.micomunity.backend.model.ResultadoSorteo;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudSorteoResponse {
+    
+    private UUID id;
+    private UUID ventanaId;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fecha;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaInicio;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaFin;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime fechaCreacion;
+    
+    // Momento en que se resuelve el sorteo
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
+    private LocalDateTime cierre;
+    
+    private ResultadoSorteo resultado; // null hasta que se resuelve el sorteo
+}
@@ -0,0 +1,22 @@
+package com.micomunity.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Token de calendario recién generado. El token solo se muestra en esta respuesta;
+ * las URLs son relativas al servidor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenCalendarioResponse {
+
+    private String token;
+    private String urlMisReservas;
+    private String urlZonaPlantilla; // sustituir {zonaId} por la zona común
+    private LocalDateTime fechaCreacion;
+}
@@ -0,0 +1,53 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mapa de calor de utilización por zona, día de la semana (1 = lunes ... 7 = domingo)
+ * y hora del día. La ocupación es la fracción de los minutos abiertos de esa hora
+ * (según el horario actual de la zona y su capacidad) que estuvieron reservados; es
+ * null en las horas en que la zona está cerrada.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsoZonasResponse {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaInicio;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaFin;
+
+    private List<UsoZona> zonas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UsoZona {
+        private UUID zonaComunId;
+        private String zonaComunNombre;
+        private int capacidad;
+        private long reservas;
+        private Double ocupacionMedia;
+        private List<CeldaUso> celdas;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CeldaUso {
+        private int diaSemana;
+        private int hora;
+        private long reservas;
+        private long minutosReservados;
+        private Double ocupacion;
+    }
+}
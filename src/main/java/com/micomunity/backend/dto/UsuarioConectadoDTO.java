@@ -0,0 +1,14 @@
+package com.micomunity.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsuarioConectadoDTO {
+    
+    private Long id;
+    private String nombre;
+}
@@ -0,0 +1,40 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ventana de solicitudes de una zona común: entre apertura y cierre se recogen
+ * solicitudes para las fechas fechaDesde-fechaHasta, que se asignan por sorteo al cerrar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentanaSorteoRequest {
+    
+    @NotNull(message = "El ID de la zona común es obligatorio")
+    private UUID zonaComunId;
+    
+    @NotNull(message = "La apertura de solicitudes es obligatoria")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
+    private LocalDateTime apertura;
+    
+    @NotNull(message = "El cierre de solicitudes es obligatorio")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
+    private LocalDateTime cierre;
+    
+    @NotNull(message = "La fecha inicial es obligatoria")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaDesde;
+    
+    @NotNull(message = "La fecha final es obligatoria")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaHasta;
+}
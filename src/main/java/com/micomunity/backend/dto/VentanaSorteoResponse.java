@@ -0,0 +1,37 @@
+package com.micomunity.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.micomunity.backend.model.EstadoVentanaSorteo;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentanaSorteoResponse {
+    
+    private UUID id;
+    private UUID zonaComunId;
+    private String zonaComunNombre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
+    private LocalDateTime apertura;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
+    private LocalDateTime cierre;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaDesde;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fechaHasta;
+    
+    private EstadoVentanaSorteo estado;
+    private Integer asignadas;
+    private Long semilla; // para auditar el sorteo una vez resuelto
+}
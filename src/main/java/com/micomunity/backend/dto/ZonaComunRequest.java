@@ -1,10 +1,14 @@
 package com.micomunity.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.LocalTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,4 +16,18 @@ public class ZonaComunRequest {
     
     @NotBlank(message = "El nombre de la zona común no puede estar vacío")
     private String nombre;
+    
+    // Horario de reservas opcional (por defecto 08:00-22:00 en franjas de 2 horas)
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaApertura;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaCierre;
+    
+    @Min(value = 15, message = "La duración de la franja debe ser de al menos 15 minutos")
+    private Integer duracionFranjaMinutos;
+    
+    // Plazas por franja; sin indicar, la zona es de uso exclusivo (1)
+    @Min(value = 1, message = "La capacidad debe ser de al menos una plaza")
+    private Integer capacidad;
 } 
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.micomunity.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.LocalTime;
 import java.util.UUID;
 
 @Data
@@ -16,4 +18,14 @@ public class ZonaComunResponse {
     private String communityCode;
     private Long communityId;
     private boolean puedeEliminar; // Para indicar si el usuario actual puede eliminarla
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaApertura;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime horaCierre;
+    
+    private int duracionFranjaMinutos;
+    
+    private int capacidad;
 } 
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.micomunity.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Evento publicado cuando cambia el horario o los bloqueos de una zona común.
+ */
+@Getter
+@AllArgsConstructor
+public class HorarioZonaModificadoEvent {
+
+    private final UUID zonaComunId;
+}
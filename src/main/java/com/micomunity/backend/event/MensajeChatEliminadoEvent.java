@@ -0,0 +1,16 @@
+package com.micomunity.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado por el bus del chat en todos los nodos cuando se elimina un mensaje
+ * (tras confirmarse el borrado).
+ */
+@Getter
+@AllArgsConstructor
+public class MensajeChatEliminadoEvent {
+
+    private final Long communityId;
+    private final Long mensajeId;
+}
@@ -0,0 +1,17 @@
+package com.micomunity.backend.event;
+
+import com.micomunity.backend.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado por el bus del chat cuando llega un mensaje de una comunidad, se haya
+ * escrito en este nodo o en otro. Se publica una sola vez por mensaje y, dentro de cada
+ * comunidad, en el mismo orden en todos los nodos.
+ */
+@Getter
+@AllArgsConstructor
+public class MensajeChatEvent {
+
+    private final ChatMessage mensaje;
+}
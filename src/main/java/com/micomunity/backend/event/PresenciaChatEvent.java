@@ -0,0 +1,19 @@
+package com.micomunity.backend.event;
+
+import com.micomunity.backend.dto.UsuarioConectadoDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Evento publicado con los cambios de presencia de una comunidad desde el intervalo anterior.
+ */
+@Getter
+@AllArgsConstructor
+public class PresenciaChatEvent {
+
+    private final Long communityId;
+    private final List<UsuarioConectadoDTO> conectados;
+    private final List<Long> desconectados;
+}
@@ -0,0 +1,51 @@
+package com.micomunity.backend.event;
+
+import com.micomunity.backend.model.Reserva;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Evento publicado cuando se crea o se cancela una reserva.
+ * Los listeners que necesiten datos confirmados deben escuchar en fase AFTER_COMMIT.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservaModificadaEvent {
+
+    public enum Tipo {
+        CREADA,
+        CANCELADA
+    }
+
+    private final Tipo tipo;
+    private final UUID reservaId;
+    private final UUID zonaComunId;
+    private final Long usuarioId;
+    private final LocalDate fecha;
+    private final LocalTime horaInicio;
+    private final LocalTime horaFin;
+
+    public static ReservaModificadaEvent creada(Reserva reserva) {
+        return desde(Tipo.CREADA, reserva);
+    }
+
+    public static ReservaModificadaEvent cancelada(Reserva reserva) {
+        return desde(Tipo.CANCELADA, reserva);
+    }
+
+    private static ReservaModificadaEvent desde(Tipo tipo, Reserva reserva) {
+        return new ReservaModificadaEvent(
+                tipo,
+                reserva.getId(),
+                reserva.getZonaComun().getId(),
+                reserva.getUsuario().getId(),
+                reserva.getFecha(),
+                reserva.getHoraInicio(),
+                reserva.getHoraFin()
+        );
+    }
+}
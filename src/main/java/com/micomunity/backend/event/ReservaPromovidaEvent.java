@@ -0,0 +1,24 @@
+package com.micomunity.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Evento publicado cuando una petición de la lista de espera se convierte en reserva.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservaPromovidaEvent {
+
+    private final Long usuarioId;
+    private final UUID reservaId;
+    private final UUID zonaComunId;
+    private final String zonaComunNombre;
+    private final LocalDate fecha;
+    private final LocalTime horaInicio;
+    private final LocalTime horaFin;
+}
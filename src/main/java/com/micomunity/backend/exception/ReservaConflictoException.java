@@ -0,0 +1,7 @@
+package com.micomunity.backend.exception;
+
+public class ReservaConflictoException extends RuntimeException {
+    public ReservaConflictoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.micomunity.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Periodo en el que una zona común no se puede reservar: un cierre en una fecha
+ * concreta o una ventana de mantenimiento semanal recurrente. Sin horas, el bloqueo
+ * abarca el día completo.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "bloqueos_zona")
+public class BloqueoZona {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "zona_comun_id", nullable = false)
+    @JsonIgnore
+    private ZonaComun zonaComun;
+
+    // Fecha concreta del bloqueo (null si es una ventana semanal)
+    private LocalDate fecha;
+
+    // Día de la semana de una ventana recurrente (null si es una fecha concreta)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dia_semana")
+    private DayOfWeek diaSemana;
+
+    @Column(name = "hora_inicio")
+    private LocalTime horaInicio;
+
+    @Column(name = "hora_fin")
+    private LocalTime horaFin;
+
+    private String motivo;
+}
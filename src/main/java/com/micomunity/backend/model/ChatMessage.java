@@ -12,11 +12,12 @@ import java.time.LocalDateTime;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "chat_messages")
+@Table(name = "chat_messages",
+       indexes = @Index(name = "idx_chat_messages_community_timestamp_id", columnList = "community_id, timestamp, id"))
 public class ChatMessage {
 
+    // Asignado por GeneradorIdsChat antes de guardar (ordenado en el tiempo)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false, columnDefinition = "TEXT")
@@ -36,11 +37,16 @@ public class ChatMessage {
     @JsonBackReference("community-chat")
     private Community community;
 
-    public ChatMessage(String contenido, String usuarioNombre, String ipOrigen, Community community) {
+    // Clave de la comunidad sin cargarla (la escribe PersistenciaChatService)
+    @Column(name = "community_id", insertable = false, updatable = false)
+    private Long communityId;
+
+    public ChatMessage(Long id, String contenido, String usuarioNombre, String ipOrigen, Long communityId) {
+        this.id = id;
         this.contenido = contenido;
         this.usuarioNombre = usuarioNombre;
         this.ipOrigen = ipOrigen;
-        this.community = community;
+        this.communityId = communityId;
         this.timestamp = LocalDateTime.now();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.micomunity.backend.model;
+
+public enum EstadoListaEspera {
+    EN_ESPERA,
+    PROMOVIDA,
+    CANCELADA,
+    CADUCADA
+}
@@ -2,5 +2,6 @@ package com.micomunity.backend.model;
 
 public enum EstadoReserva {
     ACTIVA,
-    CANCELADA
-} 
\ No newline at end of file
+    CANCELADA,
+    FINALIZADA // la franja ya ha pasado (ver RecordatorioReservaService)
+}
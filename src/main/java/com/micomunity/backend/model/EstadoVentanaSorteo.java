@@ -0,0 +1,6 @@
+package com.micomunity.backend.model;
+
+public enum EstadoVentanaSorteo {
+    PENDIENTE,
+    RESUELTA
+}
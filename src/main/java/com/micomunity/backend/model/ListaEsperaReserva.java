@@ -0,0 +1,72 @@
+package com.micomunity.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Petición en lista de espera para una franja ya reservada de una zona común.
+ * Cuando una cancelación libera la franja, la primera petición que se pueda atender
+ * se convierte en reserva (ver ListaEsperaService).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "lista_espera_reservas",
+       indexes = @Index(name = "idx_lista_espera_zona_fecha", columnList = "zona_comun_id, fecha, estado"))
+public class ListaEsperaReserva {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "zona_comun_id", nullable = false)
+    @JsonIgnore
+    private ZonaComun zonaComun;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    @JsonIgnore
+    private User usuario;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false, name = "hora_inicio")
+    private LocalTime horaInicio;
+
+    @Column(nullable = false, name = "hora_fin")
+    private LocalTime horaFin;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoListaEspera estado;
+
+    @Column(nullable = false, name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    // Reserva creada al promover la petición
+    @Column(name = "reserva_id")
+    private UUID reservaId;
+
+    // Constructor de conveniencia
+    public ListaEsperaReserva(ZonaComun zonaComun, User usuario, LocalDate fecha,
+                              LocalTime horaInicio, LocalTime horaFin) {
+        this.zonaComun = zonaComun;
+        this.usuario = usuario;
+        this.fecha = fecha;
+        this.horaInicio = horaInicio;
+        this.horaFin = horaFin;
+        this.estado = EstadoListaEspera.EN_ESPERA;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,51 @@
+package com.micomunity.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Check;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Contador de plazas ocupadas por franja en las zonas con capacidad mayor que uno.
+ * La restricción CHECK impide en la base de datos superar la capacidad aunque dos
+ * nodos reserven a la vez (ver PlazasService).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ocupacion_franjas")
+@Check(constraints = "ocupadas >= 0 AND ocupadas <= capacidad")
+public class OcupacionFranja {
+
+    @EmbeddedId
+    private Clave clave;
+
+    @Column(nullable = false)
+    private int ocupadas;
+
+    @Column(nullable = false)
+    private int capacidad;
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+
+        @Column(name = "zona_comun_id", nullable = false)
+        private UUID zonaComunId;
+
+        @Column(nullable = false)
+        private LocalDate fecha;
+
+        @Column(name = "franja_inicio", nullable = false)
+        private LocalTime franjaInicio;
+    }
+}
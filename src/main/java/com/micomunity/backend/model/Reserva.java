@@ -15,7 +15,8 @@ import java.util.UUID;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "reservas")
+@Table(name = "reservas",
+       indexes = @Index(name = "idx_reservas_fecha_hora_id", columnList = "fecha, hora_inicio, id"))
 public class Reserva {
 
     @Id
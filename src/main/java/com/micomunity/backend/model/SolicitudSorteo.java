@@ -0,0 +1,66 @@
+package com.micomunity.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Solicitud de reserva recogida durante una ventana de sorteo. Las solicitudes solo se
+ * insertan mientras la ventana está abierta; el resultado se anota al resolverla.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "solicitudes_sorteo",
+       uniqueConstraints = @UniqueConstraint(name = "uk_solicitud_sorteo",
+               columnNames = {"ventana_id", "usuario_id", "fecha", "hora_inicio", "hora_fin"}))
+public class SolicitudSorteo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ventana_id", nullable = false)
+    @JsonIgnore
+    private VentanaSorteo ventana;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    @JsonIgnore
+    private User usuario;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false, name = "hora_inicio")
+    private LocalTime horaInicio;
+
+    @Column(nullable = false, name = "hora_fin")
+    private LocalTime horaFin;
+
+    @Column(nullable = false, name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Enumerated(EnumType.STRING)
+    private ResultadoSorteo resultado;
+
+    // Constructor de conveniencia
+    public SolicitudSorteo(VentanaSorteo ventana, User usuario, LocalDate fecha,
+                           LocalTime horaInicio, LocalTime horaFin) {
+        this.ventana = ventana;
+        this.usuario = usuario;
+        this.fecha = fecha;
+        this.horaInicio = horaInicio;
+        this.horaFin = horaFin;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,46 @@
+package com.micomunity.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Token de suscripción a los calendarios iCalendar de un usuario. Las aplicaciones de
+ * calendario no envían el JWT, así que el token va en la URL del feed; solo se guarda
+ * su hash y se revoca borrando la fila (o generando uno nuevo).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "tokens_calendario")
+public class TokenCalendario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false, unique = true)
+    @JsonIgnore
+    private User usuario;
+
+    // SHA-256 en hexadecimal del token entregado al usuario
+    @Column(nullable = false, unique = true, name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false, name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    // Constructor de conveniencia
+    public TokenCalendario(User usuario, String tokenHash) {
+        this.usuario = usuario;
+        this.tokenHash = tokenHash;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
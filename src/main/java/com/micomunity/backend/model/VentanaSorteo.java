@@ -0,0 +1,59 @@
+package com.micomunity.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Periodo de solicitudes de una zona común. Mientras no se resuelve, las reservas de
+ * la zona entre fechaDesde y fechaHasta no se pueden hacer directamente: entre apertura
+ * y cierre se recogen solicitudes y, al cerrar, se asignan por sorteo (ver SorteoService).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ventanas_sorteo")
+public class VentanaSorteo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "zona_comun_id", nullable = false)
+    @JsonIgnore
+    private ZonaComun zonaComun;
+
+    // Periodo en el que se aceptan solicitudes
+    @Column(nullable = false)
+    private LocalDateTime apertura;
+
+    @Column(nullable = false)
+    private LocalDateTime cierre;
+
+    // Fechas de reserva que se asignan por sorteo
+    @Column(nullable = false, name = "fecha_desde")
+    private LocalDate fechaDesde;
+
+    @Column(nullable = false, name = "fecha_hasta")
+    private LocalDate fechaHasta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoVentanaSorteo estado;
+
+    // Semilla del sorteo, para poder reproducir y auditar la asignación
+    private Long semilla;
+
+    @Column(name = "fecha_resolucion")
+    private LocalDateTime fechaResolucion;
+
+    private Integer asignadas;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.LocalTime;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
@@ -31,6 +32,19 @@ public class ZonaComun {
     @JsonBackReference("community-zonas")
     private Community community;
 
+    // Horario de reservas; los valores nulos usan el horario por defecto (ver HorarioZona)
+    @Column(name = "hora_apertura")
+    private LocalTime horaApertura;
+
+    @Column(name = "hora_cierre")
+    private LocalTime horaCierre;
+
+    @Column(name = "duracion_franja_minutos")
+    private Integer duracionFranjaMinutos;
+
+    // Personas que pueden reservar a la vez una misma franja (null = 1, uso exclusivo)
+    private Integer capacidad;
+
     @OneToMany(mappedBy = "zonaComun", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JsonManagedReference("zona-reservas")
     private Set<Reserva> reservas = new HashSet<>();
@@ -0,0 +1,36 @@
+package com.micomunity.backend.repository;
+
+import com.micomunity.backend.model.BloqueoZona;
+import com.micomunity.backend.model.ZonaComun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BloqueoZonaRepository extends JpaRepository<BloqueoZona, UUID> {
+    
+    // Bloqueos que siguen aplicando: ventanas semanales y cierres desde una fecha
+    @Query("SELECT b FROM BloqueoZona b " +
+           "WHERE b.zonaComun.id = :zonaId " +
+           "AND (b.fecha IS NULL OR b.fecha >= :desde)")
+    List<BloqueoZona> findVigentesByZona(@Param("zonaId") UUID zonaId, @Param("desde") LocalDate desde);
+    
+    // Todos los bloqueos de una zona (para el presidente)
+    @Query("SELECT b FROM BloqueoZona b " +
+           "WHERE b.zonaComun = :zonaComun " +
+           "ORDER BY b.fecha, b.diaSemana, b.horaInicio")
+    List<BloqueoZona> findByZonaComunOrdenados(@Param("zonaComun") ZonaComun zonaComun);
+    
+    Optional<BloqueoZona> findByIdAndZonaComun(UUID id, ZonaComun zonaComun);
+    
+    @Modifying
+    @Query("DELETE FROM BloqueoZona b WHERE b.zonaComun = :zonaComun")
+    void deleteByZonaComun(@Param("zonaComun") ZonaComun zonaComun);
+}
@@ -8,7 +8,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
@@ -22,18 +24,30 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<ChatMessage> findLatestMessagesByCommunity(@Param("community") Community community, Pageable pageable);
     
     /**
-     * Obtener todos los mensajes de una comunidad ordenados por timestamp ascendente
+     * Obtener los últimos N mensajes de una comunidad por su id, sin cargar la comunidad
      */
     @Query("SELECT c FROM ChatMessage c " +
-           "WHERE c.community = :community " +
-           "ORDER BY c.timestamp ASC")
-    List<ChatMessage> findAllMessagesByCommunityOrderByTimestamp(@Param("community") Community community);
+           "WHERE c.communityId = :communityId " +
+           "ORDER BY c.timestamp DESC, c.id DESC")
+    List<ChatMessage> findLatestMessagesByCommunityId(@Param("communityId") Long communityId, Pageable pageable);
+    
+    /**
+     * Timestamp de un mensaje de la comunidad (ancla del cursor de scrollback)
+     */
+    @Query("SELECT c.timestamp FROM ChatMessage c WHERE c.id = :id AND c.communityId = :communityId")
+    Optional<LocalDateTime> findTimestampByIdAndCommunityId(@Param("id") Long id, @Param("communityId") Long communityId);
     
     /**
-     * Obtener los últimos N mensajes de una comunidad ordenados cronológicamente (para historial)
+     * Página de mensajes anteriores a (timestamp, id), del más reciente al más antiguo.
+     * Paginación por clave sobre el índice (community_id, timestamp, id): el coste de
+     * cada página no depende de lo lejos que esté del último mensaje.
      */
     @Query("SELECT c FROM ChatMessage c " +
-           "WHERE c.community = :community " +
-           "ORDER BY c.timestamp DESC")
-    List<ChatMessage> findLatestMessagesByCommunityForHistory(@Param("community") Community community, Pageable pageable);
+           "WHERE c.communityId = :communityId " +
+           "AND (c.timestamp < :timestamp OR (c.timestamp = :timestamp AND c.id < :id)) " +
+           "ORDER BY c.timestamp DESC, c.id DESC")
+    List<ChatMessage> findMessagesBefore(@Param("communityId") Long communityId,
+                                         @Param("timestamp") LocalDateTime timestamp,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
 } 
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.micomunity.backend.repository;
+
+import com.micomunity.backend.model.ListaEsperaReserva;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.ZonaComun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ListaEsperaReservaRepository extends JpaRepository<ListaEsperaReserva, UUID> {
+    
+    // Peticiones en espera que se solapan con un intervalo liberado, por orden de llegada
+    @Query("SELECT l FROM ListaEsperaReserva l " +
+           "JOIN FETCH l.usuario u " +
+           "JOIN FETCH u.community " +
+           "WHERE l.zonaComun = :zonaComun " +
+           "AND l.fecha = :fecha " +
+           "AND l.estado = 'EN_ESPERA' " +
+           "AND l.horaInicio < :horaFin AND l.horaFin > :horaInicio " +
+           "ORDER BY l.fechaCreacion, l.id")
+    List<ListaEsperaReserva> findCandidatosPromocion(
+        @Param("zonaComun") ZonaComun zonaComun,
+        @Param("fecha") LocalDate fecha,
+        @Param("horaInicio") LocalTime horaInicio,
+        @Param("horaFin") LocalTime horaFin
+    );
+    
+    // Comprobar si el usuario ya espera exactamente ese intervalo
+    @Query("SELECT COUNT(l) > 0 FROM ListaEsperaReserva l " +
+           "WHERE l.usuario = :usuario " +
+           "AND l.zonaComun = :zonaComun " +
+           "AND l.fecha = :fecha " +
+           "AND l.horaInicio = :horaInicio " +
+           "AND l.horaFin = :horaFin " +
+           "AND l.estado = 'EN_ESPERA'")
+    boolean existsEnEspera(
+        @Param("usuario") User usuario,
+        @Param("zonaComun") ZonaComun zonaComun,
+        @Param("fecha") LocalDate fecha,
+        @Param("horaInicio") LocalTime horaInicio,
+        @Param("horaFin") LocalTime horaFin
+    );
+    
+    // Peticiones que esperan un intervalo solapado y llegaron antes (posición en la lista)
+    @Query("SELECT COUNT(l) FROM ListaEsperaReserva l " +
+           "WHERE l.zonaComun = :zonaComun " +
+           "AND l.fecha = :fecha " +
+           "AND l.estado = 'EN_ESPERA' " +
+           "AND l.horaInicio < :horaFin AND l.horaFin > :horaInicio " +
+           "AND l.fechaCreacion < :fechaCreacion")
+    int countAnteriores(
+        @Param("zonaComun") ZonaComun zonaComun,
+        @Param("fecha") LocalDate fecha,
+        @Param("horaInicio") LocalTime horaInicio,
+        @Param("horaFin") LocalTime horaFin,
+        @Param("fechaCreacion") LocalDateTime fechaCreacion
+    );
+    
+    // Peticiones de un usuario desde una fecha (con la zona para la respuesta)
+    @Query("SELECT l FROM ListaEsperaReserva l " +
+           "JOIN FETCH l.zonaComun " +
+           "WHERE l.usuario = :usuario " +
+           "AND l.fecha >= :desde " +
+           "ORDER BY l.fecha, l.horaInicio")
+    List<ListaEsperaReserva> findByUsuarioDesde(@Param("usuario") User usuario, @Param("desde") LocalDate desde);
+    
+    Optional<ListaEsperaReserva> findByIdAndUsuario(UUID id, User usuario);
+    
+    @Modifying
+    @Query("DELETE FROM ListaEsperaReserva l WHERE l.zonaComun = :zonaComun")
+    void deleteByZonaComun(@Param("zonaComun") ZonaComun zonaComun);
+}
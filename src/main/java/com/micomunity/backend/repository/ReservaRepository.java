@@ -1,22 +1,75 @@
 package com.micomunity.backend.repository;
 
+import com.micomunity.backend.dto.ReservaFilaDTO;
 import com.micomunity.backend.model.EstadoReserva;
 import com.micomunity.backend.model.Reserva;
 import com.micomunity.backend.model.User;
 import com.micomunity.backend.model.ZonaComun;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ReservaRepository extends JpaRepository<Reserva, UUID> {
+
+    // Las reservas FINALIZADAS (ya pasadas) siguen contando como ocupación y en los cupos del día:
+    // los listados y conteos que pueden abarcar horas pasadas filtran con estado <> 'CANCELADA'
+
+    // Proyección plana común a los listados (expresión constructora, sin entidades gestionadas)
+    String SELECT_FILA = "SELECT new com.micomunity.backend.dto.ReservaFilaDTO(" +
+           "r.id, z.id, z.nombre, u.id, u.fullName, u.email, " +
+           "r.fecha, r.horaInicio, r.horaFin, r.estado, r.fechaCreacion, r.fechaCancelacion) " +
+           "FROM Reserva r JOIN r.zonaComun z JOIN r.usuario u ";
+
+    // Proyección con el intervalo horario de una reserva activa
+    interface FranjaOcupada {
+        LocalTime getHoraInicio();
+        LocalTime getHoraFin();
+    }
+
+    // Proyección de la ocupación agregada por zona, fecha e intervalo
+    interface OcupacionAgregada {
+        UUID getZonaId();
+        LocalDate getFecha();
+        LocalTime getHoraInicio();
+        LocalTime getHoraFin();
+        Long getTotal();
+    }
+
+    // Proyección de la fecha y el intervalo de una reserva activa
+    interface IntervaloReserva {
+        LocalDate getFecha();
+        LocalTime getHoraInicio();
+        LocalTime getHoraFin();
+    }
+
+    // Proyección de una reserva activa con lo necesario para programar sus avisos
+    interface ReservaProgramable {
+        UUID getId();
+        Long getUsuarioId();
+        UUID getZonaId();
+        String getZonaNombre();
+        LocalDate getFecha();
+        LocalTime getHoraInicio();
+        LocalTime getHoraFin();
+    }
+
+    // Proyección de un conteo agrupado por zona y fecha
+    interface ConteoPorZonaFecha {
+        UUID getZonaId();
+        LocalDate getFecha();
+        Long getTotal();
+    }
     
     // Verificar conflictos horarios en una zona específica
     @Query("SELECT r FROM Reserva r " +
@@ -31,48 +84,27 @@ public interface ReservaRepository extends JpaRepository<Reserva, UUID> {
         @Param("horaFin") LocalTime horaFin
     );
     
-    // Obtener reservas de una zona específica ordenadas por fecha y hora
-    @Query("SELECT r FROM Reserva r " +
-           "LEFT JOIN FETCH r.usuario " +
+    // Reservas no canceladas (activas o finalizadas) de una zona, ordenadas por fecha y hora
+    @Query(SELECT_FILA +
            "WHERE r.zonaComun = :zonaComun " +
-           "AND r.estado = 'ACTIVA' " +
+           "AND r.estado <> 'CANCELADA' " +
            "ORDER BY r.fecha, r.horaInicio")
-    List<Reserva> findByZonaComunAndEstadoActivaOrderByFechaAndHora(@Param("zonaComun") ZonaComun zonaComun);
+    List<ReservaFilaDTO> findNoCanceladasByZonaComunOrderByFechaAndHora(@Param("zonaComun") ZonaComun zonaComun);
     
-    // Contar reservas activas de un usuario en una zona específica para una fecha específica
-    @Query("SELECT COUNT(r) FROM Reserva r " +
-           "WHERE r.usuario = :usuario " +
-           "AND r.zonaComun = :zonaComun " +
-           "AND r.estado = 'ACTIVA' " +
-           "AND r.fecha = :fecha")
-    int countActiveReservasByUsuarioAndZonaAndFecha(@Param("usuario") User usuario, @Param("zonaComun") ZonaComun zonaComun, @Param("fecha") LocalDate fecha);
-    
-    // Contar reservas activas de un usuario en toda su comunidad
-    @Query("SELECT COUNT(r) FROM Reserva r " +
-           "WHERE r.usuario = :usuario " +
-           "AND r.estado = 'ACTIVA' " +
-           "AND r.fecha >= CURRENT_DATE")
-    int countActiveReservasByUsuario(@Param("usuario") User usuario);
+    // Reservas no canceladas de una zona desde una fecha, ordenadas por fecha y hora (feed iCalendar de la zona)
+    @Query(SELECT_FILA +
+           "WHERE r.zonaComun = :zonaComun " +
+           "AND r.fecha >= :desde " +
+           "AND r.estado <> 'CANCELADA' " +
+           "ORDER BY r.fecha, r.horaInicio")
+    List<ReservaFilaDTO> findNoCanceladasByZonaComunDesde(
+        @Param("zonaComun") ZonaComun zonaComun,
+        @Param("desde") LocalDate desde
+    );
     
     // Buscar reserva por ID y usuario (para validaciones de propiedad)
     Optional<Reserva> findByIdAndUsuario(UUID id, User usuario);
     
-    // Historial de reservas de una comunidad (para presidente)
-    @Query("SELECT r FROM Reserva r " +
-           "LEFT JOIN FETCH r.usuario " +
-           "LEFT JOIN FETCH r.zonaComun " +
-           "WHERE r.zonaComun.community = :community " +
-           "AND (:zonaId IS NULL OR r.zonaComun.id = :zonaId) " +
-           "AND (:fechaInicio IS NULL OR r.fecha >= :fechaInicio) " +
-           "AND (:fechaFin IS NULL OR r.fecha <= :fechaFin) " +
-           "ORDER BY r.fecha DESC, r.horaInicio DESC")
-    List<Reserva> findHistorialReservas(
-        @Param("community") com.micomunity.backend.model.Community community,
-        @Param("zonaId") UUID zonaId,
-        @Param("fechaInicio") LocalDate fechaInicio,
-        @Param("fechaFin") LocalDate fechaFin
-    );
-    
     // Reservas futuras activas de una zona (para verificar antes de eliminar zona)
     @Query("SELECT COUNT(r) FROM Reserva r " +
            "WHERE r.zonaComun = :zonaComun " +
@@ -81,35 +113,180 @@ public interface ReservaRepository extends JpaRepository<Reserva, UUID> {
     int countFutureActiveReservasByZona(@Param("zonaComun") ZonaComun zonaComun);
     
     // Obtener reservas de un usuario específico
-    @Query("SELECT r FROM Reserva r " +
-           "LEFT JOIN FETCH r.zonaComun " +
+    @Query(SELECT_FILA +
            "WHERE r.usuario = :usuario " +
            "ORDER BY r.fecha DESC, r.horaInicio DESC")
-    List<Reserva> findByUsuarioOrderByFechaDesc(@Param("usuario") User usuario);
+    List<ReservaFilaDTO> findByUsuarioOrderByFechaDesc(@Param("usuario") User usuario);
     
-    // Obtener reservas de una zona para una fecha específica
-    @Query("SELECT r FROM Reserva r " +
-           "LEFT JOIN FETCH r.usuario " +
+    // Reservas de un usuario desde una fecha, canceladas incluidas (feed iCalendar del usuario)
+    @Query(SELECT_FILA +
+           "WHERE r.usuario = :usuario " +
+           "AND r.fecha >= :desde " +
+           "ORDER BY r.fecha DESC, r.horaInicio DESC")
+    List<ReservaFilaDTO> findByUsuarioDesde(
+        @Param("usuario") User usuario,
+        @Param("desde") LocalDate desde
+    );
+    
+    // Reservas no canceladas (activas o finalizadas) de una zona en una fecha
+    @Query(SELECT_FILA +
            "WHERE r.zonaComun = :zonaComun " +
            "AND r.fecha = :fecha " +
-           "AND r.estado = 'ACTIVA' " +
+           "AND r.estado <> 'CANCELADA' " +
            "ORDER BY r.horaInicio")
-    List<Reserva> findByZonaComunAndFechaAndEstadoActiva(
+    List<ReservaFilaDTO> findNoCanceladasByZonaComunAndFecha(
         @Param("zonaComun") ZonaComun zonaComun, 
         @Param("fecha") LocalDate fecha
     );
     
     // Obtener todas las reservas activas de la comunidad para un rango de fechas
-    @Query("SELECT r FROM Reserva r " +
-           "LEFT JOIN FETCH r.usuario " +
-           "LEFT JOIN FETCH r.zonaComun " +
-           "WHERE r.zonaComun.community = :community " +
-           "AND r.estado = 'ACTIVA' " +
+    @Query(SELECT_FILA +
+           "WHERE z.community = :community " +
+           "AND r.estado <> 'CANCELADA' " +
            "AND r.fecha BETWEEN :fechaInicio AND :fechaFin " +
            "ORDER BY r.fecha, r.horaInicio")
-    List<Reserva> findReservasComunidadByFechaRange(
+    List<ReservaFilaDTO> findReservasComunidadByFechaRange(
+        @Param("community") com.micomunity.backend.model.Community community,
+        @Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin
+    );
+    
+    // Intervalos ocupados de una zona en una fecha (para el índice de disponibilidad)
+    @Query("SELECT r.horaInicio AS horaInicio, r.horaFin AS horaFin FROM Reserva r " +
+           "WHERE r.zonaComun.id = :zonaId " +
+           "AND r.fecha = :fecha " +
+           "AND r.estado <> 'CANCELADA' " +
+           "ORDER BY r.horaInicio")
+    List<FranjaOcupada> findFranjasOcupadas(
+        @Param("zonaId") UUID zonaId,
+        @Param("fecha") LocalDate fecha
+    );
+    
+    // Reservas activas de una zona en un rango de fechas (para resolver sorteos)
+    @Query("SELECT r.fecha AS fecha, r.horaInicio AS horaInicio, r.horaFin AS horaFin FROM Reserva r " +
+           "WHERE r.zonaComun.id = :zonaId " +
+           "AND r.fecha BETWEEN :fechaDesde AND :fechaHasta " +
+           "AND r.estado = 'ACTIVA'")
+    List<IntervaloReserva> findIntervalosZonaEnRango(
+        @Param("zonaId") UUID zonaId,
+        @Param("fechaDesde") LocalDate fechaDesde,
+        @Param("fechaHasta") LocalDate fechaHasta
+    );
+    
+    // Advisory lock de Postgres ligado a la transacción actual (exclusión entre nodos por zona y fecha)
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:clave)) AS bloqueo", nativeQuery = true)
+    Integer bloquearZonaFecha(@Param("clave") long clave);
+    
+    // Fechas (de entre las candidatas) en las que el intervalo choca con una reserva activa
+    @Query("SELECT DISTINCT r.fecha FROM Reserva r " +
+           "WHERE r.zonaComun = :zonaComun " +
+           "AND r.fecha IN :fechas " +
+           "AND r.estado = 'ACTIVA' " +
+           "AND r.horaInicio < :horaFin AND r.horaFin > :horaInicio")
+    List<LocalDate> findFechasConConflicto(
+        @Param("zonaComun") ZonaComun zonaComun,
+        @Param("fechas") Collection<LocalDate> fechas,
+        @Param("horaInicio") LocalTime horaInicio,
+        @Param("horaFin") LocalTime horaFin
+    );
+    
+    // Reservas no canceladas de un usuario en una zona y fecha (revalidación de cupos bajo el advisory lock)
+    @Query("SELECT COUNT(r) FROM Reserva r " +
+           "WHERE r.usuario.id = :usuarioId " +
+           "AND r.zonaComun.id = :zonaId " +
+           "AND r.fecha = :fecha " +
+           "AND r.estado <> 'CANCELADA'")
+    long countNoCanceladasByUsuarioAndZonaAndFecha(
+        @Param("usuarioId") Long usuarioId,
+        @Param("zonaId") UUID zonaId,
+        @Param("fecha") LocalDate fecha
+    );
+    
+    // Reservas activas de hoy en adelante de un usuario agrupadas por zona y fecha (cupos de reservas)
+    @Query("SELECT r.zonaComun.id AS zonaId, r.fecha AS fecha, COUNT(r) AS total FROM Reserva r " +
+           "WHERE r.usuario.id = :usuarioId " +
+           "AND r.estado <> 'CANCELADA' " +
+           "AND r.fecha >= :desde " +
+           "GROUP BY r.zonaComun.id, r.fecha")
+    List<ConteoPorZonaFecha> countActiveReservasByUsuarioGroupByZonaAndFecha(
+        @Param("usuarioId") Long usuarioId,
+        @Param("desde") LocalDate desde
+    );
+    
+    // Ocupación de todas las zonas de la comunidad en un rango de fechas (vista mensual)
+    @Query("SELECT r.zonaComun.id AS zonaId, r.fecha AS fecha, r.horaInicio AS horaInicio, " +
+           "r.horaFin AS horaFin, COUNT(r) AS total FROM Reserva r " +
+           "WHERE r.zonaComun.community = :community " +
+           "AND r.estado <> 'CANCELADA' " +
+           "AND r.fecha BETWEEN :fechaInicio AND :fechaFin " +
+           "GROUP BY r.zonaComun.id, r.fecha, r.horaInicio, r.horaFin")
+    List<OcupacionAgregada> findOcupacionComunidad(
         @Param("community") com.micomunity.backend.model.Community community,
         @Param("fechaInicio") LocalDate fechaInicio,
         @Param("fechaFin") LocalDate fechaFin
     );
-} 
\ No newline at end of file
+    
+    // Historial paginado por keyset (fecha, horaInicio, id) descendente: primera página
+    @Query(SELECT_FILA +
+           "WHERE z.community = :community " +
+           "AND (:zonaId IS NULL OR z.id = :zonaId) " +
+           "AND (:fechaInicio IS NULL OR r.fecha >= :fechaInicio) " +
+           "AND (:fechaFin IS NULL OR r.fecha <= :fechaFin) " +
+           "ORDER BY r.fecha DESC, r.horaInicio DESC, r.id DESC")
+    List<ReservaFilaDTO> findHistorialPrimeraPagina(
+        @Param("community") com.micomunity.backend.model.Community community,
+        @Param("zonaId") UUID zonaId,
+        @Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin,
+        Pageable pageable
+    );
+    
+    // Historial paginado por keyset: páginas siguientes a partir del cursor
+    @Query(SELECT_FILA +
+           "WHERE z.community = :community " +
+           "AND (:zonaId IS NULL OR z.id = :zonaId) " +
+           "AND (:fechaInicio IS NULL OR r.fecha >= :fechaInicio) " +
+           "AND (:fechaFin IS NULL OR r.fecha <= :fechaFin) " +
+           "AND (r.fecha < :cursorFecha " +
+           "OR (r.fecha = :cursorFecha AND r.horaInicio < :cursorHora) " +
+           "OR (r.fecha = :cursorFecha AND r.horaInicio = :cursorHora AND r.id < :cursorId)) " +
+           "ORDER BY r.fecha DESC, r.horaInicio DESC, r.id DESC")
+    List<ReservaFilaDTO> findHistorialDespuesDe(
+        @Param("community") com.micomunity.backend.model.Community community,
+        @Param("zonaId") UUID zonaId,
+        @Param("fechaInicio") LocalDate fechaInicio,
+        @Param("fechaFin") LocalDate fechaFin,
+        @Param("cursorFecha") LocalDate cursorFecha,
+        @Param("cursorHora") LocalTime cursorHora,
+        @Param("cursorId") UUID cursorId,
+        Pageable pageable
+    );
+
+    // Reservas activas entre dos fechas (carga del horizonte de recordatorios)
+    @Query("SELECT r.id AS id, r.usuario.id AS usuarioId, z.id AS zonaId, z.nombre AS zonaNombre, " +
+           "r.fecha AS fecha, r.horaInicio AS horaInicio, r.horaFin AS horaFin " +
+           "FROM Reserva r JOIN r.zonaComun z " +
+           "WHERE r.fecha BETWEEN :desde AND :hasta " +
+           "AND r.estado = 'ACTIVA'")
+    List<ReservaProgramable> findActivasEntreFechas(
+        @Param("desde") LocalDate desde,
+        @Param("hasta") LocalDate hasta
+    );
+    
+    // De las reservas indicadas, las que siguen activas
+    @Query("SELECT r.id FROM Reserva r WHERE r.id IN :ids AND r.estado = 'ACTIVA'")
+    List<UUID> findIdsActivas(@Param("ids") Collection<UUID> ids);
+    
+    // Marca como finalizadas las reservas indicadas que sigan activas
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = com.micomunity.backend.model.EstadoReserva.FINALIZADA " +
+           "WHERE r.id IN :ids AND r.estado = 'ACTIVA'")
+    int finalizar(@Param("ids") Collection<UUID> ids);
+    
+    // Marca como finalizadas todas las reservas activas ya terminadas (al arrancar)
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = com.micomunity.backend.model.EstadoReserva.FINALIZADA " +
+           "WHERE r.estado = 'ACTIVA' " +
+           "AND (r.fecha < :hoy OR (r.fecha = :hoy AND r.horaFin <= :ahora))")
+    int finalizarTerminadas(@Param("hoy") LocalDate hoy, @Param("ahora") LocalTime ahora);
+}
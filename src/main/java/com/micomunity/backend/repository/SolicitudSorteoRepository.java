@@ -0,0 +1,52 @@
+package com.micomunity.backend.repository;
+
+import com.micomunity.backend.model.SolicitudSorteo;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.VentanaSorteo;
+import com.micomunity.backend.model.ZonaComun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SolicitudSorteoRepository extends JpaRepository<SolicitudSorteo, UUID> {
+    
+    // Solicitudes de una ventana por orden de llegada (el orden solo decide entre solicitudes del mismo usuario)
+    @Query("SELECT s FROM SolicitudSorteo s " +
+           "WHERE s.ventana = :ventana " +
+           "ORDER BY s.fechaCreacion, s.id")
+    List<SolicitudSorteo> findByVentanaOrdenadas(@Param("ventana") VentanaSorteo ventana);
+    
+    // Solicitudes de un usuario desde una fecha (con la ventana y la zona para la respuesta)
+    @Query("SELECT s FROM SolicitudSorteo s " +
+           "JOIN FETCH s.ventana v " +
+           "JOIN FETCH v.zonaComun " +
+           "WHERE s.usuario = :usuario " +
+           "AND s.fecha >= :desde " +
+           "ORDER BY s.fecha, s.horaInicio")
+    List<SolicitudSorteo> findByUsuarioDesde(@Param("usuario") User usuario, @Param("desde") LocalDate desde);
+    
+    @Modifying
+    @Query("UPDATE SolicitudSorteo s SET s.resultado = 'NO_ASIGNADA' WHERE s.ventana = :ventana")
+    void marcarNoAsignadas(@Param("ventana") VentanaSorteo ventana);
+    
+    @Modifying
+    @Query("UPDATE SolicitudSorteo s SET s.resultado = 'ASIGNADA' WHERE s.id IN :ids")
+    void marcarAsignadas(@Param("ids") Collection<UUID> ids);
+    
+    @Modifying
+    @Query("DELETE FROM SolicitudSorteo s WHERE s.ventana = :ventana")
+    void deleteByVentana(@Param("ventana") VentanaSorteo ventana);
+    
+    @Modifying
+    @Query("DELETE FROM SolicitudSorteo s " +
+           "WHERE s.ventana IN (SELECT v FROM VentanaSorteo v WHERE v.zonaComun = :zonaComun)")
+    void deleteByZonaComun(@Param("zonaComun") ZonaComun zonaComun);
+}
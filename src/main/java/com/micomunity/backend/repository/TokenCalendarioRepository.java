@@ -0,0 +1,31 @@
+package com.micomunity.backend.repository;
+
+import com.micomunity.backend.model.TokenCalendario;
+import com.micomunity.backend.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TokenCalendarioRepository extends JpaRepository<TokenCalendario, UUID> {
+
+    // Proyección del titular de un token de calendario
+    interface Suscripcion {
+        Long getUsuarioId();
+        Long getCommunityId();
+    }
+
+    @Query("SELECT u.id AS usuarioId, u.community.id AS communityId FROM TokenCalendario t " +
+           "JOIN t.usuario u " +
+           "WHERE t.tokenHash = :tokenHash")
+    Optional<Suscripcion> findSuscripcionByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("DELETE FROM TokenCalendario t WHERE t.usuario = :usuario")
+    int deleteByUsuario(@Param("usuario") User usuario);
+}
@@ -0,0 +1,60 @@
+package com.micomunity.backend.repository;
+
+import com.micomunity.backend.model.Community;
+import com.micomunity.backend.model.VentanaSorteo;
+import com.micomunity.backend.model.ZonaComun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface VentanaSorteoRepository extends JpaRepository<VentanaSorteo, UUID> {
+    
+    // Ventanas sin resolver de una zona (para el horario compilado)
+    @Query("SELECT v FROM VentanaSorteo v " +
+           "WHERE v.zonaComun.id = :zonaId " +
+           "AND v.estado = 'PENDIENTE'")
+    List<VentanaSorteo> findPendientesByZona(@Param("zonaId") UUID zonaId);
+    
+    // Ventanas cerradas pendientes de sorteo
+    @Query("SELECT v FROM VentanaSorteo v " +
+           "JOIN FETCH v.zonaComun " +
+           "WHERE v.estado = 'PENDIENTE' " +
+           "AND v.cierre <= :ahora " +
+           "ORDER BY v.cierre")
+    List<VentanaSorteo> findPendientesCerradas(@Param("ahora") LocalDateTime ahora);
+    
+    // Ventanas de la comunidad, las más recientes primero
+    @Query("SELECT v FROM VentanaSorteo v " +
+           "JOIN FETCH v.zonaComun z " +
+           "WHERE z.community = :community " +
+           "ORDER BY v.apertura DESC")
+    List<VentanaSorteo> findByCommunity(@Param("community") Community community);
+    
+    @Query("SELECT v FROM VentanaSorteo v " +
+           "JOIN FETCH v.zonaComun z " +
+           "WHERE v.id = :id " +
+           "AND z.community = :community")
+    Optional<VentanaSorteo> findByIdAndCommunity(@Param("id") UUID id, @Param("community") Community community);
+    
+    // Marca la ventana como resuelta solo si nadie lo ha hecho antes (un único nodo la sortea)
+    @Modifying
+    @Query("UPDATE VentanaSorteo v SET v.estado = 'RESUELTA', v.fechaResolucion = :ahora, v.semilla = :semilla " +
+           "WHERE v.id = :id AND v.estado = 'PENDIENTE'")
+    int reclamarParaSorteo(@Param("id") UUID id, @Param("ahora") LocalDateTime ahora, @Param("semilla") long semilla);
+    
+    @Modifying
+    @Query("UPDATE VentanaSorteo v SET v.asignadas = :asignadas WHERE v.id = :id")
+    void registrarAsignadas(@Param("id") UUID id, @Param("asignadas") int asignadas);
+    
+    @Modifying
+    @Query("DELETE FROM VentanaSorteo v WHERE v.zonaComun = :zonaComun")
+    void deleteByZonaComun(@Param("zonaComun") ZonaComun zonaComun);
+}
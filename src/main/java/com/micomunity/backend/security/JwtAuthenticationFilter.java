@@ -36,7 +36,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         "/api/documentos/download",
         "/api/incidencias/download",
         "/ws", // Todas las rutas WebSocket
-        "/api/chat", // Todas las rutas del chat
+        "/api/chat/status", // Estado del chat
+        "/api/calendario/feed/", // Feeds iCalendar (token propio en la URL)
         "/error"
     );
 
@@ -82,8 +83,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return true;
         }
 
-        // BYPASS DIRECTO: Permitir todas las rutas del chat
-        if (path.startsWith("/api/chat/")) {
+        // BYPASS DIRECTO: Permitir el estado del chat (el resto de rutas del chat requieren token)
+        if (path.equals("/api/chat/status")) {
             log.info("BYPASS DIRECTO: Permitiendo chat API para: {}", path);
             return true;
         }
@@ -43,8 +43,9 @@ public class SecurityConfig {
                 .requestMatchers("/uploads/**").permitAll()
                 .requestMatchers("/api/uploads/**").permitAll()
                 .requestMatchers("/ws/**").permitAll() // Permitir conexiones WebSocket
-                .requestMatchers("/api/chat/**").permitAll() // Permitir todas las rutas del chat
+                .requestMatchers("/api/chat/status").permitAll() // El historial es de cada comunidad y requiere sesión
                 .requestMatchers("/sockjs-node/**").permitAll() // Para SockJS
+                .requestMatchers("/api/calendario/feed/**").permitAll() // Feeds iCalendar, autenticados por su token
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
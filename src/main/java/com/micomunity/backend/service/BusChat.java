@@ -0,0 +1,25 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.model.ChatMessage;
+
+/**
+ * Reparto de los mensajes del chat entre los nodos de la aplicación.
+ *
+ * ChatService publica aquí cada mensaje nuevo y la implementación lo entrega en todos
+ * los nodos, incluido el que lo escribió, como un MensajeChatEvent: de él cuelgan las
+ * salas de ChatHandler y el historial en memoria. Los borrados se reparten igual, como
+ * MensajeChatEliminadoEvent. Se elige con chat.bus.tipo: "local"
+ * (por defecto, un solo nodo) o "tcp" (varios nodos conectados a RelayChatServidor).
+ */
+public interface BusChat {
+
+    /**
+     * Publica un mensaje ya creado (con id, timestamp y comunidad) para todos los nodos
+     */
+    void publicar(ChatMessage mensaje);
+
+    /**
+     * Publica para todos los nodos que se ha eliminado un mensaje de la comunidad
+     */
+    void publicarEliminacion(Long communityId, Long mensajeId);
+}
@@ -0,0 +1,30 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.MensajeChatEliminadoEvent;
+import com.micomunity.backend.event.MensajeChatEvent;
+import com.micomunity.backend.model.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bus del chat de un solo nodo: entrega el mensaje en el acto y en el hilo que lo publica.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.bus.tipo", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+public class BusChatLocal implements BusChat {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publicar(ChatMessage mensaje) {
+        eventPublisher.publishEvent(new MensajeChatEvent(mensaje));
+    }
+
+    @Override
+    public void publicarEliminacion(Long communityId, Long mensajeId) {
+        eventPublisher.publishEvent(new MensajeChatEliminadoEvent(communityId, mensajeId));
+    }
+}
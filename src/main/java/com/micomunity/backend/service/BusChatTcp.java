@@ -0,0 +1,210 @@
+package com.micomunity.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micomunity.backend.dto.MensajeBusChatDTO;
+import com.micomunity.backend.event.MensajeChatEliminadoEvent;
+import com.micomunity.backend.event.MensajeChatEvent;
+import com.micomunity.backend.model.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bus del chat entre varios nodos a través de RelayChatServidor.
+ *
+ * Cada nodo mantiene una conexión con el relay (chat.bus.host/chat.bus.puerto) y le
+ * envía sus mensajes como una línea JSON. El relay reenvía cada línea a todos los nodos,
+ * también al que la escribió, en un único orden, y cada nodo entrega los mensajes según
+ * los lee: así todas las salas de una comunidad los ven en el mismo orden. Los ids ya
+ * entregados se recuerdan (los últimos chat.bus.ids-recientes) para no repetir un
+ * mensaje que llegue dos veces. Los borrados viajan por el mismo canal; aplicarlos dos
+ * veces no tiene efecto, así que no se filtran.
+ *
+ * Si no hay conexión con el relay, el mensaje se entrega solo en este nodo (queda
+ * guardado igualmente) y la conexión se reintenta cada chat.bus.reconexion-ms.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.bus.tipo", havingValue = "tcp")
+@Slf4j
+@RequiredArgsConstructor
+public class BusChatTcp implements BusChat {
+
+    private static final int TIEMPO_CONEXION_MS = 5000;
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${chat.bus.host:127.0.0.1}")
+    private String host;
+
+    @Value("${chat.bus.puerto:7400}")
+    private int puerto;
+
+    @Value("${chat.bus.reconexion-ms:1000}")
+    private long reconexionMs;
+
+    @Value("${chat.bus.ids-recientes:10000}")
+    private int idsRecientes;
+
+    private final Object escritura = new Object();
+    private Set<Long> entregados;
+    private Thread lector;
+    private volatile Socket socket;
+    private volatile Writer escritor;
+    private volatile boolean parando;
+
+    @PostConstruct
+    void arrancar() {
+        entregados = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > idsRecientes;
+            }
+        }));
+        lector = new Thread(this::leer, "chat-bus");
+        lector.setDaemon(true);
+        lector.start();
+    }
+
+    @Override
+    public void publicar(ChatMessage mensaje) {
+        MensajeBusChatDTO dto = new MensajeBusChatDTO(mensaje.getId(), mensaje.getCommunityId(),
+                mensaje.getContenido(), mensaje.getUsuarioNombre(), mensaje.getTimestamp(), false);
+        // Se entrega cuando vuelva del relay, en el orden común a todos los nodos
+        if (!enviar(dto)) {
+            log.warn("Sin conexión con el relay del chat, el mensaje {} solo se entrega en este nodo", mensaje.getId());
+            entregar(mensaje);
+        }
+    }
+
+    @Override
+    public void publicarEliminacion(Long communityId, Long mensajeId) {
+        if (!enviar(new MensajeBusChatDTO(mensajeId, communityId, null, null, null, true))) {
+            log.warn("Sin conexión con el relay del chat, el borrado del mensaje {} solo se aplica en este nodo", mensajeId);
+            eventPublisher.publishEvent(new MensajeChatEliminadoEvent(communityId, mensajeId));
+        }
+    }
+
+    /**
+     * Si hay conexión abierta con el relay
+     */
+    public boolean conectado() {
+        return escritor != null;
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        parando = true;
+        cerrarConexion();
+        lector.interrupt();
+        lector.join(TIEMPO_CONEXION_MS);
+    }
+
+    private void leer() {
+        while (!parando) {
+            try (Socket conexion = new Socket()) {
+                conexion.connect(new InetSocketAddress(host, puerto), TIEMPO_CONEXION_MS);
+                conexion.setTcpNoDelay(true);
+                BufferedReader entrada = new BufferedReader(
+                        new InputStreamReader(conexion.getInputStream(), StandardCharsets.UTF_8));
+                socket = conexion;
+                escritor = new BufferedWriter(new OutputStreamWriter(conexion.getOutputStream(), StandardCharsets.UTF_8));
+                log.info("Conectado al relay del chat en {}:{}", host, puerto);
+
+                String linea;
+                while ((linea = entrada.readLine()) != null) {
+                    recibir(linea);
+                }
+            } catch (IOException e) {
+                if (!parando) {
+                    log.warn("Conexión con el relay del chat en {}:{} perdida: {}", host, puerto, e.getMessage());
+                }
+            } finally {
+                escritor = null;
+                socket = null;
+            }
+            if (!parando) {
+                try {
+                    Thread.sleep(reconexionMs);
+                } catch (InterruptedException e) {
+                    // Parada: se sale en la siguiente vuelta
+                }
+            }
+        }
+    }
+
+    // Envía una línea al relay; false si no hay conexión o falla el envío
+    private boolean enviar(MensajeBusChatDTO dto) {
+        Writer salida = escritor;
+        if (salida == null) {
+            return false;
+        }
+        try {
+            String linea = objectMapper.writeValueAsString(dto);
+            synchronized (escritura) {
+                salida.write(linea);
+                salida.write('\n');
+                salida.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Error al enviar el mensaje {} al relay del chat: {}", dto.getId(), e.getMessage());
+            cerrarConexion();
+            return false;
+        }
+    }
+
+    private void recibir(String linea) {
+        try {
+            MensajeBusChatDTO dto = objectMapper.readValue(linea, MensajeBusChatDTO.class);
+            if (dto.isEliminado()) {
+                eventPublisher.publishEvent(new MensajeChatEliminadoEvent(dto.getCommunityId(), dto.getId()));
+                return;
+            }
+            ChatMessage mensaje = new ChatMessage(dto.getId(), dto.getContenido(), dto.getUsuarioNombre(),
+                    null, dto.getCommunityId());
+            mensaje.setTimestamp(dto.getTimestamp());
+            entregar(mensaje);
+        } catch (Exception e) {
+            // Un mensaje que no se puede leer o entregar no corta la conexión
+            log.error("Error al procesar un mensaje del bus del chat: {}", e.getMessage());
+        }
+    }
+
+    private void entregar(ChatMessage mensaje) {
+        if (entregados.add(mensaje.getId())) {
+            eventPublisher.publishEvent(new MensajeChatEvent(mensaje));
+        }
+    }
+
+    private void cerrarConexion() {
+        Socket conexion = socket;
+        escritor = null;
+        if (conexion != null) {
+            try {
+                conexion.close();
+            } catch (IOException e) {
+                log.debug("Error al cerrar la conexión con el relay del chat: {}", e.getMessage());
+            }
+        }
+    }
+}
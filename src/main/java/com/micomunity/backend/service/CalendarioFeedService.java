@@ -0,0 +1,294 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.ReservaFilaDTO;
+import com.micomunity.backend.dto.TokenCalendarioResponse;
+import com.micomunity.backend.exception.ResourceNotFoundException;
+import com.micomunity.backend.model.EstadoReserva;
+import com.micomunity.backend.model.TokenCalendario;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.ZonaComun;
+import com.micomunity.backend.repository.CommunityRepository;
+import com.micomunity.backend.repository.ReservaRepository;
+import com.micomunity.backend.repository.TokenCalendarioRepository;
+import com.micomunity.backend.repository.UserRepository;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feeds iCalendar (RFC 5545) con las reservas de un usuario y con las de una zona común.
+ *
+ * Las aplicaciones de calendario consultan el feed cada pocos minutos, así que cada
+ * respuesta lleva un ETag construido con la versión de cambio del usuario o de la zona
+ * (ver CalendarioVersiones). Si el cliente envía ese mismo ETag se responde 304 sin ir a
+ * la base de datos: el token se resuelve desde una caché en memoria y la versión no
+ * depende de las reservas. El acceso se autentica con un token de calendario revocable
+ * en lugar del JWT.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CalendarioFeedService {
+
+    public static final String RUTA_FEEDS = "/api/calendario/feed/";
+
+    private static final DateTimeFormatter FORMATO_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final String CRLF = "\r\n";
+
+    private final TokenCalendarioRepository tokenCalendarioRepository;
+    private final ReservaRepository reservaRepository;
+    private final ZonaComunRepository zonaComunRepository;
+    private final UserRepository userRepository;
+    private final CommunityRepository communityRepository;
+    private final CalendarioVersiones calendarioVersiones;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Tokens resueltos (hash -> titular) y comunidad de cada zona ya servida
+    private final ConcurrentHashMap<String, Suscriptor> suscriptores = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> comunidadDeZona = new ConcurrentHashMap<>();
+
+    @Value("${reservas.calendario.token-cache-ms:300000}")
+    private long tokenCacheMs;
+
+    @Value("${reservas.calendario.dias-pasados:30}")
+    private int diasPasados;
+
+    @Value("${reservas.calendario.zona-horaria:Europe/Madrid}")
+    private String zonaHoraria;
+
+    /**
+     * Genera un token de calendario nuevo para el usuario; el anterior deja de valer
+     */
+    @Transactional
+    public TokenCalendarioResponse generarToken(User user) {
+        log.info("Usuario {} generando token de calendario", user.getEmail());
+
+        revocarEnTransaccion(user);
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        TokenCalendario tokenCalendario = tokenCalendarioRepository.save(new TokenCalendario(user, hash(token)));
+
+        return new TokenCalendarioResponse(
+                token,
+                RUTA_FEEDS + token + "/mis-reservas.ics",
+                RUTA_FEEDS + token + "/zonas/{zonaId}.ics",
+                tokenCalendario.getFechaCreacion()
+        );
+    }
+
+    @Transactional
+    public void revocarToken(User user) {
+        log.info("Usuario {} revocando su token de calendario", user.getEmail());
+        revocarEnTransaccion(user);
+    }
+
+    /**
+     * Feed con las reservas del titular del token (activas y canceladas, desde hace
+     * reservas.calendario.dias-pasados días). Devuelve un Feed sin contenido si el
+     * ETag del cliente sigue vigente.
+     */
+    public Feed obtenerFeedUsuario(String token, String ifNoneMatch) {
+        Suscriptor suscriptor = resolver(token);
+        String etag = "\"u" + suscriptor.usuarioId() + "-" + calendarioVersiones.versionUsuario(suscriptor.usuarioId()) + "\"";
+        if (coincide(ifNoneMatch, etag)) {
+            return new Feed(etag, null);
+        }
+
+        List<ReservaFilaDTO> reservas = reservaRepository.findByUsuarioDesde(
+                userRepository.getReferenceById(suscriptor.usuarioId()), LocalDate.now().minusDays(diasPasados));
+        StringBuilder ics = abrirCalendario("Mis reservas");
+        for (ReservaFilaDTO reserva : reservas) {
+            escribirEvento(ics, reserva, "Reserva: " + reserva.getZonaComunNombre(), reserva.getZonaComunNombre());
+        }
+        return new Feed(etag, cerrarCalendario(ics));
+    }
+
+    /**
+     * Feed con las reservas activas de una zona común de la comunidad del titular del token
+     */
+    public Feed obtenerFeedZona(String token, UUID zonaId, String ifNoneMatch) {
+        Suscriptor suscriptor = resolver(token);
+        Long comunidad = comunidadDeZona.get(zonaId);
+        if (comunidad != null && !comunidad.equals(suscriptor.communityId())) {
+            throw new ResourceNotFoundException("Zona común no encontrada");
+        }
+        String etag = "\"z" + zonaId + "-" + calendarioVersiones.versionZona(zonaId) + "\"";
+        if (comunidad != null && coincide(ifNoneMatch, etag)) {
+            return new Feed(etag, null);
+        }
+
+        ZonaComun zona = zonaComunRepository.findByIdAndCommunity(zonaId,
+                        communityRepository.getReferenceById(suscriptor.communityId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Zona común no encontrada"));
+        comunidadDeZona.put(zonaId, suscriptor.communityId());
+
+        StringBuilder ics = abrirCalendario(zona.getNombre());
+        LocalDate desde = LocalDate.now().minusDays(diasPasados);
+        for (ReservaFilaDTO reserva : reservaRepository.findNoCanceladasByZonaComunDesde(zona, desde)) {
+            // Sin datos del vecino: el feed de la zona solo muestra la ocupación
+            escribirEvento(ics, reserva, zona.getNombre() + " (reservada)", zona.getNombre());
+        }
+        return new Feed(etag, cerrarCalendario(ics));
+    }
+
+    private void revocarEnTransaccion(User user) {
+        tokenCalendarioRepository.deleteByUsuario(user);
+        Long usuarioId = user.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                suscriptores.values().removeIf(suscriptor -> suscriptor.usuarioId().equals(usuarioId));
+            }
+        });
+    }
+
+    private Suscriptor resolver(String token) {
+        String hash = hash(token);
+        long ahora = System.currentTimeMillis();
+        Suscriptor suscriptor = suscriptores.get(hash);
+        if (suscriptor != null && ahora - suscriptor.cargadoEn() < tokenCacheMs) {
+            return suscriptor;
+        }
+        // Con varios nodos, una revocación tarda como mucho reservas.calendario.token-cache-ms en aplicarse aquí
+        TokenCalendarioRepository.Suscripcion suscripcion = tokenCalendarioRepository.findSuscripcionByTokenHash(hash)
+                .orElseThrow(() -> {
+                    suscriptores.remove(hash);
+                    return new ResourceNotFoundException("Calendario no encontrado");
+                });
+        Suscriptor cargado = new Suscriptor(suscripcion.getUsuarioId(), suscripcion.getCommunityId(), ahora);
+        suscriptores.put(hash, cargado);
+        return cargado;
+    }
+
+    private StringBuilder abrirCalendario(String nombre) {
+        StringBuilder ics = new StringBuilder(4096);
+        linea(ics, "BEGIN:VCALENDAR");
+        linea(ics, "VERSION:2.0");
+        linea(ics, "PRODID:-//MiComunity//Reservas//ES");
+        linea(ics, "CALSCALE:GREGORIAN");
+        linea(ics, "METHOD:PUBLISH");
+        linea(ics, "X-WR-CALNAME:" + escapar(nombre));
+        return ics;
+    }
+
+    private String cerrarCalendario(StringBuilder ics) {
+        linea(ics, "END:VCALENDAR");
+        return ics.toString();
+    }
+
+    private void escribirEvento(StringBuilder ics, ReservaFilaDTO reserva, String resumen, String lugar) {
+        boolean cancelada = reserva.getEstado() == EstadoReserva.CANCELADA;
+        LocalDateTime modificada = cancelada && reserva.getFechaCancelacion() != null
+                ? reserva.getFechaCancelacion() : reserva.getFechaCreacion();
+
+        linea(ics, "BEGIN:VEVENT");
+        linea(ics, "UID:" + reserva.getId() + "@micomunity");
+        linea(ics, "DTSTAMP:" + utc(modificada != null ? modificada : LocalDateTime.now()));
+        linea(ics, "DTSTART:" + utc(reserva.getFecha(), reserva.getHoraInicio()));
+        linea(ics, "DTEND:" + utc(reserva.getFecha(), reserva.getHoraFin()));
+        linea(ics, "SUMMARY:" + escapar(resumen));
+        linea(ics, "LOCATION:" + escapar(lugar));
+        linea(ics, "STATUS:" + (cancelada ? "CANCELLED" : "CONFIRMED"));
+        linea(ics, "SEQUENCE:" + (cancelada ? 1 : 0));
+        linea(ics, "END:VEVENT");
+    }
+
+    private String utc(LocalDate fecha, LocalTime hora) {
+        return utc(LocalDateTime.of(fecha, hora));
+    }
+
+    private String utc(LocalDateTime fechaHora) {
+        return fechaHora.atZone(ZoneId.of(zonaHoraria)).withZoneSameInstant(ZoneOffset.UTC).format(FORMATO_UTC);
+    }
+
+    /**
+     * Añade una línea de contenido plegándola a 75 octetos como exige RFC 5545
+     */
+    private static void linea(StringBuilder ics, String contenido) {
+        int octetos = 0;
+        for (int i = 0; i < contenido.length(); ) {
+            int codePoint = contenido.codePointAt(i);
+            int ancho = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+            if (octetos + ancho > 75) {
+                ics.append(CRLF).append(' ');
+                octetos = 1;
+            }
+            ics.appendCodePoint(codePoint);
+            octetos += ancho;
+            i += Character.charCount(codePoint);
+        }
+        ics.append(CRLF);
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    /**
+     * Comprueba la cabecera If-None-Match (uno o varios ETag, o *)
+     */
+    private static boolean coincide(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Contenido de un feed; sin contenido cuando el ETag del cliente sigue vigente (304)
+     */
+    public record Feed(String etag, String contenido) {
+
+        public boolean noModificado() {
+            return contenido == null;
+        }
+    }
+
+    private record Suscriptor(Long usuarioId, Long communityId, long cargadoEn) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.HorarioZonaModificadoEvent;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versiones de cambio de los calendarios iCalendar por usuario y por zona común, con
+ * las que se construyen los ETag de los feeds.
+ *
+ * La versión de un usuario o de una zona cambia tras el commit de cualquier alta o
+ * cancelación que le afecte. Las versiones salen de una secuencia que arranca en la
+ * hora actual, así que un ETag emitido antes de reiniciar el nodo no coincide con
+ * ninguno posterior. Cada versión caduca pasado el TTL y se sustituye por otra nueva,
+ * lo que acota el tiempo que un nodo responde 304 a un cambio hecho en otro nodo.
+ */
+@Component
+public class CalendarioVersiones {
+
+    private final ConcurrentHashMap<Long, Version> usuarios = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Version> zonas = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong(System.currentTimeMillis());
+
+    @Value("${reservas.calendario.version-ttl-ms:300000}")
+    private long ttlMs;
+
+    public long versionUsuario(Long usuarioId) {
+        return vigente(usuarios, usuarioId);
+    }
+
+    public long versionZona(UUID zonaId) {
+        return vigente(zonas, zonaId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        usuarios.put(event.getUsuarioId(), nueva());
+        zonas.put(event.getZonaComunId(), nueva());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onHorarioZonaModificado(HorarioZonaModificadoEvent event) {
+        zonas.put(event.getZonaComunId(), nueva());
+    }
+
+    /**
+     * Elimina las versiones caducadas; se volverán a crear en la siguiente consulta
+     */
+    @Scheduled(fixedDelayString = "${reservas.calendario.version-ttl-ms:300000}")
+    public void purgarCaducadas() {
+        long ahora = System.currentTimeMillis();
+        usuarios.values().removeIf(version -> version.caducada(ahora, ttlMs));
+        zonas.values().removeIf(version -> version.caducada(ahora, ttlMs));
+    }
+
+    private <K> long vigente(ConcurrentHashMap<K, Version> versiones, K clave) {
+        long ahora = System.currentTimeMillis();
+        return versiones.compute(clave, (k, actual) ->
+                actual == null || actual.caducada(ahora, ttlMs) ? nueva() : actual).valor();
+    }
+
+    private Version nueva() {
+        return new Version(secuencia.incrementAndGet(), System.currentTimeMillis());
+    }
+
+    private record Version(long valor, long creadaEn) {
+
+        boolean caducada(long ahora, long ttlMs) {
+            return ahora - creadaEn >= ttlMs;
+        }
+    }
+}
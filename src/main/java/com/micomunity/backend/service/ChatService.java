@@ -1,130 +1,121 @@
 package com.micomunity.backend.service;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.micomunity.backend.dto.ChatMessageDTO;
+import com.micomunity.backend.dto.HistorialChatPage;
+import com.micomunity.backend.exception.ResourceNotFoundException;
 import com.micomunity.backend.model.ChatMessage;
-import com.micomunity.backend.model.Community;
 import com.micomunity.backend.repository.ChatMessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatService {
 
+    private static final int MAX_LIMITE_PAGINA = 100;
+
     private final ChatMessageRepository chatMessageRepository;
+    private final PersistenciaChatService persistenciaChatService;
+    private final HistorialChatCache historialChatCache;
+    private final GeneradorIdsChat generadorIds;
+    private final BusChat busChat;
 
     /**
-     * Guarda un nuevo mensaje en la base de datos
+     * Crea un mensaje de la comunidad de su sala con id y timestamp definitivos y lo
+     * publica en el bus del chat, que lo hace llegar a las salas de todos los nodos. El
+     * guardado se hace en segundo plano y en lote (ver PersistenciaChatService).
      */
-    @Transactional
-    public ChatMessage guardarMensaje(String contenido, String usuarioNombre, String ipOrigen, Community community) {
+    public ChatMessage guardarMensaje(String contenido, String usuarioNombre, String ipOrigen, Long communityId) {
         log.debug("Guardando mensaje: {} - Usuario: {} - IP: {}", contenido, usuarioNombre, ipOrigen);
         
-        ChatMessage mensaje = new ChatMessage();
-        mensaje.setContenido(contenido);
-        mensaje.setUsuarioNombre(usuarioNombre != null ? usuarioNombre : "Usuario");
-        mensaje.setIpOrigen(ipOrigen);
-        mensaje.setTimestamp(LocalDateTime.now());
-        mensaje.setCommunity(community); // null por ahora para chat global
+        // Se rechaza antes de difundirlo: en el lote diferido ya no se podría avisar al autor
+        if (contenido == null || contenido.isBlank()) {
+            throw new RuntimeException("El mensaje no puede estar vacío");
+        }
         
-        ChatMessage savedMessage = chatMessageRepository.save(mensaje);
-        log.info("Mensaje guardado con ID: {}", savedMessage.getId());
+        ChatMessage mensaje = new ChatMessage(generadorIds.siguiente(), contenido,
+                usuarioNombre != null ? usuarioNombre : "Usuario", ipOrigen, communityId);
+        persistenciaChatService.guardar(mensaje);
+        busChat.publicar(mensaje);
         
-        return savedMessage;
+        return mensaje;
     }
 
     /**
-     * Obtiene el historial de mensajes (últimos N mensajes)
+     * Últimos mensajes de una comunidad ya serializados, servidos desde memoria (como
+     * mucho chat.historial.limite), del más antiguo al más reciente
      */
-    @Transactional(readOnly = true)
-    public List<ChatMessage> obtenerHistorial(int limite) {
-        log.debug("Obteniendo historial de {} mensajes", limite);
-        
-        try {
-            // Obtener todos los mensajes ordenados por timestamp descendente (más recientes primero)
-            PageRequest pageRequest = PageRequest.of(0, limite, 
-                org.springframework.data.domain.Sort.by(
-                    org.springframework.data.domain.Sort.Direction.DESC, "timestamp"));
-            
-            List<ChatMessage> mensajes = chatMessageRepository.findAll(pageRequest).getContent();
-            
-            // Crear una lista mutable e invertir el orden para mostrar cronológicamente (más antiguos primero)
-            List<ChatMessage> mensajesMutable = new java.util.ArrayList<>(mensajes);
-            Collections.reverse(mensajesMutable);
-            mensajes = mensajesMutable;
-            
-            log.info("Historial obtenido: {} mensajes", mensajes.size());
-            
-            // Log de debug para ver qué mensajes se encontraron
-            for (ChatMessage msg : mensajes) {
-                log.debug("Mensaje ID: {}, Usuario: {}, Contenido: {}, Timestamp: {}", 
-                    msg.getId(), msg.getUsuarioNombre(), msg.getContenido(), msg.getTimestamp());
-            }
-            
-            return mensajes;
-            
-        } catch (Exception e) {
-            log.error("Error al obtener historial: {}", e.getMessage(), e);
-            return Collections.emptyList();
-        }
+    public List<RawValue> obtenerHistorialReciente(Long communityId, int limite) {
+        return historialChatCache.ultimos(communityId, limite);
     }
 
     /**
-     * Obtiene el historial de mensajes de una comunidad específica
+     * Página de mensajes anteriores a uno dado (o los más recientes si no se indica),
+     * paginada por (timestamp, id)
      */
     @Transactional(readOnly = true)
-    public List<ChatMessage> obtenerHistorialPorComunidad(Community community, int limite) {
-        log.debug("Obteniendo historial de {} mensajes para comunidad: {}", limite, community.getName());
+    public HistorialChatPage obtenerMensajesAnteriores(Long communityId, Long antesDe, int limite) {
+        log.debug("Obteniendo {} mensajes anteriores a {} para comunidad: {}", limite, antesDe, communityId);
         
-        try {
-            PageRequest pageRequest = PageRequest.of(0, limite);
-            List<ChatMessage> mensajes = chatMessageRepository.findLatestMessagesByCommunityForHistory(community, pageRequest);
-            Collections.reverse(mensajes); // Para mostrar cronológicamente
-            
-            log.debug("Historial obtenido: {} mensajes para comunidad {}", mensajes.size(), community.getName());
-            return mensajes;
-            
-        } catch (Exception e) {
-            log.error("Error al obtener historial por comunidad: {}", e.getMessage(), e);
-            return Collections.emptyList();
+        int tamanio = Math.max(1, Math.min(limite, MAX_LIMITE_PAGINA));
+        // Se pide uno de más para saber si hay otra página
+        PageRequest pageRequest = PageRequest.of(0, tamanio + 1);
+        List<ChatMessage> mensajes;
+        if (antesDe == null) {
+            mensajes = chatMessageRepository.findLatestMessagesByCommunityId(communityId, pageRequest);
+        } else {
+            LocalDateTime timestamp = chatMessageRepository.findTimestampByIdAndCommunityId(antesDe, communityId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Mensaje no encontrado"));
+            mensajes = chatMessageRepository.findMessagesBefore(communityId, timestamp, antesDe, pageRequest);
         }
-    }
-
-    /**
-     * Obtiene todos los mensajes de una comunidad
-     */
-    @Transactional(readOnly = true)
-    public List<ChatMessage> obtenerTodosMensajesPorComunidad(Community community) {
-        log.debug("Obteniendo todos los mensajes para comunidad: {}", community.getName());
         
-        try {
-            List<ChatMessage> mensajes = chatMessageRepository.findAllMessagesByCommunityOrderByTimestamp(community);
-            log.debug("Total mensajes obtenidos: {} para comunidad {}", mensajes.size(), community.getName());
-            return mensajes;
-            
-        } catch (Exception e) {
-            log.error("Error al obtener todos los mensajes por comunidad: {}", e.getMessage(), e);
-            return Collections.emptyList();
+        boolean hayMas = mensajes.size() > tamanio;
+        List<ChatMessageDTO> pagina = new ArrayList<>(Math.min(mensajes.size(), tamanio));
+        for (ChatMessage mensaje : mensajes.subList(0, Math.min(mensajes.size(), tamanio))) {
+            pagina.add(new ChatMessageDTO(
+                    mensaje.getId(),
+                    mensaje.getContenido(),
+                    mensaje.getUsuarioNombre(),
+                    mensaje.getTimestamp(),
+                    "historial"
+            ));
         }
+        Collections.reverse(pagina); // Para mostrar cronológicamente
+        
+        Long siguienteCursor = hayMas ? pagina.get(0).getId() : null;
+        return new HistorialChatPage(pagina, siguienteCursor, hayMas);
     }
 
     /**
-     * Elimina un mensaje (solo para administradores)
+     * Elimina un mensaje (solo para administradores). Si aún está en la cola de escritura
+     * diferida se descarta de ella. El borrado se publica en el bus tras el commit para
+     * que todos los nodos lo quiten de su historial en memoria.
      */
     @Transactional
     public boolean eliminarMensaje(Long messageId) {
         log.info("Intentando eliminar mensaje ID: {}", messageId);
         
         try {
-            if (chatMessageRepository.existsById(messageId)) {
-                chatMessageRepository.deleteById(messageId);
+            Optional<ChatMessage> mensaje = persistenciaChatService.descartar(messageId);
+            if (mensaje.isEmpty()) {
+                mensaje = chatMessageRepository.findById(messageId);
+                mensaje.ifPresent(chatMessageRepository::delete);
+            }
+            if (mensaje.isPresent()) {
+                publicarEliminacionTrasCommit(mensaje.get().getCommunityId(), messageId);
                 log.info("Mensaje {} eliminado exitosamente", messageId);
                 return true;
             } else {
@@ -137,6 +128,19 @@ public class ChatService {
         }
     }
 
+    private void publicarEliminacionTrasCommit(Long communityId, Long messageId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            busChat.publicarEliminacion(communityId, messageId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                busChat.publicarEliminacion(communityId, messageId);
+            }
+        });
+    }
+
     /**
      * Obtiene estadísticas del chat
      */
@@ -0,0 +1,270 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.repository.ReservaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cupos de reservas por usuario: reservas activas de hoy en adelante por (zona, fecha),
+ * con las que se aplican el límite por zona y día y el límite total sin consultar la
+ * base de datos en cada alta.
+ *
+ * Los contadores de un usuario se cargan con una sola consulta la primera vez que se
+ * necesitan y se actualizan a la vez que las reservas: un alta descuenta cupo en el
+ * momento y lo devuelve si su transacción no se confirma; una cancelación lo libera al
+ * confirmarse. Pasado el TTL los contadores se vuelven a leer de la base de datos para
+ * recoger reservas hechas desde otros nodos, pero nunca mientras el usuario tenga
+ * altas o cancelaciones en curso.
+ *
+ * Con varios nodos, cada uno solo ve al momento sus propias altas. El límite por zona y
+ * día se mantiene exacto: si los contadores tienen más de reservas.cupos.revalidar-ms,
+ * la cuenta de esa (zona, fecha) se vuelve a leer de la base de datos, y quien llama
+ * tiene ya el advisory lock de esa zona y fecha, así que ningún otro nodo puede estar
+ * creando una reserva en ella. El límite total abarca varias zonas y fechas que no
+ * cubre ese bloqueo: un usuario que reserve a la vez en varios nodos puede superarlo
+ * durante como mucho el TTL, hasta que los contadores se recargan.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CupoReservasService {
+
+    private final ReservaRepository reservaRepository;
+
+    private final ConcurrentHashMap<Long, Cupo> cupos = new ConcurrentHashMap<>();
+
+    // 0 = sin límite total
+    @Value("${reservas.limite.por.usuario:2}")
+    private int limiteReservasPorUsuario;
+
+    @Value("${reservas.limite.por.zona:1}")
+    private int limiteReservasPorZona;
+
+    @Value("${reservas.cupos.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${reservas.cupos.revalidar-ms:2000}")
+    private long revalidarMs;
+
+    @Value("${reservas.cupos.max-usuarios:20000}")
+    private int maxUsuarios;
+
+    /**
+     * Descuenta el cupo de una reserva del usuario en la zona y fecha. Devuelve null si
+     * cabe, o el motivo si supera alguno de los límites (sin descontar nada).
+     * Debe llamarse dentro de la transacción que crea la reserva, con el advisory lock de
+     * la zona y fecha ya tomado.
+     */
+    public String reservar(Long usuarioId, UUID zonaId, LocalDate fecha) {
+        ClaveZonaDia clave = new ClaveZonaDia(zonaId, fecha);
+        while (true) {
+            Cupo cupo = cupo(usuarioId);
+            synchronized (cupo) {
+                if (cupo.descartado) {
+                    // Se ha recargado o purgado mientras tanto: se vuelve a buscar
+                    continue;
+                }
+                if (System.currentTimeMillis() - cupo.cargadoEn >= revalidarMs) {
+                    // Puede haber altas o cancelaciones de otros nodos en esta zona y fecha
+                    cupo.fijar(clave, (int) reservaRepository.countNoCanceladasByUsuarioAndZonaAndFecha(
+                            usuarioId, zonaId, fecha));
+                }
+                if (cupo.reservas.getOrDefault(clave, 0) >= limiteReservasPorZona) {
+                    return "Has alcanzado el límite de reservas para esta zona común en esta fecha (" +
+                            limiteReservasPorZona + ")";
+                }
+                if (limiteReservasPorUsuario > 0 && cupo.total(LocalDate.now()) >= limiteReservasPorUsuario) {
+                    return "Has alcanzado el límite de reservas activas totales (" + limiteReservasPorUsuario + ")";
+                }
+                cupo.sumar(clave, 1);
+                cupo.enCurso++;
+            }
+            operacionesDeLaTransaccion().add(new Operacion(usuarioId, cupo, clave, true));
+            return null;
+        }
+    }
+
+    /**
+     * Devuelve el cupo descontado en esta misma transacción para una reserva que
+     * finalmente no se crea (por ejemplo, porque la franja se ha llenado)
+     */
+    public void devolver(Long usuarioId, UUID zonaId, LocalDate fecha) {
+        ClaveZonaDia clave = new ClaveZonaDia(zonaId, fecha);
+        Iterator<Operacion> it = operacionesDeLaTransaccion().iterator();
+        while (it.hasNext()) {
+            Operacion operacion = it.next();
+            if (operacion.alta() && operacion.usuarioId().equals(usuarioId) && operacion.clave().equals(clave)) {
+                it.remove();
+                operacion.completar(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Libera el cupo de una reserva cancelada cuando se confirme la transacción.
+     * Si el usuario no tiene contadores cargados no hay nada que actualizar.
+     */
+    public void liberar(Long usuarioId, UUID zonaId, LocalDate fecha) {
+        Cupo cupo = cupos.get(usuarioId);
+        if (cupo == null) {
+            return;
+        }
+        synchronized (cupo) {
+            if (cupo.descartado) {
+                return;
+            }
+            cupo.enCurso++;
+        }
+        operacionesDeLaTransaccion().add(new Operacion(usuarioId, cupo, new ClaveZonaDia(zonaId, fecha), false));
+    }
+
+    /**
+     * Descarta los contadores caducados sin operaciones en curso
+     */
+    @Scheduled(fixedDelayString = "${reservas.cupos.ttl-ms:60000}")
+    public void purgarCaducados() {
+        long ahora = System.currentTimeMillis();
+        int antes = cupos.size();
+        cupos.values().removeIf(cupo -> cupo.descartarSiInactivo(ahora, ttlMs));
+        log.debug("Cupos de reservas purgados: {} -> {} usuarios", antes, cupos.size());
+    }
+
+    private Cupo cupo(Long usuarioId) {
+        Cupo cupo = cupos.get(usuarioId);
+        long ahora = System.currentTimeMillis();
+        if (cupo != null) {
+            if (ahora - cupo.cargadoEn < ttlMs) {
+                return cupo;
+            }
+            // Caducado: se recarga bajo su propio bloqueo si no tiene operaciones en curso
+            synchronized (cupo) {
+                if (cupo.descartado || cupo.enCurso > 0) {
+                    return cupo;
+                }
+                Cupo recargado = cargar(usuarioId);
+                cupo.descartado = true;
+                cupos.put(usuarioId, recargado);
+                return recargado;
+            }
+        }
+
+        Cupo cargado = cargar(usuarioId);
+        if (cupos.size() >= maxUsuarios) {
+            // Sin sitio en memoria: el cupo vale solo para esta operación
+            return cargado;
+        }
+        Cupo existente = cupos.putIfAbsent(usuarioId, cargado);
+        return existente != null ? existente : cargado;
+    }
+
+    private Cupo cargar(Long usuarioId) {
+        Cupo cupo = new Cupo(System.currentTimeMillis());
+        for (ReservaRepository.ConteoPorZonaFecha conteo :
+                reservaRepository.countActiveReservasByUsuarioGroupByZonaAndFecha(usuarioId, LocalDate.now())) {
+            cupo.reservas.put(new ClaveZonaDia(conteo.getZonaId(), conteo.getFecha()), conteo.getTotal().intValue());
+        }
+        return cupo;
+    }
+
+    /**
+     * Operaciones de cupo de la transacción actual; se completan al terminar la transacción
+     */
+    @SuppressWarnings("unchecked")
+    private List<Operacion> operacionesDeLaTransaccion() {
+        List<Operacion> operaciones = (List<Operacion>) TransactionSynchronizationManager.getResource(this);
+        if (operaciones != null) {
+            return operaciones;
+        }
+        List<Operacion> nuevas = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, nuevas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CupoReservasService.this);
+                for (Operacion operacion : nuevas) {
+                    operacion.completar(status == STATUS_COMMITTED);
+                }
+            }
+        });
+        return nuevas;
+    }
+
+    private record ClaveZonaDia(UUID zonaId, LocalDate fecha) {
+    }
+
+    /**
+     * Alta o cancelación pendiente de confirmar: un alta se deshace si no se confirma y
+     * una cancelación solo descuenta si se confirma
+     */
+    private record Operacion(Long usuarioId, Cupo cupo, ClaveZonaDia clave, boolean alta) {
+
+        void completar(boolean confirmada) {
+            synchronized (cupo) {
+                if (alta != confirmada) {
+                    cupo.sumar(clave, -1);
+                }
+                cupo.enCurso--;
+            }
+        }
+    }
+
+    /**
+     * Reservas activas de un usuario por (zona, fecha). Se accede siempre sincronizando sobre la instancia.
+     */
+    private static final class Cupo {
+
+        private final long cargadoEn;
+        private final Map<ClaveZonaDia, Integer> reservas = new HashMap<>();
+        private int enCurso;
+        private boolean descartado;
+
+        private Cupo(long cargadoEn) {
+            this.cargadoEn = cargadoEn;
+        }
+
+        private void sumar(ClaveZonaDia clave, int delta) {
+            fijar(clave, reservas.getOrDefault(clave, 0) + delta);
+        }
+
+        private void fijar(ClaveZonaDia clave, int nuevo) {
+            if (nuevo > 0) {
+                reservas.put(clave, nuevo);
+            } else {
+                reservas.remove(clave);
+            }
+        }
+
+        private int total(LocalDate desde) {
+            int total = 0;
+            for (Map.Entry<ClaveZonaDia, Integer> entrada : reservas.entrySet()) {
+                if (!entrada.getKey().fecha().isBefore(desde)) {
+                    total += entrada.getValue();
+                }
+            }
+            return total;
+        }
+
+        private synchronized boolean descartarSiInactivo(long ahora, long ttlMs) {
+            if (enCurso > 0 || ahora - cargadoEn < ttlMs) {
+                return false;
+            }
+            descartado = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.repository.ReservaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice en memoria de ocupación por (zona común, fecha).
+ *
+ * Cada entrada guarda los intervalos reservados del día (IntervalosOcupados), de modo
+ * que sirve para cualquier rejilla de franjas y para reservas de cualquier duración; el
+ * horario de cada zona se aplica al consultar (ver HorarioZona). Las entradas se cargan bajo demanda desde ReservaRepository y se
+ * recargan tras el commit de cada alta o cancelación. Cada carga toma un número de
+ * secuencia antes de consultar la base de datos y solo sustituye a una entrada más
+ * antigua, de modo que una lectura lenta nunca pisa el resultado de una escritura
+ * posterior.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DisponibilidadIndex {
+
+    private final ReservaRepository reservaRepository;
+
+    private final ConcurrentHashMap<ClaveDia, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    @Value("${reservas.disponibilidad.max-entradas:20000}")
+    private int maxEntradas;
+
+    /**
+     * Devuelve los intervalos reservados de una zona en una fecha.
+     * Las fechas pasadas se calculan contra la base de datos sin guardarse en el índice.
+     */
+    public IntervalosOcupados obtenerOcupacion(UUID zonaId, LocalDate fecha) {
+        ClaveDia clave = new ClaveDia(zonaId, fecha);
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null) {
+            return entrada.ocupados();
+        }
+
+        Entrada cargada = cargar(clave);
+        if (!fecha.isBefore(LocalDate.now()) && entradas.size() < maxEntradas) {
+            guardar(clave, cargada);
+        }
+        return cargada.ocupados();
+    }
+
+    /**
+     * Recarga la entrada afectada una vez confirmada la transacción que creó o canceló la reserva.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        ClaveDia clave = new ClaveDia(event.getZonaComunId(), event.getFecha());
+        try {
+            guardar(clave, cargar(clave));
+        } catch (Exception e) {
+            // Si no se puede recargar se descarta la entrada para que la próxima lectura vaya a la base de datos
+            log.warn("No se pudo refrescar la disponibilidad de {} el {}: {}",
+                    event.getZonaComunId(), event.getFecha(), e.getMessage());
+            entradas.remove(clave);
+        }
+    }
+
+    /**
+     * Elimina las entradas de fechas que ya han pasado
+     */
+    @Scheduled(cron = "${reservas.disponibilidad.purga-cron:0 5 0 * * *}")
+    public void purgarFechasPasadas() {
+        LocalDate hoy = LocalDate.now();
+        int antes = entradas.size();
+        entradas.keySet().removeIf(clave -> clave.fecha().isBefore(hoy));
+        log.debug("Índice de disponibilidad purgado: {} -> {} entradas", antes, entradas.size());
+    }
+
+    private Entrada cargar(ClaveDia clave) {
+        long version = secuencia.incrementAndGet();
+        List<ReservaRepository.FranjaOcupada> ocupadas =
+                reservaRepository.findFranjasOcupadas(clave.zonaId(), clave.fecha());
+        return new Entrada(version, IntervalosOcupados.de(ocupadas));
+    }
+
+    private void guardar(ClaveDia clave, Entrada nueva) {
+        entradas.merge(clave, nueva, (actual, candidata) -> candidata.version() > actual.version() ? candidata : actual);
+    }
+
+    private record ClaveDia(UUID zonaId, LocalDate fecha) {
+    }
+
+    private record Entrada(long version, IntervalosOcupados ocupados) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.micomunity.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identificadores de mensajes de chat ordenados en el tiempo, generados en memoria para
+ * poder difundir un mensaje antes de guardarlo.
+ *
+ * Cada id lleva los milisegundos desde EPOCA_MS (41 bits), el nodo (10 bits,
+ * chat.mensajes.nodo) y un contador dentro del milisegundo (12 bits). Los ids crecen con
+ * el tiempo en cada nodo, no se repiten entre nodos con distinto número y quedan muy por
+ * encima de los que generaba antes la columna identity. Como superan 2^53, los DTO del
+ * chat los serializan en JSON como texto.
+ */
+@Component
+public class GeneradorIdsChat {
+
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCA_MS = 1_704_067_200_000L;
+    private static final int BITS_NODO = 10;
+    private static final int BITS_SECUENCIA = 12;
+    private static final long MAX_SECUENCIA = (1L << BITS_SECUENCIA) - 1;
+
+    private final long nodo;
+    private long ultimoMs = -1;
+    private long secuencia;
+
+    public GeneradorIdsChat(@Value("${chat.mensajes.nodo:0}") long nodo) {
+        if (nodo < 0 || nodo >= (1L << BITS_NODO)) {
+            throw new IllegalArgumentException("chat.mensajes.nodo debe estar entre 0 y " + ((1L << BITS_NODO) - 1));
+        }
+        this.nodo = nodo;
+    }
+
+    public synchronized long siguiente() {
+        long ahora = Math.max(System.currentTimeMillis(), ultimoMs);
+        if (ahora == ultimoMs) {
+            secuencia = (secuencia + 1) & MAX_SECUENCIA;
+            if (secuencia == 0) {
+                // Contador agotado en este milisegundo: se toma prestado el siguiente
+                ahora = ultimoMs + 1;
+            }
+        } else {
+            secuencia = 0;
+        }
+        ultimoMs = ahora;
+        return ((ahora - EPOCA_MS) << (BITS_NODO + BITS_SECUENCIA)) | (nodo << BITS_SECUENCIA) | secuencia;
+    }
+}
@@ -0,0 +1,247 @@
+package com.micomunity.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.micomunity.backend.dto.ChatMessageDTO;
+import com.micomunity.backend.event.MensajeChatEliminadoEvent;
+import com.micomunity.backend.event.MensajeChatEvent;
+import com.micomunity.backend.model.ChatMessage;
+import com.micomunity.backend.repository.ChatMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Últimos mensajes de cada comunidad en memoria, ya serializados como ChatMessageDTO de
+ * tipo "historial", para servir el historial al conectar y por REST sin consultar la
+ * base de datos.
+ *
+ * Cada comunidad tiene un anillo de chat.historial.limite entradas que alimentan los
+ * mensajes que entrega el bus del chat (de este nodo o de otros); la primera lectura lo completa con una consulta y lo mezcla
+ * con lo recibido mientras tanto (que puede no estar guardado aún por la escritura
+ * diferida). Hay como mucho chat.historial.max-salas anillos; al superarlos se
+ * descartan los de uso más antiguo.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HistorialChatCache {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.historial.limite:50}")
+    private int capacidad;
+
+    @Value("${chat.historial.max-salas:10000}")
+    private int maxSalas;
+
+    private final Map<Long, Anillo> anillos = new ConcurrentHashMap<>();
+
+    public int capacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Añade un mensaje nuevo al anillo de su comunidad
+     */
+    public void registrar(ChatMessage mensaje) {
+        Entrada entrada = codificar(mensaje);
+        if (entrada == null) {
+            return;
+        }
+        anillo(mensaje.getCommunityId()).agregar(entrada);
+    }
+
+    @EventListener
+    public void onMensajeChat(MensajeChatEvent event) {
+        registrar(event.getMensaje());
+    }
+
+    /**
+     * Quita del anillo de su comunidad un mensaje eliminado (en cualquier nodo). No se
+     * recarga de la base de datos para no perder los mensajes aún no guardados.
+     */
+    @EventListener
+    public void onMensajeChatEliminado(MensajeChatEliminadoEvent event) {
+        Anillo anillo = anillos.get(event.getCommunityId());
+        if (anillo != null) {
+            anillo.quitar(event.getMensajeId());
+        }
+    }
+
+    /**
+     * Últimos mensajes de la comunidad (como mucho la capacidad del anillo), del más
+     * antiguo al más reciente, en JSON
+     */
+    public List<RawValue> ultimos(Long communityId, int limite) {
+        Anillo anillo = anillo(communityId);
+        if (!anillo.completo()) {
+            // Una sola consulta por comunidad aunque se reconecten muchos clientes a la vez
+            synchronized (anillo.carga) {
+                if (!anillo.completo()) {
+                    cargar(communityId, anillo);
+                }
+            }
+        }
+        return anillo.ultimos(Math.min(limite, capacidad));
+    }
+
+    private void cargar(Long communityId, Anillo anillo) {
+        List<ChatMessage> recientes = chatMessageRepository.findLatestMessagesByCommunityId(
+                communityId, PageRequest.of(0, capacidad));
+        List<Entrada> entradas = new ArrayList<>(recientes.size());
+        for (ChatMessage mensaje : recientes) {
+            Entrada entrada = codificar(mensaje);
+            if (entrada != null) {
+                entradas.add(entrada);
+            }
+        }
+        anillo.completar(entradas);
+        log.debug("Historial de la comunidad {} cargado en memoria: {} mensajes", communityId, entradas.size());
+    }
+
+    private Anillo anillo(Long communityId) {
+        Anillo anillo = anillos.get(communityId);
+        if (anillo == null) {
+            if (anillos.size() >= maxSalas) {
+                descartarMenosUsados();
+            }
+            anillo = anillos.computeIfAbsent(communityId, id -> new Anillo(capacidad));
+        }
+        anillo.ultimoAcceso = System.nanoTime();
+        return anillo;
+    }
+
+    // Descarta la décima parte de los anillos, los de acceso más antiguo
+    private void descartarMenosUsados() {
+        List<Map.Entry<Long, Anillo>> entradas = new ArrayList<>(anillos.entrySet());
+        entradas.sort(Comparator.comparingLong(e -> e.getValue().ultimoAcceso));
+        Iterator<Map.Entry<Long, Anillo>> it = entradas.iterator();
+        for (int i = 0; i < Math.max(1, maxSalas / 10) && it.hasNext(); i++) {
+            anillos.remove(it.next().getKey());
+        }
+    }
+
+    private Entrada codificar(ChatMessage mensaje) {
+        ChatMessageDTO dto = new ChatMessageDTO(mensaje.getId(), mensaje.getContenido(),
+                mensaje.getUsuarioNombre(), mensaje.getTimestamp(), "historial");
+        try {
+            return new Entrada(mensaje.getId(), objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            log.error("Error al serializar mensaje {} para el historial: {}", mensaje.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mensaje ya serializado
+     */
+    private record Entrada(long id, String json) {
+
+        RawValue raw() {
+            return new RawValue(json);
+        }
+    }
+
+    /**
+     * Anillo de entradas de una comunidad ordenadas por id (que crece con el tiempo)
+     */
+    private static final class Anillo {
+
+        private final Object carga = new Object();
+        private final Entrada[] entradas;
+        private int inicio;
+        private int tamanio;
+        private boolean completo;
+        private volatile long ultimoAcceso;
+
+        Anillo(int capacidad) {
+            this.entradas = new Entrada[capacidad];
+        }
+
+        synchronized boolean completo() {
+            return completo;
+        }
+
+        synchronized void agregar(Entrada entrada) {
+            if (entradas.length == 0) {
+                return;
+            }
+            if (tamanio == entradas.length) {
+                entradas[inicio] = entrada;
+                inicio = (inicio + 1) % entradas.length;
+            } else {
+                entradas[(inicio + tamanio) % entradas.length] = entrada;
+                tamanio++;
+            }
+        }
+
+        synchronized void quitar(long id) {
+            int escritos = 0;
+            for (int i = 0; i < tamanio; i++) {
+                Entrada entrada = entradas[(inicio + i) % entradas.length];
+                if (entrada.id() != id) {
+                    entradas[(inicio + escritos++) % entradas.length] = entrada;
+                }
+            }
+            for (int i = escritos; i < tamanio; i++) {
+                entradas[(inicio + i) % entradas.length] = null;
+            }
+            tamanio = escritos;
+        }
+
+        /**
+         * Mezcla lo leído de la base de datos (del más reciente al más antiguo) con lo
+         * registrado desde que se creó el anillo
+         */
+        synchronized void completar(List<Entrada> recientesPrimero) {
+            if (completo) {
+                return;
+            }
+            List<Entrada> todas = new ArrayList<>(recientesPrimero.size() + tamanio);
+            Set<Long> ids = new HashSet<>();
+            for (Entrada entrada : recientesPrimero) {
+                if (ids.add(entrada.id())) {
+                    todas.add(entrada);
+                }
+            }
+            for (int i = 0; i < tamanio; i++) {
+                Entrada entrada = entradas[(inicio + i) % entradas.length];
+                if (ids.add(entrada.id())) {
+                    todas.add(entrada);
+                }
+            }
+            todas.sort(Comparator.comparingLong(Entrada::id));
+
+            inicio = 0;
+            tamanio = 0;
+            for (Entrada entrada : todas.subList(Math.max(0, todas.size() - entradas.length), todas.size())) {
+                entradas[tamanio++] = entrada;
+            }
+            completo = true;
+        }
+
+        synchronized List<RawValue> ultimos(int limite) {
+            int n = Math.min(limite, tamanio);
+            List<RawValue> resultado = new ArrayList<>(n);
+            for (int i = tamanio - n; i < tamanio; i++) {
+                resultado.add(entradas[(inicio + i) % entradas.length].raw());
+            }
+            return resultado;
+        }
+    }
+}
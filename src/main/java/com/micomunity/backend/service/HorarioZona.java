@@ -0,0 +1,300 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.model.BloqueoZona;
+import com.micomunity.backend.model.VentanaSorteo;
+import com.micomunity.backend.model.ZonaComun;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Horario de reservas compilado de una zona común: la rejilla de franjas, los bloqueos
+ * (cierres en fechas concretas y mantenimientos semanales) expresados en minutos desde
+ * medianoche y las ventanas de sorteo pendientes de resolver.
+ *
+ * Es inmutable y se comparte entre hilos (ver HorarioZonaService). Las consultas recorren
+ * arrays de enteros y no reservan memoria.
+ */
+public final class HorarioZona {
+
+    public static final LocalTime APERTURA_POR_DEFECTO = LocalTime.of(8, 0);
+    public static final LocalTime CIERRE_POR_DEFECTO = LocalTime.of(22, 0);
+    public static final int DURACION_FRANJA_POR_DEFECTO = 120;
+    public static final int DURACION_FRANJA_MINIMA = 15;
+
+    // Las máscaras de ocupación son long: una zona admite como mucho 64 franjas al día
+    public static final int MAX_FRANJAS = 64;
+
+    private static final Tramo[] SIN_TRAMOS = new Tramo[0];
+    private static final Sorteo[] SIN_SORTEOS = new Sorteo[0];
+
+    private final int apertura;
+    private final int cierre;
+    private final int capacidad;
+    private final int[] inicios;
+    private final int[] fines;
+    private final LocalTime[] horasInicio;
+    private final LocalTime[] horasFin;
+    private final List<String> etiquetas;
+
+    // Ventanas de mantenimiento por día de la semana (índice DayOfWeek.ordinal())
+    private final Tramo[][] mantenimientos;
+
+    // Cierres por fecha concreta
+    private final Map<LocalDate, Tramo[]> cierres;
+
+    // Ventanas de sorteo sin resolver
+    private final Sorteo[] sorteos;
+
+    private HorarioZona(int apertura, int cierre, int duracion, int capacidad,
+                        Tramo[][] mantenimientos, Map<LocalDate, Tramo[]> cierres, Sorteo[] sorteos) {
+        this.apertura = apertura;
+        this.cierre = cierre;
+        this.capacidad = capacidad;
+        int numFranjas = (cierre - apertura + duracion - 1) / duracion;
+        this.inicios = new int[numFranjas];
+        this.fines = new int[numFranjas];
+        this.horasInicio = new LocalTime[numFranjas];
+        this.horasFin = new LocalTime[numFranjas];
+        List<String> textos = new ArrayList<>(numFranjas);
+        for (int i = 0; i < numFranjas; i++) {
+            inicios[i] = apertura + i * duracion;
+            // La última franja se recorta al cierre si la duración no encaja exactamente
+            fines[i] = Math.min(inicios[i] + duracion, cierre);
+            horasInicio[i] = aHora(inicios[i]);
+            horasFin[i] = aHora(fines[i]);
+            textos.add(horasInicio[i].toString());
+        }
+        this.etiquetas = Collections.unmodifiableList(textos);
+        this.mantenimientos = mantenimientos;
+        this.cierres = cierres;
+        this.sorteos = sorteos;
+    }
+
+    /**
+     * Compila el horario de la zona con sus bloqueos vigentes y sus ventanas de sorteo pendientes
+     */
+    public static HorarioZona compilar(ZonaComun zona, List<BloqueoZona> bloqueos, List<VentanaSorteo> ventanas) {
+        LocalTime horaApertura = zona.getHoraApertura() != null ? zona.getHoraApertura() : APERTURA_POR_DEFECTO;
+        LocalTime horaCierre = zona.getHoraCierre() != null ? zona.getHoraCierre() : CIERRE_POR_DEFECTO;
+        int duracion = zona.getDuracionFranjaMinutos() != null
+                ? zona.getDuracionFranjaMinutos() : DURACION_FRANJA_POR_DEFECTO;
+        validar(horaApertura, horaCierre, duracion);
+        int capacidad = zona.getCapacidad() != null ? Math.max(1, zona.getCapacidad()) : 1;
+
+        List<List<Tramo>> porDia = new ArrayList<>();
+        for (int i = 0; i < DayOfWeek.values().length; i++) {
+            porDia.add(new ArrayList<>());
+        }
+        Map<LocalDate, List<Tramo>> porFecha = new HashMap<>();
+
+        for (BloqueoZona bloqueo : bloqueos) {
+            int inicio = bloqueo.getHoraInicio() != null ? minutos(bloqueo.getHoraInicio()) : 0;
+            int fin = bloqueo.getHoraFin() != null ? minutos(bloqueo.getHoraFin()) : 24 * 60;
+            String motivo = bloqueo.getMotivo() != null && !bloqueo.getMotivo().isBlank()
+                    ? bloqueo.getMotivo() : "Zona no disponible";
+            Tramo tramo = new Tramo(inicio, fin, motivo);
+            if (bloqueo.getFecha() != null) {
+                porFecha.computeIfAbsent(bloqueo.getFecha(), f -> new ArrayList<>()).add(tramo);
+            } else if (bloqueo.getDiaSemana() != null) {
+                porDia.get(bloqueo.getDiaSemana().ordinal()).add(tramo);
+            }
+        }
+
+        Tramo[][] mantenimientos = new Tramo[porDia.size()][];
+        for (int i = 0; i < porDia.size(); i++) {
+            mantenimientos[i] = porDia.get(i).isEmpty() ? SIN_TRAMOS : porDia.get(i).toArray(SIN_TRAMOS);
+        }
+        Map<LocalDate, Tramo[]> cierres = new HashMap<>();
+        porFecha.forEach((fecha, tramos) -> cierres.put(fecha, tramos.toArray(SIN_TRAMOS)));
+
+        Sorteo[] sorteos = ventanas.isEmpty() ? SIN_SORTEOS : ventanas.stream()
+                .map(v -> new Sorteo(v.getId(), v.getFechaDesde(), v.getFechaHasta(), v.getApertura(), v.getCierre()))
+                .toArray(Sorteo[]::new);
+
+        return new HorarioZona(minutos(horaApertura), minutos(horaCierre), duracion, capacidad,
+                mantenimientos, Map.copyOf(cierres), sorteos);
+    }
+
+    /**
+     * Comprueba que un horario es válido y cabe en una máscara de ocupación
+     */
+    public static void validar(LocalTime horaApertura, LocalTime horaCierre, int duracionFranjaMinutos) {
+        if (!horaCierre.isAfter(horaApertura)) {
+            throw new RuntimeException("La hora de cierre debe ser posterior a la hora de apertura");
+        }
+        if (duracionFranjaMinutos < DURACION_FRANJA_MINIMA) {
+            throw new RuntimeException("La duración de la franja debe ser de al menos " +
+                    DURACION_FRANJA_MINIMA + " minutos");
+        }
+        int abierto = minutos(horaCierre) - minutos(horaApertura);
+        if ((abierto + duracionFranjaMinutos - 1) / duracionFranjaMinutos > MAX_FRANJAS) {
+            throw new RuntimeException("El horario no puede tener más de " + MAX_FRANJAS + " franjas al día");
+        }
+    }
+
+    public static int minutos(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    private static LocalTime aHora(int minutos) {
+        return minutos >= 24 * 60 ? LocalTime.MAX : LocalTime.of(minutos / 60, minutos % 60);
+    }
+
+    public int numFranjas() {
+        return inicios.length;
+    }
+
+    public int inicioFranja(int franja) {
+        return inicios[franja];
+    }
+
+    public int finFranja(int franja) {
+        return fines[franja];
+    }
+
+    public LocalTime horaInicioFranja(int franja) {
+        return horasInicio[franja];
+    }
+
+    public LocalTime horaFinFranja(int franja) {
+        return horasFin[franja];
+    }
+
+    /**
+     * Hora de inicio de cada franja ("HH:mm"), en orden
+     */
+    public List<String> etiquetas() {
+        return etiquetas;
+    }
+
+    /**
+     * Personas que pueden reservar a la vez una misma franja
+     */
+    public int capacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Indica si la zona admite varias reservas por franja (contadores de plazas en lugar de exclusión)
+     */
+    public boolean conPlazas() {
+        return capacidad > 1;
+    }
+
+    public LocalTime horaApertura() {
+        return aHora(apertura);
+    }
+
+    public LocalTime horaCierre() {
+        return aHora(cierre);
+    }
+
+    /**
+     * Indica si el intervalo [inicio, fin) en minutos cae dentro del horario de apertura
+     */
+    public boolean dentroDeHorario(int inicio, int fin) {
+        return inicio >= apertura && fin <= cierre && inicio < fin;
+    }
+
+    /**
+     * Motivo del primer bloqueo que se solapa con [inicio, fin) en la fecha, o null si no hay
+     */
+    public String motivoBloqueo(LocalDate fecha, int inicio, int fin) {
+        Tramo[] delDia = cierres.get(fecha);
+        if (delDia != null) {
+            String motivo = solapado(delDia, inicio, fin);
+            if (motivo != null) {
+                return motivo;
+            }
+        }
+        return solapado(mantenimientos[fecha.getDayOfWeek().ordinal()], inicio, fin);
+    }
+
+    /**
+     * Ventana de sorteo pendiente que cubre la fecha, o null si la fecha se reserva directamente
+     */
+    public Sorteo sorteo(LocalDate fecha) {
+        for (Sorteo sorteo : sorteos) {
+            if (!fecha.isBefore(sorteo.fechaDesde()) && !fecha.isAfter(sorteo.fechaHasta())) {
+                return sorteo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bits de las franjas que se solapan con el intervalo [inicio, fin) en minutos
+     */
+    public long mascaraDeIntervalo(int inicio, int fin) {
+        long mascara = 0L;
+        for (int i = 0; i < inicios.length; i++) {
+            if (inicio < fines[i] && fin > inicios[i]) {
+                mascara |= 1L << i;
+            }
+        }
+        return mascara;
+    }
+
+    public long mascaraDeIntervalo(LocalTime horaInicio, LocalTime horaFin) {
+        return mascaraDeIntervalo(minutos(horaInicio), minutos(horaFin));
+    }
+
+    /**
+     * Bits de las franjas bloqueadas en la fecha por cierres o mantenimientos
+     */
+    public long mascaraBloqueada(LocalDate fecha) {
+        long mascara = 0L;
+        Tramo[] delDia = cierres.get(fecha);
+        if (delDia != null) {
+            for (Tramo tramo : delDia) {
+                mascara |= mascaraDeIntervalo(tramo.inicio(), tramo.fin());
+            }
+        }
+        for (Tramo tramo : mantenimientos[fecha.getDayOfWeek().ordinal()]) {
+            mascara |= mascaraDeIntervalo(tramo.inicio(), tramo.fin());
+        }
+        return mascara;
+    }
+
+    public static boolean estaOcupada(long mascara, int franja) {
+        return (mascara & (1L << franja)) != 0;
+    }
+
+    private static String solapado(Tramo[] tramos, int inicio, int fin) {
+        for (Tramo tramo : tramos) {
+            if (inicio < tramo.fin() && fin > tramo.inicio()) {
+                return tramo.motivo();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "HorarioZona[" + horaApertura() + "-" + horaCierre() + ", franjas=" + numFranjas() +
+                ", capacidad=" + capacidad +
+                ", mantenimientos=" + Arrays.stream(mantenimientos).mapToInt(t -> t.length).sum() +
+                ", cierres=" + cierres.size() + ", sorteos=" + sorteos.length + "]";
+    }
+
+    private record Tramo(int inicio, int fin, String motivo) {
+    }
+
+    public record Sorteo(UUID ventanaId, LocalDate fechaDesde, LocalDate fechaHasta,
+                         LocalDateTime apertura, LocalDateTime cierre) {
+
+        public boolean admiteSolicitudes(LocalDateTime ahora) {
+            return !ahora.isBefore(apertura) && ahora.isBefore(cierre);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.HorarioZonaModificadoEvent;
+import com.micomunity.backend.model.ZonaComun;
+import com.micomunity.backend.repository.BloqueoZonaRepository;
+import com.micomunity.backend.repository.VentanaSorteoRepository;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de horarios compilados por zona común (ver HorarioZona).
+ *
+ * Cada horario se compila la primera vez que se consulta y se descarta tras el commit
+ * de cualquier cambio de horario, bloqueos o ventanas de sorteo de la zona. Un horario
+ * compilado antes de una invalidación nunca sustituye a la invalidación. Con varios
+ * nodos, el refresco periódico acota el tiempo que un nodo puede servir un horario
+ * modificado en otro.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HorarioZonaService {
+
+    private final ZonaComunRepository zonaComunRepository;
+    private final BloqueoZonaRepository bloqueoZonaRepository;
+    private final VentanaSorteoRepository ventanaSorteoRepository;
+
+    private final ConcurrentHashMap<UUID, HorarioZona> horarios = new ConcurrentHashMap<>();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public HorarioZona obtenerHorario(ZonaComun zona) {
+        HorarioZona horario = horarios.get(zona.getId());
+        if (horario != null) {
+            return horario;
+        }
+
+        long generacion = invalidaciones.get();
+        HorarioZona compilado = HorarioZona.compilar(zona,
+                bloqueoZonaRepository.findVigentesByZona(zona.getId(), LocalDate.now()),
+                ventanaSorteoRepository.findPendientesByZona(zona.getId()));
+        HorarioZona guardado = horarios.compute(zona.getId(), (id, actual) -> {
+            if (actual != null) {
+                return actual;
+            }
+            // Si hubo una invalidación durante la compilación se usa el resultado sin guardarlo
+            return invalidaciones.get() == generacion ? compilado : null;
+        });
+        return guardado != null ? guardado : compilado;
+    }
+
+    public HorarioZona obtenerHorario(UUID zonaId) {
+        HorarioZona horario = horarios.get(zonaId);
+        if (horario != null) {
+            return horario;
+        }
+        ZonaComun zona = zonaComunRepository.findById(zonaId)
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada"));
+        return obtenerHorario(zona);
+    }
+
+    public void invalidar(UUID zonaId) {
+        horarios.compute(zonaId, (id, actual) -> {
+            invalidaciones.incrementAndGet();
+            return null;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onHorarioZonaModificado(HorarioZonaModificadoEvent event) {
+        invalidar(event.getZonaComunId());
+        log.debug("Horario de la zona {} invalidado", event.getZonaComunId());
+    }
+
+    @Scheduled(fixedDelayString = "${reservas.horarios.refresco-ms:300000}")
+    public void refrescar() {
+        invalidaciones.incrementAndGet();
+        horarios.clear();
+    }
+}
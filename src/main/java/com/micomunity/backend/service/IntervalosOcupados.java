@@ -0,0 +1,107 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.repository.ReservaRepository;
+
+import java.util.List;
+
+/**
+ * Intervalos reservados de una zona en un día, en minutos desde medianoche.
+ *
+ * Se guardan ordenados por inicio junto con el máximo acumulado de los fines, de modo
+ * que saber si un intervalo [a, b) se solapa con alguna reserva es una búsqueda binaria
+ * sin reservar memoria, sea cual sea la duración de las reservas. En las zonas con
+ * capacidad, contar cuántas reservas se solapan recorre solo las que empiezan antes del
+ * fin del intervalo. Es inmutable.
+ */
+public final class IntervalosOcupados {
+
+    public static final IntervalosOcupados VACIO = new IntervalosOcupados(new int[0], new int[0], new int[0]);
+
+    private final int[] inicios;
+    private final int[] fines;
+    private final int[] finMaximo;
+
+    private IntervalosOcupados(int[] inicios, int[] fines, int[] finMaximo) {
+        this.inicios = inicios;
+        this.fines = fines;
+        this.finMaximo = finMaximo;
+    }
+
+    /**
+     * Construye los intervalos a partir de las franjas ocupadas ordenadas por hora de inicio
+     */
+    public static IntervalosOcupados de(List<ReservaRepository.FranjaOcupada> ocupadas) {
+        if (ocupadas.isEmpty()) {
+            return VACIO;
+        }
+        int[] inicios = new int[ocupadas.size()];
+        int[] fines = new int[ocupadas.size()];
+        int[] finMaximo = new int[ocupadas.size()];
+        int maximo = 0;
+        for (int i = 0; i < ocupadas.size(); i++) {
+            ReservaRepository.FranjaOcupada ocupada = ocupadas.get(i);
+            inicios[i] = HorarioZona.minutos(ocupada.getHoraInicio());
+            fines[i] = HorarioZona.minutos(ocupada.getHoraFin());
+            maximo = Math.max(maximo, fines[i]);
+            finMaximo[i] = maximo;
+        }
+        return new IntervalosOcupados(inicios, fines, finMaximo);
+    }
+
+    /**
+     * Indica si alguna reserva se solapa con [inicio, fin)
+     */
+    public boolean solapa(int inicio, int fin) {
+        // Reservas que empiezan antes de fin: prefijo [0, k)
+        int k = primeroNoMenorQue(fin);
+        return k > 0 && finMaximo[k - 1] > inicio;
+    }
+
+    /**
+     * Número de reservas que se solapan con [inicio, fin)
+     */
+    public int contar(int inicio, int fin) {
+        int k = primeroNoMenorQue(fin);
+        if (k == 0 || finMaximo[k - 1] <= inicio) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < k; i++) {
+            if (fines[i] > inicio) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Bits de las franjas del horario que se solapan con alguna reserva
+     */
+    public long mascara(HorarioZona horario) {
+        long mascara = 0L;
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            if (solapa(horario.inicioFranja(i), horario.finFranja(i))) {
+                mascara |= 1L << i;
+            }
+        }
+        return mascara;
+    }
+
+    public int size() {
+        return inicios.length;
+    }
+
+    private int primeroNoMenorQue(int valor) {
+        int bajo = 0;
+        int alto = inicios.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (inicios[medio] < valor) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
@@ -0,0 +1,223 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.ListaEsperaResponse;
+import com.micomunity.backend.dto.ReservaRequest;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.event.ReservaPromovidaEvent;
+import com.micomunity.backend.model.*;
+import com.micomunity.backend.repository.ListaEsperaReservaRepository;
+import com.micomunity.backend.repository.ReservaRepository;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Lista de espera de franjas ya reservadas.
+ *
+ * Cuando se confirma una cancelación, en el ejecutor de eventos y con el mismo bloqueo
+ * de (zona, fecha) que usan las altas, se recorren por orden de llegada las peticiones
+ * que se solapan con el intervalo liberado y se convierten en reserva las que caben y
+ * respetan el límite por zona. Cada usuario promovido recibe un aviso por WebSocket.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ListaEsperaService {
+
+    private final ListaEsperaReservaRepository listaEsperaRepository;
+    private final ReservaRepository reservaRepository;
+    private final ZonaComunRepository zonaComunRepository;
+    private final HorarioZonaService horarioZonaService;
+    private final PlazasService plazasService;
+    private final CupoReservasService cupoReservasService;
+    private final ReservaLockManager reservaLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public ListaEsperaResponse apuntarse(User user, ReservaRequest request) {
+        log.info("Usuario {} apuntándose a la lista de espera de zona {} el {}",
+                user.getEmail(), request.getZonaComunId(), request.getFecha());
+        
+        if (user.getRole() != Role.VECINO && user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo los vecinos y el presidente pueden realizar reservas");
+        }
+        if (!request.getHoraFin().isAfter(request.getHoraInicio())) {
+            throw new RuntimeException("La hora de fin debe ser posterior a la hora de inicio");
+        }
+        if (LocalDateTime.of(request.getFecha(), request.getHoraInicio()).isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("No se pueden realizar reservas en fechas u horas pasadas");
+        }
+
+        ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(request.getZonaComunId(), user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        if (horario.sorteo(request.getFecha()) != null) {
+            throw new RuntimeException("Las reservas de esta zona para esa fecha se asignan por sorteo");
+        }
+        int inicio = HorarioZona.minutos(request.getHoraInicio());
+        int fin = HorarioZona.minutos(request.getHoraFin());
+        if (!horario.dentroDeHorario(inicio, fin)) {
+            throw new RuntimeException("La reserva debe estar dentro del horario de la zona común (" +
+                    horario.horaApertura() + " - " + horario.horaCierre() + ")");
+        }
+        String motivoBloqueo = horario.motivoBloqueo(request.getFecha(), inicio, fin);
+        if (motivoBloqueo != null) {
+            throw new RuntimeException("La zona común no está disponible en ese horario: " + motivoBloqueo);
+        }
+
+        boolean libre = horario.conPlazas()
+                ? plazasService.hayPlazas(zonaComun.getId(), horario, request.getFecha(),
+                        request.getHoraInicio(), request.getHoraFin())
+                : reservaRepository.findConflictingReservations(zonaComun, request.getFecha(),
+                        request.getHoraInicio(), request.getHoraFin()).isEmpty();
+        if (libre) {
+            throw new RuntimeException("La franja está libre, puedes reservarla directamente");
+        }
+        if (listaEsperaRepository.existsEnEspera(user, zonaComun, request.getFecha(),
+                request.getHoraInicio(), request.getHoraFin())) {
+            throw new RuntimeException("Ya estás en la lista de espera de esa franja");
+        }
+
+        ListaEsperaReserva espera = listaEsperaRepository.save(new ListaEsperaReserva(zonaComun, user,
+                request.getFecha(), request.getHoraInicio(), request.getHoraFin()));
+        int anteriores = listaEsperaRepository.countAnteriores(zonaComun, espera.getFecha(),
+                espera.getHoraInicio(), espera.getHoraFin(), espera.getFechaCreacion());
+
+        ListaEsperaResponse response = convertToResponse(espera, zonaComun);
+        response.setPosicion(anteriores + 1);
+        return response;
+    }
+
+    @Transactional
+    public void abandonar(User user, UUID esperaId) {
+        log.info("Usuario {} saliendo de la lista de espera {}", user.getEmail(), esperaId);
+        
+        ListaEsperaReserva espera = listaEsperaRepository.findByIdAndUsuario(esperaId, user)
+                .orElseThrow(() -> new RuntimeException("Petición de lista de espera no encontrada o no te pertenece"));
+        if (espera.getEstado() != EstadoListaEspera.EN_ESPERA) {
+            throw new RuntimeException("La petición ya no está en lista de espera");
+        }
+        espera.setEstado(EstadoListaEspera.CANCELADA);
+        listaEsperaRepository.save(espera);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ListaEsperaResponse> obtenerMisEsperas(User user) {
+        return listaEsperaRepository.findByUsuarioDesde(user, LocalDate.now()).stream()
+                .map(espera -> convertToResponse(espera, espera.getZonaComun()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Intenta promover la lista de espera del intervalo liberado una vez confirmada la cancelación.
+     */
+    @Async("reservasEventosExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        if (event.getTipo() != ReservaModificadaEvent.Tipo.CANCELADA) {
+            return;
+        }
+        try {
+            int promovidas = reservaLockManager.conBloqueo(event.getZonaComunId(), event.getFecha(),
+                    () -> transactionTemplate.execute(status -> promoverEnTransaccion(event)));
+            if (promovidas > 0) {
+                log.info("Promovidas {} peticiones de la lista de espera de zona {} el {}",
+                        promovidas, event.getZonaComunId(), event.getFecha());
+            }
+        } catch (Exception e) {
+            log.error("Error al promover la lista de espera de zona {} el {}: {}",
+                    event.getZonaComunId(), event.getFecha(), e.getMessage(), e);
+        }
+    }
+
+    private int promoverEnTransaccion(ReservaModificadaEvent event) {
+        ZonaComun zonaComun = zonaComunRepository.findById(event.getZonaComunId()).orElse(null);
+        if (zonaComun == null) {
+            return 0;
+        }
+        List<ListaEsperaReserva> candidatos = listaEsperaRepository.findCandidatosPromocion(
+                zonaComun, event.getFecha(), event.getHoraInicio(), event.getHoraFin());
+        if (candidatos.isEmpty()) {
+            return 0;
+        }
+
+        // Misma exclusión entre nodos que las altas
+        reservaRepository.bloquearZonaFecha(ReservaLockManager.claveAdvisory(zonaComun.getId(), event.getFecha()));
+
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        LocalDateTime ahora = LocalDateTime.now();
+        int promovidas = 0;
+
+        for (ListaEsperaReserva espera : candidatos) {
+            User usuario = espera.getUsuario();
+            if (LocalDateTime.of(espera.getFecha(), espera.getHoraInicio()).isBefore(ahora)
+                    || !Objects.equals(usuario.getCommunity().getId(), zonaComun.getCommunity().getId())) {
+                espera.setEstado(EstadoListaEspera.CADUCADA);
+                continue;
+            }
+            int inicio = HorarioZona.minutos(espera.getHoraInicio());
+            int fin = HorarioZona.minutos(espera.getHoraFin());
+            if (!horario.dentroDeHorario(inicio, fin) || horario.motivoBloqueo(espera.getFecha(), inicio, fin) != null) {
+                continue;
+            }
+            // La consulta vacía la sesión antes de ejecutarse, así que ve las promociones anteriores del bucle
+            if (!horario.conPlazas() && !reservaRepository.findConflictingReservations(zonaComun, espera.getFecha(),
+                    espera.getHoraInicio(), espera.getHoraFin()).isEmpty()) {
+                continue;
+            }
+            if (cupoReservasService.reservar(usuario.getId(), zonaComun.getId(), espera.getFecha()) != null) {
+                continue;
+            }
+            // En las zonas con capacidad la plaza se ocupa en último lugar, cuando ya no hay más comprobaciones
+            if (horario.conPlazas() && !plazasService.ocupar(zonaComun.getId(), horario, espera.getFecha(),
+                    espera.getHoraInicio(), espera.getHoraFin())) {
+                cupoReservasService.devolver(usuario.getId(), zonaComun.getId(), espera.getFecha());
+                continue;
+            }
+
+            Reserva reserva = reservaRepository.save(new Reserva(zonaComun, usuario, espera.getFecha(),
+                    espera.getHoraInicio(), espera.getHoraFin()));
+            espera.setEstado(EstadoListaEspera.PROMOVIDA);
+            espera.setReservaId(reserva.getId());
+            promovidas++;
+
+            eventPublisher.publishEvent(ReservaModificadaEvent.creada(reserva));
+            eventPublisher.publishEvent(new ReservaPromovidaEvent(usuario.getId(), reserva.getId(),
+                    zonaComun.getId(), zonaComun.getNombre(), reserva.getFecha(),
+                    reserva.getHoraInicio(), reserva.getHoraFin()));
+        }
+        return promovidas;
+    }
+
+    private ListaEsperaResponse convertToResponse(ListaEsperaReserva espera, ZonaComun zonaComun) {
+        return new ListaEsperaResponse(
+                espera.getId(),
+                zonaComun.getId(),
+                zonaComun.getNombre(),
+                espera.getFecha(),
+                espera.getHoraInicio(),
+                espera.getHoraFin(),
+                espera.getEstado(),
+                espera.getFechaCreacion(),
+                espera.getReservaId(),
+                null
+        );
+    }
+}
@@ -0,0 +1,253 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.model.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura diferida de los mensajes del chat.
+ *
+ * Los mensajes llegan ya con id y timestamp (ver GeneradorIdsChat), se difunden en el
+ * acto y quedan en una cola acotada. Un hilo propio los guarda con INSERT en lote
+ * cuando reúne chat.persistencia.lote-max mensajes o cuando han pasado
+ * chat.persistencia.ventana-ms desde el primero del lote. Si el proceso cae, se pierde
+ * como mucho lo recibido en esa ventana. Al parar la aplicación se vacía la cola antes
+ * de que se cierre el DataSource, esperando como mucho chat.persistencia.espera-parada-ms.
+ * Si la cola se llena, el mensaje se guarda en el hilo del llamante.
+ *
+ * Los errores transitorios se reintentan; si un lote viola una restricción (p. ej. un id
+ * repetido por dos nodos con el mismo chat.mensajes.nodo), se guarda fila a fila y se
+ * descartan, con un error en el log, las filas que no se pueden guardar.
+ *
+ * Un mensaje que se elimina antes de guardarse se descarta de la cola (ver descartar);
+ * si su lote ya se está escribiendo, se espera a que termine para poder borrarlo.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PersistenciaChatService {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO chat_messages (id, contenido, timestamp, usuario_nombre, ip_origen, community_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final long ESPERA_REINTENTO_MS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${chat.persistencia.lote-max:200}")
+    private int loteMax;
+
+    @Value("${chat.persistencia.ventana-ms:100}")
+    private long ventanaMs;
+
+    @Value("${chat.persistencia.capacidad:50000}")
+    private int capacidad;
+
+    @Value("${chat.persistencia.espera-parada-ms:30000}")
+    private long esperaParadaMs;
+
+    private BlockingQueue<ChatMessage> pendientes;
+
+    // Mensajes encolados que el escritor aún no ha tomado para un lote, por id
+    private final Map<Long, ChatMessage> enCola = new ConcurrentHashMap<>();
+    // Los tres siguientes, protegidos por el monitor de "estado"
+    private final Object estado = new Object();
+    private final Set<Long> descartados = new HashSet<>();
+    private final Set<Long> escribiendo = new HashSet<>();
+    private Thread escritor;
+    private volatile boolean parando;
+
+    @PostConstruct
+    void arrancar() {
+        pendientes = new ArrayBlockingQueue<>(capacidad);
+        escritor = new Thread(this::escribirEnLotes, "chat-persistencia");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Encola un mensaje para guardarlo en el siguiente lote
+     */
+    public void guardar(ChatMessage mensaje) {
+        enCola.put(mensaje.getId(), mensaje);
+        if (!parando && pendientes.offer(mensaje)) {
+            return;
+        }
+        enCola.remove(mensaje.getId());
+        log.warn("Cola de persistencia del chat llena o parada, se guarda el mensaje {} directamente", mensaje.getId());
+        insertar(List.of(mensaje));
+    }
+
+    /**
+     * Descarta un mensaje que aún no se ha guardado y lo devuelve. Si no está pendiente
+     * devuelve vacío; si su lote se está escribiendo, antes espera a que termine, de modo
+     * que después se puede borrar de la base de datos.
+     */
+    public Optional<ChatMessage> descartar(Long id) {
+        synchronized (estado) {
+            ChatMessage mensaje = enCola.get(id);
+            if (mensaje != null) {
+                descartados.add(id);
+                return Optional.of(mensaje);
+            }
+            while (escribiendo.contains(id)) {
+                try {
+                    estado.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Mensajes a la espera de guardarse
+     */
+    public int pendientes() {
+        return pendientes.size();
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        parando = true;
+        escritor.interrupt();
+        escritor.join(esperaParadaMs);
+        if (escritor.isAlive()) {
+            // No se escribe en paralelo con el escritor: lo que le quede se pierde
+            log.error("La persistencia del chat no terminó en {} ms; quedan {} mensajes sin guardar",
+                    esperaParadaMs, pendientes.size());
+            return;
+        }
+        // Lo que quede (p. ej. si el escritor terminó por un error) se guarda aquí
+        List<ChatMessage> resto = new ArrayList<>();
+        pendientes.drainTo(resto);
+        tomarLote(resto);
+        if (!resto.isEmpty()) {
+            insertar(resto);
+        }
+        terminarLote(resto);
+        log.info("Persistencia del chat detenida");
+    }
+
+    private void escribirEnLotes() {
+        List<ChatMessage> lote = new ArrayList<>(loteMax);
+        while (!parando || !pendientes.isEmpty()) {
+            try {
+                ChatMessage primero = parando ? pendientes.poll() : pendientes.take();
+                if (primero == null) {
+                    break;
+                }
+                lote.add(primero);
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+                while (lote.size() < loteMax && !parando) {
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        break;
+                    }
+                    ChatMessage siguiente = pendientes.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                    pendientes.drainTo(lote, loteMax - lote.size());
+                }
+            } catch (InterruptedException e) {
+                // Parada: se guarda lo reunido y se vacía la cola en los lotes siguientes
+            }
+            tomarLote(lote);
+            if (!lote.isEmpty()) {
+                guardarConReintentos(lote);
+                terminarLote(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    // Quita del lote los mensajes descartados y marca el resto como en escritura
+    private void tomarLote(List<ChatMessage> lote) {
+        synchronized (estado) {
+            lote.removeIf(mensaje -> descartados.remove(mensaje.getId()));
+            for (ChatMessage mensaje : lote) {
+                enCola.remove(mensaje.getId());
+                escribiendo.add(mensaje.getId());
+            }
+        }
+    }
+
+    private void terminarLote(List<ChatMessage> lote) {
+        synchronized (estado) {
+            for (ChatMessage mensaje : lote) {
+                escribiendo.remove(mensaje.getId());
+            }
+            estado.notifyAll();
+        }
+    }
+
+    private void guardarConReintentos(List<ChatMessage> lote) {
+        while (true) {
+            try {
+                insertar(lote);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Reintentar no lo arregla: se separan las filas válidas de las que no lo son
+                if (lote.size() == 1) {
+                    log.error("Mensaje de chat {} descartado, no se puede guardar: {}",
+                            lote.get(0).getId(), e.getMostSpecificCause().getMessage());
+                    return;
+                }
+                log.warn("Lote de {} mensajes de chat rechazado, se guarda fila a fila: {}",
+                        lote.size(), e.getMostSpecificCause().getMessage());
+                for (ChatMessage mensaje : lote) {
+                    guardarConReintentos(List.of(mensaje));
+                }
+                return;
+            } catch (Exception e) {
+                log.error("Error al guardar {} mensajes de chat, se reintentará: {}", lote.size(), e.getMessage());
+                if (parando) {
+                    return;
+                }
+                try {
+                    Thread.sleep(ESPERA_REINTENTO_MS);
+                } catch (InterruptedException ie) {
+                    // Parada durante la espera: último intento en la siguiente vuelta
+                }
+            }
+        }
+    }
+
+    private void insertar(List<ChatMessage> mensajes) {
+        List<Object[]> filas = new ArrayList<>(mensajes.size());
+        for (ChatMessage mensaje : mensajes) {
+            filas.add(new Object[]{
+                    mensaje.getId(),
+                    mensaje.getContenido(),
+                    Timestamp.valueOf(mensaje.getTimestamp()),
+                    mensaje.getUsuarioNombre(),
+                    mensaje.getIpOrigen(),
+                    mensaje.getCommunityId()
+            });
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, filas);
+        log.debug("Guardado lote de {} mensajes de chat", mensajes.size());
+    }
+}
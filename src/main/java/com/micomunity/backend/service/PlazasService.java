@@ -0,0 +1,258 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.HorarioZonaModificadoEvent;
+import com.micomunity.backend.repository.ReservaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Plazas ocupadas por franja en las zonas con capacidad mayor que uno (gimnasio,
+ * coworking...), donde varias reservas pueden coincidir en una franja.
+ *
+ * Cada (zona, fecha) tiene en memoria un array de contadores atómicos, uno por franja
+ * del horario, que permite rechazar sin ir a la base de datos las reservas de franjas
+ * llenas y servir las plazas libres. La garantía la da la tabla ocupacion_franjas: cada
+ * reserva incrementa con un UPDATE condicionado (ocupadas < capacidad) las filas de sus
+ * franjas, que tienen además una restricción CHECK. Las filas se crean la primera vez
+ * que se reserva una franja contando las reservas activas que se solapan con ella.
+ *
+ * Los métodos que escriben deben llamarse dentro de la transacción de la reserva y con
+ * el bloqueo de (zona, fecha) tomado, igual que las altas de zonas de uso exclusivo.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PlazasService {
+
+    private static final String SQL_CREAR_FILA =
+            "INSERT INTO ocupacion_franjas (zona_comun_id, fecha, franja_inicio, ocupadas, capacidad) " +
+            "SELECT ?, ?, ?, COUNT(*), GREATEST(?, COUNT(*)) FROM reservas r " +
+            "WHERE r.zona_comun_id = ? AND r.fecha = ? AND r.estado = 'ACTIVA' " +
+            "AND r.hora_inicio < ? AND r.hora_fin > ? " +
+            "ON CONFLICT (zona_comun_id, fecha, franja_inicio) DO NOTHING";
+
+    private static final String SQL_OCUPAR =
+            "UPDATE ocupacion_franjas SET ocupadas = ocupadas + 1 " +
+            "WHERE zona_comun_id = ? AND fecha = ? AND franja_inicio = ? AND ocupadas < capacidad";
+
+    private static final String SQL_LIBERAR =
+            "UPDATE ocupacion_franjas SET ocupadas = ocupadas - 1 " +
+            "WHERE zona_comun_id = ? AND fecha = ? AND franja_inicio = ? AND ocupadas > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReservaRepository reservaRepository;
+
+    private final ConcurrentHashMap<ClaveDia, AtomicIntegerArray> contadores = new ConcurrentHashMap<>();
+
+    @Value("${reservas.disponibilidad.max-entradas:20000}")
+    private int maxEntradas;
+
+    /**
+     * Ocupa una plaza en cada franja que toca el intervalo. Devuelve false, sin ocupar
+     * nada, si alguna franja está llena. Si la transacción no llega a confirmarse, las
+     * plazas en memoria se devuelven solas.
+     */
+    public boolean ocupar(UUID zonaId, HorarioZona horario, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        long mascara = horario.mascaraDeIntervalo(horaInicio, horaFin);
+        ClaveDia clave = new ClaveDia(zonaId, fecha);
+
+        AtomicIntegerArray ocupadas = contadores(clave, horario);
+        if (!intentarOcupar(ocupadas, mascara, horario.capacidad())) {
+            // Puede que la memoria no refleje una cancelación hecha en otro nodo: se recarga una vez
+            contadores.remove(clave);
+            ocupadas = contadores(clave, horario);
+            if (!intentarOcupar(ocupadas, mascara, horario.capacidad())) {
+                return false;
+            }
+        }
+
+        if (!ocuparEnBaseDeDatos(zonaId, horario, fecha, mascara)) {
+            // La base de datos manda: la memoria estaba desfasada (p. ej. reservas de otro nodo)
+            liberarEnMemoria(ocupadas, mascara);
+            contadores.remove(clave);
+            return false;
+        }
+
+        AtomicIntegerArray reservadas = ocupadas;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    liberarEnMemoria(reservadas, mascara);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Libera la plaza de cada franja que toca el intervalo (cancelación)
+     */
+    public void liberar(UUID zonaId, HorarioZona horario, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        long mascara = horario.mascaraDeIntervalo(horaInicio, horaFin);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            if (HorarioZona.estaOcupada(mascara, i)) {
+                filas.add(new Object[]{zonaId, fecha, horario.horaInicioFranja(i)});
+            }
+        }
+        // Si la fila de una franja aún no existe no hay nada que descontar: se creará contando solo reservas activas
+        jdbcTemplate.batchUpdate(SQL_LIBERAR, filas);
+
+        ClaveDia clave = new ClaveDia(zonaId, fecha);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                AtomicIntegerArray ocupadas = contadores.get(clave);
+                if (ocupadas != null) {
+                    liberarEnMemoria(ocupadas, mascara);
+                }
+            }
+        });
+    }
+
+    /**
+     * Indica si queda al menos una plaza en todas las franjas que toca el intervalo
+     */
+    public boolean hayPlazas(UUID zonaId, HorarioZona horario, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        long mascara = horario.mascaraDeIntervalo(horaInicio, horaFin);
+        AtomicIntegerArray ocupadas = contadores(new ClaveDia(zonaId, fecha), horario);
+        for (int i = 0; i < ocupadas.length(); i++) {
+            if (HorarioZona.estaOcupada(mascara, i) && ocupadas.get(i) >= horario.capacidad()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plazas ocupadas por franja del horario en una fecha (copia)
+     */
+    public int[] obtenerOcupadas(UUID zonaId, HorarioZona horario, LocalDate fecha) {
+        AtomicIntegerArray ocupadas = contadores(new ClaveDia(zonaId, fecha), horario);
+        int[] copia = new int[ocupadas.length()];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = ocupadas.get(i);
+        }
+        return copia;
+    }
+
+    /**
+     * Descarta los contadores futuros de una zona cuando cambia su horario o su capacidad;
+     * se reconstruyen a partir de las reservas la próxima vez que se reserve.
+     */
+    public void reiniciarContadores(UUID zonaId) {
+        jdbcTemplate.update("DELETE FROM ocupacion_franjas WHERE zona_comun_id = ? AND fecha >= ?",
+                zonaId, LocalDate.now());
+    }
+
+    public void eliminarContadores(UUID zonaId) {
+        jdbcTemplate.update("DELETE FROM ocupacion_franjas WHERE zona_comun_id = ?", zonaId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onHorarioZonaModificado(HorarioZonaModificadoEvent event) {
+        contadores.keySet().removeIf(clave -> clave.zonaId().equals(event.getZonaComunId()));
+    }
+
+    @Scheduled(cron = "${reservas.disponibilidad.purga-cron:0 5 0 * * *}")
+    public void purgarFechasPasadas() {
+        LocalDate hoy = LocalDate.now();
+        contadores.keySet().removeIf(clave -> clave.fecha().isBefore(hoy));
+    }
+
+    private AtomicIntegerArray contadores(ClaveDia clave, HorarioZona horario) {
+        AtomicIntegerArray ocupadas = contadores.get(clave);
+        if (ocupadas != null && ocupadas.length() == horario.numFranjas()) {
+            return ocupadas;
+        }
+
+        IntervalosOcupados intervalos = IntervalosOcupados.de(
+                reservaRepository.findFranjasOcupadas(clave.zonaId(), clave.fecha()));
+        AtomicIntegerArray cargadas = new AtomicIntegerArray(horario.numFranjas());
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            cargadas.set(i, intervalos.contar(horario.inicioFranja(i), horario.finFranja(i)));
+        }
+        if (!clave.fecha().isBefore(LocalDate.now()) && contadores.size() < maxEntradas) {
+            contadores.put(clave, cargadas);
+        }
+        return cargadas;
+    }
+
+    private boolean ocuparEnBaseDeDatos(UUID zonaId, HorarioZona horario, LocalDate fecha, long mascara) {
+        List<Object[]> nuevas = new ArrayList<>();
+        List<Object[]> franjas = new ArrayList<>();
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            if (HorarioZona.estaOcupada(mascara, i)) {
+                LocalTime inicio = horario.horaInicioFranja(i);
+                nuevas.add(new Object[]{zonaId, fecha, inicio, horario.capacidad(),
+                        zonaId, fecha, horario.horaFinFranja(i), inicio});
+                franjas.add(new Object[]{zonaId, fecha, inicio});
+            }
+        }
+        jdbcTemplate.batchUpdate(SQL_CREAR_FILA, nuevas);
+        int[] actualizadas = jdbcTemplate.batchUpdate(SQL_OCUPAR, franjas);
+
+        boolean completas = true;
+        for (int filas : actualizadas) {
+            completas &= filas != 0;
+        }
+        if (!completas) {
+            // Se deshacen las franjas que sí se ocuparon para dejar los contadores como estaban
+            List<Object[]> deshacer = new ArrayList<>();
+            for (int i = 0; i < actualizadas.length; i++) {
+                if (actualizadas[i] != 0) {
+                    deshacer.add(franjas.get(i));
+                }
+            }
+            jdbcTemplate.batchUpdate(SQL_LIBERAR, deshacer);
+            log.debug("Sin plazas en la base de datos para zona {} el {}", zonaId, fecha);
+        }
+        return completas;
+    }
+
+    private static boolean intentarOcupar(AtomicIntegerArray ocupadas, long mascara, int capacidad) {
+        for (int i = 0; i < ocupadas.length(); i++) {
+            if (!HorarioZona.estaOcupada(mascara, i)) {
+                continue;
+            }
+            int actual;
+            do {
+                actual = ocupadas.get(i);
+                if (actual >= capacidad) {
+                    // Franja llena: se devuelven las plazas tomadas en las franjas anteriores
+                    liberarEnMemoria(ocupadas, mascara & ((1L << i) - 1));
+                    return false;
+                }
+            } while (!ocupadas.compareAndSet(i, actual, actual + 1));
+        }
+        return true;
+    }
+
+    private static void liberarEnMemoria(AtomicIntegerArray ocupadas, long mascara) {
+        for (int i = 0; i < ocupadas.length(); i++) {
+            if (HorarioZona.estaOcupada(mascara, i)) {
+                ocupadas.getAndUpdate(i, actual -> Math.max(0, actual - 1));
+            }
+        }
+    }
+
+    private record ClaveDia(UUID zonaId, LocalDate fecha) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.UsuarioConectadoDTO;
+import com.micomunity.backend.event.PresenciaChatEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Usuarios conectados al chat de cada comunidad.
+ *
+ * Las conexiones y desconexiones solo actualizan contadores y marcan la comunidad como
+ * modificada; cada chat.presencia.tick-ms se compara lo conectado con lo último
+ * publicado y se publica un PresenciaChatEvent por comunidad con la diferencia. Así,
+ * cuando miles de clientes se reconectan a la vez, cada sala recibe un frame por
+ * intervalo en lugar de uno por conexión, y quien entra y sale dentro del mismo
+ * intervalo no genera ninguno. Un usuario con varias sesiones cuenta una vez.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PresenciaChatService {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Usuarios conectados de cada comunidad, con su número de sesiones abiertas
+    private final Map<Long, Map<Long, Presente>> comunidades = new ConcurrentHashMap<>();
+
+    // Comunidades con cambios desde el último intervalo
+    private final Set<Long> modificadas = ConcurrentHashMap.newKeySet();
+
+    // Último estado publicado de cada comunidad; solo lo usa el hilo del intervalo
+    private final Map<Long, Map<Long, String>> publicados = new HashMap<>();
+
+    /**
+     * Registra una sesión abierta de un usuario
+     */
+    public void conectar(Long communityId, Long usuarioId, String nombre) {
+        // Todo dentro del compute de la comunidad: desconectar puede quitar el mapa si se vacía
+        comunidades.compute(communityId, (id, conectados) -> {
+            Map<Long, Presente> resultado = conectados != null ? conectados : new ConcurrentHashMap<>();
+            resultado.compute(usuarioId, (uid, presente) -> presente == null
+                    ? new Presente(nombre, 1)
+                    : new Presente(presente.nombre(), presente.sesiones() + 1));
+            return resultado;
+        });
+        modificadas.add(communityId);
+    }
+
+    /**
+     * Registra el cierre de una sesión de un usuario
+     */
+    public void desconectar(Long communityId, Long usuarioId) {
+        comunidades.computeIfPresent(communityId, (id, conectados) -> {
+            conectados.computeIfPresent(usuarioId, (uid, presente) -> presente.sesiones() > 1
+                    ? new Presente(presente.nombre(), presente.sesiones() - 1)
+                    : null);
+            return conectados.isEmpty() ? null : conectados;
+        });
+        modificadas.add(communityId);
+    }
+
+    /**
+     * Usuarios conectados ahora mismo al chat de la comunidad
+     */
+    public List<UsuarioConectadoDTO> conectados(Long communityId) {
+        Map<Long, Presente> conectados = comunidades.get(communityId);
+        if (conectados == null) {
+            return List.of();
+        }
+        List<UsuarioConectadoDTO> resultado = new ArrayList<>(conectados.size());
+        conectados.forEach((id, presente) -> resultado.add(new UsuarioConectadoDTO(id, presente.nombre())));
+        return resultado;
+    }
+
+    /**
+     * Publica los cambios de presencia acumulados de cada comunidad modificada
+     */
+    @Scheduled(fixedDelayString = "${chat.presencia.tick-ms:2000}")
+    public void publicarCambios() {
+        Iterator<Long> it = modificadas.iterator();
+        while (it.hasNext()) {
+            Long communityId = it.next();
+            // Se quita antes de leer: un cambio posterior vuelve a marcarla para el siguiente intervalo
+            it.remove();
+            try {
+                publicarCambios(communityId);
+            } catch (Exception e) {
+                log.error("Error al publicar la presencia de la comunidad {}: {}", communityId, e.getMessage());
+            }
+        }
+    }
+
+    private void publicarCambios(Long communityId) {
+        Map<Long, Presente> actuales = comunidades.getOrDefault(communityId, Map.of());
+        Map<Long, String> anteriores = publicados.getOrDefault(communityId, Map.of());
+
+        List<UsuarioConectadoDTO> conectados = new ArrayList<>();
+        Map<Long, String> nuevos = new HashMap<>();
+        actuales.forEach((id, presente) -> {
+            nuevos.put(id, presente.nombre());
+            if (!anteriores.containsKey(id)) {
+                conectados.add(new UsuarioConectadoDTO(id, presente.nombre()));
+            }
+        });
+        List<Long> desconectados = new ArrayList<>();
+        for (Long id : anteriores.keySet()) {
+            if (!nuevos.containsKey(id)) {
+                desconectados.add(id);
+            }
+        }
+
+        if (nuevos.isEmpty()) {
+            publicados.remove(communityId);
+        } else {
+            publicados.put(communityId, nuevos);
+        }
+        if (conectados.isEmpty() && desconectados.isEmpty()) {
+            return;
+        }
+        log.debug("Presencia de la comunidad {}: {} conectados, {} desconectados",
+                communityId, conectados.size(), desconectados.size());
+        eventPublisher.publishEvent(new PresenciaChatEvent(communityId, conectados, desconectados));
+    }
+
+    private record Presente(String nombre, int sesiones) {
+    }
+}
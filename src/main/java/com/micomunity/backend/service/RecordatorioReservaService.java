@@ -0,0 +1,318 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.event.RecordatorioReservaEvent;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.model.ZonaComun;
+import com.micomunity.backend.repository.ReservaRepository;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Recordatorios de reservas y paso a FINALIZADA de las reservas cuya franja ha terminado.
+ *
+ * Los avisos de las reservas que empiezan dentro del horizonte (reservas.recordatorios.
+ * horizonte-horas) viven en una rueda temporal jerárquica (ver RuedaTemporal): programar
+ * y cancelar cuestan O(1) y cada tick solo toca las ranuras que vencen, sin recorrer la
+ * tabla de reservas. Cada reservas.recordatorios.recarga-ms se vuelve a leer el horizonte
+ * completo con una consulta por rango de fechas (lo ya programado no se duplica), y las
+ * altas y cancelaciones confirmadas en este nodo lo mantienen al día entre recargas. Al
+ * arrancar se finalizan de una vez las reservas que terminaron mientras el nodo estaba
+ * parado y se carga el horizonte.
+ *
+ * Con varios nodos, los eventos de alta y cancelación solo llegan al nodo que las
+ * confirmó: una alta hecha en otro nodo se programa aquí en la siguiente recarga, y antes
+ * de enviar los recordatorios de cada tick se comprueba con una consulta que las reservas
+ * sigan activas, para no avisar de una cancelada en otro nodo. El paso a FINALIZADA solo
+ * afecta a reservas activas, así que es idempotente, y cada recordatorio solo llega a las
+ * sesiones WebSocket abiertas en el nodo.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RecordatorioReservaService {
+
+    private static final int TAMANIO_LOTE_IDS = 500;
+    private static final long REINTENTO_MS = 60_000;
+
+    private final ReservaRepository reservaRepository;
+    private final ZonaComunRepository zonaComunRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${reservas.recordatorios.minutos-antes:30}")
+    private int minutosAntes;
+
+    @Value("${reservas.recordatorios.horizonte-horas:24}")
+    private int horizonteHoras;
+
+    @Value("${reservas.recordatorios.tick-ms:1000}")
+    private long tickMs;
+
+    // Estado protegido por el monitor de esta instancia
+    private RuedaTemporal<Aviso> rueda;
+    private final Map<UUID, Programacion> programadas = new HashMap<>();
+    private LocalDateTime cargadoHasta;
+    private Set<UUID> canceladasDuranteCarga;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            Integer finalizadas = transactionTemplate.execute(status ->
+                    reservaRepository.finalizarTerminadas(ahora.toLocalDate(), ahora.toLocalTime()));
+            log.info("Reservas terminadas marcadas como finalizadas al arrancar: {}", finalizadas);
+        } catch (Exception e) {
+            log.error("Error al finalizar las reservas terminadas: {}", e.getMessage(), e);
+        }
+        synchronized (this) {
+            rueda = new RuedaTemporal<>(tickMs, System.currentTimeMillis());
+            // Desde el inicio del día para recoger también las reservas que están en curso
+            cargadoHasta = LocalDate.now().atStartOfDay().minusNanos(1);
+        }
+        ampliarHorizonte();
+    }
+
+    /**
+     * Carga las reservas activas que empiezan desde ahora (o desde el final de la carga
+     * anterior si es más antiguo) hasta el nuevo final del horizonte
+     */
+    @Scheduled(fixedDelayString = "${reservas.recordatorios.recarga-ms:600000}",
+               initialDelayString = "${reservas.recordatorios.recarga-ms:600000}")
+    public void ampliarHorizonte() {
+        LocalDateTime desde;
+        LocalDateTime hasta = LocalDateTime.now().plusHours(horizonteHoras);
+        synchronized (this) {
+            if (rueda == null) {
+                return;
+            }
+            // Se relee todo el horizonte para recoger las altas confirmadas en otros nodos
+            LocalDateTime ahora = LocalDateTime.now();
+            desde = cargadoHasta.isBefore(ahora) ? cargadoHasta : ahora;
+            // Las altas confirmadas durante la carga ya entran en el nuevo horizonte por evento
+            cargadoHasta = hasta;
+            canceladasDuranteCarga = new HashSet<>();
+        }
+
+        int cargadas = 0;
+        try {
+            List<ReservaRepository.ReservaProgramable> reservas =
+                    reservaRepository.findActivasEntreFechas(desde.toLocalDate(), hasta.toLocalDate());
+            synchronized (this) {
+                for (ReservaRepository.ReservaProgramable reserva : reservas) {
+                    LocalDateTime inicio = LocalDateTime.of(reserva.getFecha(), reserva.getHoraInicio());
+                    if (inicio.isAfter(desde) && !inicio.isAfter(hasta)
+                            && !canceladasDuranteCarga.contains(reserva.getId())) {
+                        cargadas += programar(new Aviso(null, reserva.getId(), reserva.getUsuarioId(),
+                                reserva.getZonaId(), reserva.getZonaNombre(), reserva.getFecha(),
+                                reserva.getHoraInicio(), reserva.getHoraFin())) ? 1 : 0;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error al cargar el horizonte de recordatorios: {}", e.getMessage(), e);
+            synchronized (this) {
+                // Se vuelve a intentar en la siguiente recarga
+                cargadoHasta = desde;
+            }
+        } finally {
+            synchronized (this) {
+                canceladasDuranteCarga = null;
+            }
+        }
+        log.debug("Horizonte de recordatorios recargado hasta {}: {} reservas nuevas", hasta, cargadas);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        LocalDateTime inicio = LocalDateTime.of(event.getFecha(), event.getHoraInicio());
+        synchronized (this) {
+            if (rueda == null) {
+                return;
+            }
+            if (event.getTipo() == ReservaModificadaEvent.Tipo.CANCELADA) {
+                if (canceladasDuranteCarga != null) {
+                    canceladasDuranteCarga.add(event.getReservaId());
+                }
+                Programacion programacion = programadas.remove(event.getReservaId());
+                if (programacion != null) {
+                    rueda.cancelar(programacion.recordatorio());
+                    rueda.cancelar(programacion.fin());
+                }
+            } else if (!inicio.isAfter(cargadoHasta)) {
+                // Las reservas más allá del horizonte se cargarán al ampliarlo
+                programar(new Aviso(null, event.getReservaId(), event.getUsuarioId(), event.getZonaComunId(),
+                        null, event.getFecha(), event.getHoraInicio(), event.getHoraFin()));
+            }
+        }
+    }
+
+    /**
+     * Avanza la rueda: envía los recordatorios vencidos y finaliza las reservas terminadas
+     */
+    @Scheduled(fixedDelayString = "${reservas.recordatorios.tick-ms:1000}")
+    public void avanzar() {
+        List<Aviso> vencidos;
+        synchronized (this) {
+            if (rueda == null) {
+                return;
+            }
+            vencidos = rueda.avanzar(System.currentTimeMillis());
+            for (Aviso aviso : vencidos) {
+                if (aviso.tipo() == TipoAviso.FIN) {
+                    programadas.remove(aviso.reservaId());
+                }
+            }
+        }
+        if (vencidos.isEmpty()) {
+            return;
+        }
+
+        List<Aviso> recordatorios = new ArrayList<>();
+        List<Aviso> finales = new ArrayList<>();
+        for (Aviso aviso : vencidos) {
+            (aviso.tipo() == TipoAviso.RECORDATORIO ? recordatorios : finales).add(aviso);
+        }
+        enviarRecordatorios(recordatorios);
+        finalizar(finales);
+    }
+
+    private boolean programar(Aviso aviso) {
+        if (programadas.containsKey(aviso.reservaId())) {
+            return false;
+        }
+        long ahora = System.currentTimeMillis();
+        LocalDateTime inicio = LocalDateTime.of(aviso.fecha(), aviso.horaInicio());
+        long instanteRecordatorio = epochMs(inicio.minusMinutes(minutosAntes));
+        long instanteFin = epochMs(LocalDateTime.of(aviso.fecha(), aviso.horaFin()));
+
+        // Si ya no da tiempo a avisar con antelación no se envía recordatorio
+        RuedaTemporal.Tarea<Aviso> recordatorio = instanteRecordatorio > ahora
+                ? rueda.programar(instanteRecordatorio, aviso.conTipo(TipoAviso.RECORDATORIO)) : null;
+        RuedaTemporal.Tarea<Aviso> fin = rueda.programar(instanteFin, aviso.conTipo(TipoAviso.FIN));
+        programadas.put(aviso.reservaId(), new Programacion(recordatorio, fin));
+        return true;
+    }
+
+    private void enviarRecordatorios(List<Aviso> recordatorios) {
+        if (recordatorios.isEmpty()) {
+            return;
+        }
+        // Las altas programadas por evento no traen el nombre de la zona: se resuelven todas de una vez
+        Map<UUID, String> nombres = new HashMap<>();
+        Set<UUID> sinNombre = new HashSet<>();
+        for (Aviso aviso : recordatorios) {
+            if (aviso.zonaNombre() == null) {
+                sinNombre.add(aviso.zonaId());
+            }
+        }
+        if (!sinNombre.isEmpty()) {
+            try {
+                for (ZonaComun zona : zonaComunRepository.findAllById(sinNombre)) {
+                    nombres.put(zona.getId(), zona.getNombre());
+                }
+            } catch (Exception e) {
+                log.warn("No se pudieron cargar los nombres de zona de los recordatorios: {}", e.getMessage());
+            }
+        }
+
+        // Las cancelaciones hechas en otros nodos no llegan por evento
+        Set<UUID> activas = activas(recordatorios);
+        int enviados = 0;
+        for (Aviso aviso : recordatorios) {
+            if (activas != null && !activas.contains(aviso.reservaId())) {
+                continue;
+            }
+            enviados++;
+            String nombre = aviso.zonaNombre() != null ? aviso.zonaNombre() : nombres.get(aviso.zonaId());
+            eventPublisher.publishEvent(new RecordatorioReservaEvent(aviso.usuarioId(), aviso.reservaId(),
+                    aviso.zonaId(), nombre, aviso.fecha(), aviso.horaInicio(), aviso.horaFin()));
+        }
+        log.debug("Enviados {} de {} recordatorios de reserva", enviados, recordatorios.size());
+    }
+
+    // Ids de las reservas de los avisos que siguen activas; null si no se ha podido comprobar
+    private Set<UUID> activas(List<Aviso> avisos) {
+        List<UUID> ids = avisos.stream().map(Aviso::reservaId).toList();
+        try {
+            Set<UUID> activas = new HashSet<>();
+            for (int i = 0; i < ids.size(); i += TAMANIO_LOTE_IDS) {
+                activas.addAll(reservaRepository.findIdsActivas(ids.subList(i, Math.min(i + TAMANIO_LOTE_IDS, ids.size()))));
+            }
+            return activas;
+        } catch (Exception e) {
+            log.warn("No se pudo comprobar el estado de {} reservas, se envían sus recordatorios: {}",
+                    ids.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void finalizar(List<Aviso> finales) {
+        if (finales.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = finales.stream().map(Aviso::reservaId).toList();
+        try {
+            Integer finalizadas = transactionTemplate.execute(status -> {
+                int total = 0;
+                for (int i = 0; i < ids.size(); i += TAMANIO_LOTE_IDS) {
+                    total += reservaRepository.finalizar(ids.subList(i, Math.min(i + TAMANIO_LOTE_IDS, ids.size())));
+                }
+                return total;
+            });
+            log.debug("Reservas finalizadas: {} de {}", finalizadas, ids.size());
+        } catch (Exception e) {
+            log.warn("Error al finalizar {} reservas, se reintentará: {}", ids.size(), e.getMessage());
+            synchronized (this) {
+                long reintento = System.currentTimeMillis() + REINTENTO_MS;
+                for (Aviso aviso : finales) {
+                    if (!programadas.containsKey(aviso.reservaId())) {
+                        programadas.put(aviso.reservaId(),
+                                new Programacion(null, rueda.programar(reintento, aviso)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long epochMs(LocalDateTime fechaHora) {
+        return fechaHora.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private enum TipoAviso {
+        RECORDATORIO,
+        FIN
+    }
+
+    private record Aviso(TipoAviso tipo, UUID reservaId, Long usuarioId, UUID zonaId, String zonaNombre,
+                         LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+
+        Aviso conTipo(TipoAviso nuevo) {
+            return new Aviso(nuevo, reservaId, usuarioId, zonaId, zonaNombre, fecha, horaInicio, horaFin);
+        }
+    }
+
+    private record Programacion(RuedaTemporal.Tarea<Aviso> recordatorio, RuedaTemporal.Tarea<Aviso> fin) {
+    }
+}
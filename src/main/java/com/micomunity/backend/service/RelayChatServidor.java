@@ -0,0 +1,183 @@
+package com.micomunity.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Relay del bus del chat entre nodos (chat.bus.relay.activo=true en uno de ellos).
+ *
+ * Acepta conexiones de BusChatTcp en chat.bus.relay.direccion:chat.bus.relay.puerto y
+ * reenvía cada línea recibida a todas las conexiones, incluida la de origen. Cada línea
+ * se encola a la vez en todas las conexiones, así que todos los nodos reciben los
+ * mensajes en el mismo orden. Cada conexión tiene su cola acotada
+ * (chat.bus.relay.cola-max líneas) y su hilo de escritura: un nodo lento no frena a los
+ * demás, y si su cola se llena se le desconecta (al reconectar recupera el historial
+ * desde la base de datos). No autentica a los clientes: por defecto solo escucha en la
+ * interfaz local.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.bus.relay.activo", havingValue = "true")
+@Slf4j
+public class RelayChatServidor {
+
+    @Value("${chat.bus.relay.direccion:127.0.0.1}")
+    private String direccion;
+
+    @Value("${chat.bus.relay.puerto:7400}")
+    private int puerto;
+
+    @Value("${chat.bus.relay.cola-max:10000}")
+    private int colaMax;
+
+    // Protegido por su propio monitor, que también ordena el encolado de los reenvíos
+    private final List<Conexion> conexiones = new ArrayList<>();
+    private ServerSocket servidor;
+    private volatile boolean parando;
+
+    @PostConstruct
+    void arrancar() throws IOException {
+        servidor = new ServerSocket(puerto, 50, InetAddress.getByName(direccion));
+        Thread aceptador = new Thread(this::aceptar, "chat-relay");
+        aceptador.setDaemon(true);
+        aceptador.start();
+        log.info("Relay del chat escuchando en {}:{}", direccion, servidor.getLocalPort());
+    }
+
+    /**
+     * Puerto en el que escucha el relay
+     */
+    public int puerto() {
+        return servidor.getLocalPort();
+    }
+
+    @PreDestroy
+    void parar() throws IOException {
+        parando = true;
+        servidor.close();
+        List<Conexion> abiertas;
+        synchronized (conexiones) {
+            abiertas = new ArrayList<>(conexiones);
+        }
+        abiertas.forEach(this::quitar);
+    }
+
+    private void aceptar() {
+        while (!parando) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                Conexion conexion = new Conexion(socket,
+                        new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)),
+                        new ArrayBlockingQueue<>(colaMax));
+                synchronized (conexiones) {
+                    conexiones.add(conexion);
+                }
+                Thread lector = new Thread(() -> atender(conexion), "chat-relay-" + socket.getPort());
+                lector.setDaemon(true);
+                lector.start();
+                Thread escritor = new Thread(() -> escribir(conexion), "chat-relay-envio-" + socket.getPort());
+                escritor.setDaemon(true);
+                escritor.start();
+                log.info("Nodo conectado al relay del chat: {}", socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!parando) {
+                    log.error("Error al aceptar una conexión en el relay del chat: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void atender(Conexion origen) {
+        try (BufferedReader entrada = new BufferedReader(
+                new InputStreamReader(origen.socket().getInputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                reenviar(linea);
+            }
+        } catch (IOException e) {
+            log.debug("Conexión del relay del chat cerrada: {}", e.getMessage());
+        } finally {
+            quitar(origen);
+        }
+    }
+
+    // Escribe en el socket las líneas encoladas para la conexión
+    private void escribir(Conexion conexion) {
+        try {
+            while (!conexion.socket().isClosed()) {
+                String linea = conexion.cola().take();
+                if (conexion.socket().isClosed()) {
+                    break;
+                }
+                conexion.salida().write(linea);
+                conexion.salida().write('\n');
+                // Se agrupan en un solo flush las líneas que ya estén esperando
+                if (conexion.cola().isEmpty()) {
+                    conexion.salida().flush();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Nodo desconectado del relay del chat: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            quitar(conexion);
+        }
+    }
+
+    private void reenviar(String linea) {
+        List<Conexion> saturadas = new ArrayList<>();
+        synchronized (conexiones) {
+            for (Conexion conexion : conexiones) {
+                if (!conexion.cola().offer(linea)) {
+                    saturadas.add(conexion);
+                }
+            }
+        }
+        for (Conexion conexion : saturadas) {
+            log.warn("El nodo {} no consume los mensajes del relay del chat a tiempo, se desconecta",
+                    conexion.socket().getRemoteSocketAddress());
+            quitar(conexion);
+        }
+    }
+
+    private void quitar(Conexion conexion) {
+        synchronized (conexiones) {
+            conexiones.remove(conexion);
+        }
+        conexion.cerrar();
+        // Despierta al hilo de escritura si está esperando líneas
+        conexion.cola().clear();
+        conexion.cola().offer("");
+    }
+
+    private record Conexion(Socket socket, Writer salida, BlockingQueue<String> cola) {
+
+        void cerrar() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ya cerrada
+            }
+        }
+    }
+}
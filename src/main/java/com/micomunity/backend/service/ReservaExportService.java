@@ -0,0 +1,166 @@
+package com.micomunity.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micomunity.backend.model.Role;
+import com.micomunity.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Exportación del historial de reservas en CSV o NDJSON.
+ *
+ * Las filas se leen con un cursor JDBC de solo avance (fetchSize dentro de una
+ * transacción de solo lectura, que es lo que necesita el driver de Postgres para no
+ * cargar el resultado completo) y se escriben directamente en la respuesta, de modo
+ * que el consumo de memoria no depende del tamaño del rango exportado.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReservaExportService {
+
+    public static final String FORMATO_CSV = "csv";
+    public static final String FORMATO_NDJSON = "ndjson";
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String[] COLUMNAS = {
+            "id", "zonaComunId", "zonaComunNombre", "usuarioId", "usuarioNombre", "usuarioEmail",
+            "fecha", "horaInicio", "horaFin", "estado", "fechaCreacion", "fechaCancelacion"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public StreamingResponseBody exportarHistorial(User user, UUID zonaId, LocalDate fechaInicio,
+                                                   LocalDate fechaFin, String formato) {
+        if (user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo el presidente puede exportar el historial de reservas");
+        }
+        if (!FORMATO_CSV.equals(formato) && !FORMATO_NDJSON.equals(formato)) {
+            throw new RuntimeException("Formato de exportación no soportado: " + formato);
+        }
+
+        // Se capturan los parámetros aquí: el cuerpo se ejecuta en otro hilo, fuera de la petición
+        Long communityId = user.getCommunity().getId();
+        StringBuilder sql = new StringBuilder(
+                "SELECT r.id, z.id AS zona_id, z.nombre AS zona_nombre, u.id AS usuario_id, " +
+                "u.full_name, u.email, r.fecha, r.hora_inicio, r.hora_fin, r.estado, " +
+                "r.fecha_creacion, r.fecha_cancelacion " +
+                "FROM reservas r " +
+                "JOIN zonas_comunes z ON z.id = r.zona_comun_id " +
+                "JOIN users u ON u.id = r.usuario_id " +
+                "WHERE z.community_id = ?");
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(communityId);
+        if (zonaId != null) {
+            sql.append(" AND z.id = ?");
+            parametros.add(zonaId);
+        }
+        if (fechaInicio != null) {
+            sql.append(" AND r.fecha >= ?");
+            parametros.add(fechaInicio);
+        }
+        if (fechaFin != null) {
+            sql.append(" AND r.fecha <= ?");
+            parametros.add(fechaFin);
+        }
+        sql.append(" ORDER BY r.fecha DESC, r.hora_inicio DESC, r.id DESC");
+
+        log.info("Usuario {} exportando historial de reservas en formato {}", user.getEmail(), formato);
+
+        return outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            try {
+                if (FORMATO_CSV.equals(formato)) {
+                    escribirCsv(sql.toString(), parametros, outputStream);
+                } else {
+                    escribirNdjson(sql.toString(), parametros, outputStream);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void escribirCsv(String sql, List<Object> parametros, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNAS));
+        writer.write('\n');
+        recorrer(sql, parametros, rs -> {
+            try {
+                for (int i = 1; i <= COLUMNAS.length; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(escaparCsv(rs.getString(i)));
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private void escribirNdjson(String sql, List<Object> parametros, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        recorrer(sql, parametros, rs -> {
+            try {
+                generator.writeStartObject();
+                for (int i = 1; i <= COLUMNAS.length; i++) {
+                    generator.writeStringField(COLUMNAS[i - 1], rs.getString(i));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
+    }
+
+    private void recorrer(String sql, List<Object> parametros, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+
+    private static String escaparCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,103 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.exception.ReservaConflictoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bloqueos por franjas (striped locks) para serializar las reservas de una misma
+ * zona y fecha dentro de un nodo. Reservas de zonas o fechas distintas caen, salvo
+ * colisión de hash, en bloqueos distintos y avanzan en paralelo.
+ *
+ * Entre nodos la exclusión la garantiza el advisory lock de Postgres que se toma
+ * dentro de la transacción con la misma clave (ver claveAdvisory).
+ */
+@Component
+@Slf4j
+public class ReservaLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    public ReservaLockManager(@Value("${reservas.bloqueos.stripes:64}") int numStripes,
+                              @Value("${reservas.bloqueos.timeout-ms:5000}") long timeoutMs) {
+        this.stripes = new ReentrantLock[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Ejecuta la acción con el bloqueo de (zona, fecha) tomado. La acción debe abrir
+     * y confirmar su propia transacción para que el bloqueo cubra también el commit.
+     */
+    public <T> T conBloqueo(UUID zonaId, LocalDate fecha, Supplier<T> accion) {
+        ReentrantLock lock = stripes[indice(zonaId, fecha)];
+        adquirir(lock);
+        try {
+            return accion.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Variante para reservas en bloque: toma los bloqueos de todas las fechas en orden
+     * ascendente de franja para que dos peticiones solapadas no se bloqueen mutuamente.
+     */
+    public <T> T conBloqueos(UUID zonaId, Collection<LocalDate> fechas, Supplier<T> accion) {
+        int[] indices = fechas.stream()
+                .mapToInt(fecha -> indice(zonaId, fecha))
+                .distinct()
+                .sorted()
+                .toArray();
+        int adquiridos = 0;
+        try {
+            for (int indice : indices) {
+                adquirir(stripes[indice]);
+                adquiridos++;
+            }
+            return accion.get();
+        } finally {
+            for (int i = adquiridos - 1; i >= 0; i--) {
+                stripes[indices[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Clave de 64 bits para pg_advisory_xact_lock derivada de (zona, fecha)
+     */
+    public static long claveAdvisory(UUID zonaId, LocalDate fecha) {
+        long h = zonaId.getMostSignificantBits() * 31 + zonaId.getLeastSignificantBits();
+        return h * 1_000_003L + fecha.toEpochDay();
+    }
+
+    int indice(UUID zonaId, LocalDate fecha) {
+        long h = claveAdvisory(zonaId, fecha);
+        int mezcla = (int) (h ^ (h >>> 32));
+        mezcla ^= (mezcla >>> 16);
+        return Math.floorMod(mezcla, stripes.length);
+    }
+
+    private void adquirir(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Tiempo de espera agotado esperando el bloqueo de reserva");
+                throw new ReservaConflictoException("La zona está recibiendo muchas reservas en este momento, inténtalo de nuevo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReservaConflictoException("Reserva interrumpida, inténtalo de nuevo");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.micomunity.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mantenimiento de las particiones mensuales de la tabla reservas
+ * (ver db/migration/V1_4__particionar_reservas.sql).
+ *
+ * Crea por adelantado las particiones de los próximos meses y, si se configura una
+ * retención, desengancha las particiones antiguas dejándolas como tablas de archivo.
+ * Si la tabla no está particionada no hace nada.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReservaParticionService {
+
+    private static final String PREFIJO = "reservas_p";
+    private static final String PREFIJO_ARCHIVO = "reservas_archivo_";
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Clave del advisory lock para que solo un nodo mantenga las particiones a la vez
+    private static final long CLAVE_MANTENIMIENTO = 0x7265736572766173L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${reservas.particiones.meses-adelante:12}")
+    private int mesesAdelante;
+
+    // 0 = no desenganchar nunca particiones antiguas
+    @Value("${reservas.particiones.meses-retencion:0}")
+    private int mesesRetencion;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        mantenerParticiones();
+    }
+
+    @Scheduled(cron = "${reservas.particiones.cron:0 30 3 * * *}")
+    public void mantenerParticiones() {
+        try {
+            if (!estaParticionada()) {
+                log.debug("La tabla reservas no está particionada; no hay particiones que mantener");
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean bloqueado = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, CLAVE_MANTENIMIENTO);
+                if (!Boolean.TRUE.equals(bloqueado)) {
+                    log.debug("Otro nodo está manteniendo las particiones de reservas");
+                    return;
+                }
+                Set<String> existentes = new HashSet<>(particionesExistentes());
+                crearParticionesFuturas(existentes);
+                if (mesesRetencion > 0) {
+                    archivarParticionesAntiguas(existentes);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error al mantener las particiones de reservas: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean estaParticionada() {
+        Boolean particionada = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = 'reservas')", Boolean.class);
+        return Boolean.TRUE.equals(particionada);
+    }
+
+    private List<String> particionesExistentes() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'reservas'", String.class);
+    }
+
+    private void crearParticionesFuturas(Set<String> existentes) {
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            String nombre = PREFIJO + mes.format(SUFIJO);
+            if (existentes.contains(nombre)) {
+                continue;
+            }
+            LocalDate desde = mes.atDay(1);
+            LocalDate hasta = mes.plusMonths(1).atDay(1);
+
+            // Se crea fuera del padre, se mueven las filas que hubieran caído en la partición
+            // por defecto y se engancha: crearla directamente fallaría si la default tiene filas del mes
+            jdbcTemplate.execute("CREATE TABLE " + nombre +
+                    " (LIKE reservas INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int movidas = jdbcTemplate.update(
+                    "WITH movidas AS (DELETE FROM reservas_default WHERE fecha >= ? AND fecha < ? RETURNING *) " +
+                    "INSERT INTO " + nombre + " SELECT * FROM movidas", desde, hasta);
+            jdbcTemplate.execute("ALTER TABLE reservas ATTACH PARTITION " + nombre +
+                    " FOR VALUES FROM ('" + desde + "') TO ('" + hasta + "')");
+
+            log.info("Creada partición {} de reservas ({} filas movidas desde la partición por defecto)",
+                    nombre, movidas);
+        }
+    }
+
+    private void archivarParticionesAntiguas(Set<String> existentes) {
+        YearMonth limite = YearMonth.now().minusMonths(mesesRetencion);
+        for (String nombre : existentes) {
+            if (!nombre.startsWith(PREFIJO)) {
+                continue;
+            }
+            YearMonth mes;
+            try {
+                mes = YearMonth.parse(nombre.substring(PREFIJO.length()), SUFIJO);
+            } catch (Exception e) {
+                continue;
+            }
+            if (mes.isBefore(limite)) {
+                String archivo = PREFIJO_ARCHIVO + mes.format(SUFIJO);
+                jdbcTemplate.execute("ALTER TABLE reservas DETACH PARTITION " + nombre);
+                jdbcTemplate.execute("ALTER TABLE " + nombre + " RENAME TO " + archivo);
+                log.info("Partición {} desenganchada y archivada como {}", nombre, archivo);
+            }
+        }
+    }
+}
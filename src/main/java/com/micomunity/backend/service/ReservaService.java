@@ -1,23 +1,45 @@
 package com.micomunity.backend.service;
 
+import com.micomunity.backend.dto.ReservaFilaDTO;
 import com.micomunity.backend.dto.ReservaRequest;
 import com.micomunity.backend.dto.ReservaResponse;
 import com.micomunity.backend.dto.CalendarioReservasResponse;
 import com.micomunity.backend.dto.MisReservasResponse;
+import com.micomunity.backend.dto.HistorialReservasPage;
 import com.micomunity.backend.dto.HorariosDisponiblesResponse;
+import com.micomunity.backend.dto.OcupacionReservasResponse;
+import com.micomunity.backend.dto.ProximosHuecosResponse;
+import com.micomunity.backend.dto.ReservaRecurrenteRequest;
+import com.micomunity.backend.dto.ReservaRecurrenteResponse;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.exception.ReservaConflictoException;
 import com.micomunity.backend.model.*;
 import com.micomunity.backend.repository.ReservaRepository;
 import com.micomunity.backend.repository.ZonaComunRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -28,14 +50,24 @@ public class ReservaService {
 
     private final ReservaRepository reservaRepository;
     private final ZonaComunRepository zonaComunRepository;
-
-    @Value("${reservas.limite.por.usuario:2}")
-    private int limiteReservasPorUsuario;
-
-    @Value("${reservas.limite.por.zona:1}")
-    private int limiteReservasPorZona;
-
-    @Transactional
+    private final DisponibilidadIndex disponibilidadIndex;
+    private final HorarioZonaService horarioZonaService;
+    private final PlazasService plazasService;
+    private final CupoReservasService cupoReservasService;
+    private final ReservaLockManager reservaLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_DIAS_OCUPACION = 93;
+    private static final int MAX_LIMITE_HISTORIAL = 200;
+    private static final int MAX_DIAS_BUSQUEDA = 31;
+    private static final int MAX_LIMITE_HUECOS = 50;
+
+    /**
+     * Crea una reserva. Las altas concurrentes sobre la misma zona y fecha se serializan
+     * con un bloqueo local tomado fuera de la transacción (para que cubra también el commit)
+     * y con un advisory lock de Postgres dentro de ella para el caso de varios nodos.
+     */
     public ReservaResponse crearReserva(User user, ReservaRequest request) {
         log.info("Usuario {} creando reserva para zona {}", user.getEmail(), request.getZonaComunId());
         
@@ -44,36 +76,203 @@ public class ReservaService {
             throw new RuntimeException("Solo los vecinos y el presidente pueden realizar reservas");
         }
 
+        // Validaciones de fecha y hora
+        validarFechaYHora(request);
+
+        return reservaLockManager.conBloqueo(request.getZonaComunId(), request.getFecha(),
+                () -> transactionTemplate.execute(status -> crearReservaEnTransaccion(user, request)));
+    }
+
+    private ReservaResponse crearReservaEnTransaccion(User user, ReservaRequest request) {
         // Validar que la zona común existe y pertenece a la comunidad del usuario
         ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(
                 request.getZonaComunId(), user.getCommunity())
                 .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
 
-        // Validaciones de fecha y hora
-        validarFechaYHora(request);
+        // Validar sorteo, horario de apertura, cierres y mantenimientos de la zona
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        validarHorarioZona(horario, request.getFecha(), request.getHoraInicio(), request.getHoraFin());
 
-        // Validar que no hay conflictos horarios
-        validarConflictosHorarios(zonaComun, request);
+        // Exclusión entre nodos; se libera automáticamente al terminar la transacción
+        reservaRepository.bloquearZonaFecha(ReservaLockManager.claveAdvisory(zonaComun.getId(), request.getFecha()));
 
-        // Validar límites de reservas
-        validarLimitesReservas(user, zonaComun, request.getFecha());
+        if (horario.conPlazas()) {
+            // Zona con capacidad: se descuenta el cupo y se ocupa una plaza en cada franja
+            validarLimitesReservas(user, zonaComun, request.getFecha());
+            if (!plazasService.ocupar(zonaComun.getId(), horario, request.getFecha(),
+                    request.getHoraInicio(), request.getHoraFin())) {
+                throw new ReservaConflictoException("No quedan plazas libres en ese horario para la zona común");
+            }
+        } else {
+            // Validar que no hay conflictos horarios
+            validarConflictosHorarios(zonaComun, request);
+
+            // Validar límites de reservas
+            validarLimitesReservas(user, zonaComun, request.getFecha());
+        }
 
         // Crear la reserva
         Reserva reserva = new Reserva(zonaComun, user, request.getFecha(), 
                 request.getHoraInicio(), request.getHoraFin());
         reserva = reservaRepository.save(reserva);
+        eventPublisher.publishEvent(ReservaModificadaEvent.creada(reserva));
 
         log.info("Reserva creada exitosamente: ID={} para zona {} el {}", 
                 reserva.getId(), zonaComun.getNombre(), request.getFecha());
         
-        return convertToResponse(reserva, user);
+        return convertToResponse(ReservaFilaDTO.de(reserva), user);
+    }
+
+    /**
+     * Crea en bloque las reservas de una recurrencia semanal o de una lista de fechas.
+     * Los conflictos se comprueban con una única consulta para todas las fechas, los
+     * cupos contra los contadores en memoria y las altas se insertan en lote dentro de
+     * una única transacción. Las fechas
+     * que no se pueden reservar se informan en la respuesta sin abortar el resto.
+     */
+    public ReservaRecurrenteResponse crearReservasRecurrentes(User user, ReservaRecurrenteRequest request) {
+        log.info("Usuario {} creando reservas recurrentes para zona {}", user.getEmail(), request.getZonaComunId());
+        
+        if (user.getRole() != Role.VECINO && user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo los vecinos y el presidente pueden realizar reservas");
+        }
+        if (!request.getHoraFin().isAfter(request.getHoraInicio())) {
+            throw new RuntimeException("La hora de fin debe ser posterior a la hora de inicio");
+        }
+
+        List<LocalDate> fechas = calcularFechasRecurrencia(request);
+
+        return reservaLockManager.conBloqueos(request.getZonaComunId(), fechas,
+                () -> transactionTemplate.execute(status -> crearReservasRecurrentesEnTransaccion(user, request, fechas)));
+    }
+
+    private ReservaRecurrenteResponse crearReservasRecurrentesEnTransaccion(User user, ReservaRecurrenteRequest request,
+                                                                            List<LocalDate> fechas) {
+        ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(
+                request.getZonaComunId(), user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        int inicioMinutos = HorarioZona.minutos(request.getHoraInicio());
+        int finMinutos = HorarioZona.minutos(request.getHoraFin());
+        if (!horario.dentroDeHorario(inicioMinutos, finMinutos)) {
+            throw new RuntimeException(mensajeFueraDeHorario(horario));
+        }
+
+        // Advisory locks en orden ascendente de clave para no provocar interbloqueos entre nodos
+        fechas.stream()
+                .map(fecha -> ReservaLockManager.claveAdvisory(zonaComun.getId(), fecha))
+                .sorted()
+                .distinct()
+                .forEach(reservaRepository::bloquearZonaFecha);
+
+        LocalTime horaInicio = request.getHoraInicio();
+        LocalTime horaFin = request.getHoraFin();
+        LocalDate hoy = LocalDate.now();
+        LocalTime ahora = LocalTime.now();
+
+        // En las zonas con capacidad los conflictos se resuelven con los contadores de plazas
+        Set<LocalDate> conflictos = horario.conPlazas() ? Set.of() : new HashSet<>(
+                reservaRepository.findFechasConConflicto(zonaComun, fechas, horaInicio, horaFin));
+
+        List<ReservaRecurrenteResponse.ResultadoFecha> resultados = new ArrayList<>();
+        List<Reserva> nuevas = new ArrayList<>();
+        Map<LocalDate, ReservaRecurrenteResponse.ResultadoFecha> resultadoPorFecha = new HashMap<>();
+
+        for (LocalDate fecha : fechas) {
+            ReservaRecurrenteResponse.ResultadoFecha resultado =
+                    new ReservaRecurrenteResponse.ResultadoFecha(fecha, null, null, null);
+            String motivoBloqueo = horario.motivoBloqueo(fecha, inicioMinutos, finMinutos);
+            String motivoLimite;
+            if (fecha.isBefore(hoy) || (fecha.equals(hoy) && horaInicio.isBefore(ahora))) {
+                resultado.setEstado("FECHA_PASADA");
+                resultado.setMotivo("No se pueden realizar reservas en fechas u horas pasadas");
+            } else if (horario.sorteo(fecha) != null) {
+                resultado.setEstado("SORTEO");
+                resultado.setMotivo(mensajeSorteo(horario.sorteo(fecha)));
+            } else if (motivoBloqueo != null) {
+                resultado.setEstado("BLOQUEADA");
+                resultado.setMotivo("La zona común no está disponible: " + motivoBloqueo);
+            } else if (conflictos.contains(fecha)) {
+                resultado.setEstado("CONFLICTO");
+                resultado.setMotivo("Ya existe una reserva en ese horario para la zona común");
+            } else if ((motivoLimite = cupoReservasService.reservar(user.getId(), zonaComun.getId(), fecha)) != null) {
+                resultado.setEstado("LIMITE");
+                resultado.setMotivo(motivoLimite);
+            } else if (horario.conPlazas()
+                    && !plazasService.ocupar(zonaComun.getId(), horario, fecha, horaInicio, horaFin)) {
+                cupoReservasService.devolver(user.getId(), zonaComun.getId(), fecha);
+                resultado.setEstado("CONFLICTO");
+                resultado.setMotivo("No quedan plazas libres en ese horario para la zona común");
+            } else {
+                resultado.setEstado("CREADA");
+                nuevas.add(new Reserva(zonaComun, user, fecha, horaInicio, horaFin));
+                resultadoPorFecha.put(fecha, resultado);
+            }
+            resultados.add(resultado);
+        }
+
+        // Inserción en lote (hibernate.jdbc.batch_size)
+        for (Reserva reserva : reservaRepository.saveAll(nuevas)) {
+            resultadoPorFecha.get(reserva.getFecha()).setReservaId(reserva.getId());
+            eventPublisher.publishEvent(ReservaModificadaEvent.creada(reserva));
+        }
+
+        log.info("Reservas recurrentes en zona {}: {} creadas de {} solicitadas",
+                zonaComun.getNombre(), nuevas.size(), fechas.size());
+
+        return new ReservaRecurrenteResponse(
+                zonaComun.getId(),
+                zonaComun.getNombre(),
+                horaInicio,
+                horaFin,
+                nuevas.size(),
+                fechas.size() - nuevas.size(),
+                resultados
+        );
     }
 
-    @Transactional
+    private List<LocalDate> calcularFechasRecurrencia(ReservaRecurrenteRequest request) {
+        TreeSet<LocalDate> fechas = new TreeSet<>();
+        if (request.getFechas() != null && !request.getFechas().isEmpty()) {
+            fechas.addAll(request.getFechas());
+        } else {
+            if (request.getFechaInicio() == null || request.getDiaSemana() == null || request.getSemanas() == null) {
+                throw new RuntimeException("Indica una lista de fechas o una recurrencia (fechaInicio, diaSemana y semanas)");
+            }
+            LocalDate fecha = request.getFechaInicio().with(TemporalAdjusters.nextOrSame(request.getDiaSemana()));
+            for (int i = 0; i < request.getSemanas(); i++) {
+                fechas.add(fecha.plusWeeks(i));
+            }
+        }
+        return new ArrayList<>(fechas);
+    }
+
+    /**
+     * Cancela una reserva del usuario. Toma los mismos bloqueos que crearReserva sobre la
+     * zona y fecha de la reserva: si no, una alta concurrente podría crear la fila de
+     * ocupación contando todavía como activa la reserva que se está cancelando.
+     */
     public void cancelarReserva(User user, UUID reservaId) {
         log.info("Usuario {} cancelando reserva {}", user.getEmail(), reservaId);
         
         // Buscar la reserva y validar que pertenece al usuario
+        Reserva encontrada = reservaRepository.findByIdAndUsuario(reservaId, user)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada o no te pertenece"));
+        UUID zonaId = encontrada.getZonaComun().getId();
+        LocalDate fechaReserva = encontrada.getFecha();
+
+        reservaLockManager.conBloqueo(zonaId, fechaReserva, () -> transactionTemplate.execute(status -> {
+            cancelarReservaEnTransaccion(user, reservaId, zonaId, fechaReserva);
+            return null;
+        }));
+    }
+
+    private void cancelarReservaEnTransaccion(User user, UUID reservaId, UUID zonaId, LocalDate fechaReserva) {
+        // Exclusión entre nodos; se libera automáticamente al terminar la transacción
+        reservaRepository.bloquearZonaFecha(ReservaLockManager.claveAdvisory(zonaId, fechaReserva));
+
+        // Se vuelve a leer bajo el bloqueo por si ha cambiado entretanto
         Reserva reserva = reservaRepository.findByIdAndUsuario(reservaId, user)
                 .orElseThrow(() -> new RuntimeException("Reserva no encontrada o no te pertenece"));
 
@@ -93,6 +292,13 @@ public class ReservaService {
         // Cancelar la reserva
         reserva.cancelar();
         reservaRepository.save(reserva);
+        HorarioZona horario = horarioZonaService.obtenerHorario(reserva.getZonaComun());
+        if (horario.conPlazas()) {
+            plazasService.liberar(reserva.getZonaComun().getId(), horario, reserva.getFecha(),
+                    reserva.getHoraInicio(), reserva.getHoraFin());
+        }
+        cupoReservasService.liberar(user.getId(), reserva.getZonaComun().getId(), reserva.getFecha());
+        eventPublisher.publishEvent(ReservaModificadaEvent.cancelada(reserva));
 
         log.info("Reserva cancelada exitosamente: ID={}", reservaId);
     }
@@ -105,7 +311,7 @@ public class ReservaService {
         ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(zonaId, user.getCommunity())
                 .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
 
-        List<Reserva> reservas = reservaRepository.findByZonaComunAndEstadoActivaOrderByFechaAndHora(zonaComun);
+        List<ReservaFilaDTO> reservas = reservaRepository.findNoCanceladasByZonaComunOrderByFechaAndHora(zonaComun);
         
         log.info("Encontradas {} reservas activas para la zona {}", reservas.size(), zonaComun.getNombre());
         
@@ -114,24 +320,83 @@ public class ReservaService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Historial de reservas sin cursor: solo las MAX_LIMITE_HISTORIAL más recientes.
+     * @deprecated usar obtenerHistorialPaginado, que permite recorrer el historial completo
+     */
+    @Deprecated
     @Transactional(readOnly = true)
     public List<ReservaResponse> obtenerHistorialReservas(User user, UUID zonaId, 
                                                          LocalDate fechaInicio, LocalDate fechaFin) {
-        log.info("Usuario {} obteniendo historial de reservas", user.getEmail());
+        HistorialReservasPage pagina = obtenerHistorialPaginado(user, zonaId, fechaInicio, fechaFin,
+                null, MAX_LIMITE_HISTORIAL);
+        if (pagina.isHayMas()) {
+            log.info("Historial de reservas recortado a las {} más recientes", MAX_LIMITE_HISTORIAL);
+        }
+        return pagina.getReservas();
+    }
+
+    /**
+     * Historial de reservas paginado por keyset sobre (fecha, horaInicio, id). El coste de
+     * cada página no depende de lo lejos que esté del principio del historial.
+     */
+    @Transactional(readOnly = true)
+    public HistorialReservasPage obtenerHistorialPaginado(User user, UUID zonaId, LocalDate fechaInicio,
+                                                          LocalDate fechaFin, String cursor, int limite) {
+        log.info("Usuario {} obteniendo página del historial de reservas (cursor={})", user.getEmail(), cursor);
         
-        // Validar que el usuario es presidente
         if (user.getRole() != Role.PRESIDENTE) {
             throw new RuntimeException("Solo el presidente puede consultar el historial de reservas");
         }
-
+        
+        int tamanio = Math.max(1, Math.min(limite, MAX_LIMITE_HISTORIAL));
+        // Se pide un elemento más para saber si hay página siguiente
+        PageRequest pagina = PageRequest.of(0, tamanio + 1);
         Community community = user.getCommunity();
-        List<Reserva> reservas = reservaRepository.findHistorialReservas(community, zonaId, fechaInicio, fechaFin);
         
-        log.info("Encontradas {} reservas en el historial", reservas.size());
+        List<ReservaFilaDTO> reservas;
+        if (cursor == null || cursor.isBlank()) {
+            reservas = reservaRepository.findHistorialPrimeraPagina(community, zonaId, fechaInicio, fechaFin, pagina);
+        } else {
+            String[] partes = decodificarCursor(cursor);
+            reservas = reservaRepository.findHistorialDespuesDe(community, zonaId, fechaInicio, fechaFin,
+                    LocalDate.parse(partes[0]), LocalTime.parse(partes[1]), UUID.fromString(partes[2]), pagina);
+        }
         
-        return reservas.stream()
+        boolean hayMas = reservas.size() > tamanio;
+        if (hayMas) {
+            reservas = reservas.subList(0, tamanio);
+        }
+        
+        String siguienteCursor = null;
+        if (hayMas) {
+            ReservaFilaDTO ultima = reservas.get(reservas.size() - 1);
+            siguienteCursor = codificarCursor(ultima);
+        }
+        
+        List<ReservaResponse> respuesta = reservas.stream()
                 .map(reserva -> convertToResponse(reserva, user))
                 .collect(Collectors.toList());
+        
+        return new HistorialReservasPage(respuesta, siguienteCursor, hayMas);
+    }
+
+    private static String codificarCursor(ReservaFilaDTO reserva) {
+        String valor = reserva.getFecha() + "|" + reserva.getHoraInicio() + "|" + reserva.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = valor.split("\\|");
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Formato de cursor inesperado");
+            }
+            return partes;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor de paginación no válido");
+        }
     }
 
     private void validarFechaYHora(ReservaRequest request) {
@@ -154,36 +419,55 @@ public class ReservaService {
         }
     }
 
+    private void validarHorarioZona(HorarioZona horario, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        HorarioZona.Sorteo sorteo = horario.sorteo(fecha);
+        if (sorteo != null) {
+            throw new RuntimeException(mensajeSorteo(sorteo));
+        }
+        int inicio = HorarioZona.minutos(horaInicio);
+        int fin = HorarioZona.minutos(horaFin);
+        if (!horario.dentroDeHorario(inicio, fin)) {
+            throw new RuntimeException(mensajeFueraDeHorario(horario));
+        }
+        String motivo = horario.motivoBloqueo(fecha, inicio, fin);
+        if (motivo != null) {
+            throw new RuntimeException("La zona común no está disponible en ese horario: " + motivo);
+        }
+    }
+
+    private static String mensajeSorteo(HorarioZona.Sorteo sorteo) {
+        return "Las reservas de esta zona para esa fecha se asignan por sorteo: envía tu solicitud entre el " +
+                sorteo.apertura() + " y el " + sorteo.cierre();
+    }
+
+    private static String mensajeFueraDeHorario(HorarioZona horario) {
+        return "La reserva debe estar dentro del horario de la zona común (" +
+                horario.horaApertura() + " - " + horario.horaCierre() + ")";
+    }
+
     private void validarConflictosHorarios(ZonaComun zonaComun, ReservaRequest request) {
         List<Reserva> conflictos = reservaRepository.findConflictingReservations(
                 zonaComun, request.getFecha(), request.getHoraInicio(), request.getHoraFin());
         
         if (!conflictos.isEmpty()) {
-            throw new RuntimeException("Ya existe una reserva en ese horario para la zona común");
+            throw new ReservaConflictoException("Ya existe una reserva en ese horario para la zona común");
         }
     }
 
     private void validarLimitesReservas(User user, ZonaComun zonaComun, LocalDate fecha) {
-        // Verificar límite por zona para la fecha específica
-        int reservasEnZona = reservaRepository.countActiveReservasByUsuarioAndZonaAndFecha(user, zonaComun, fecha);
-        if (reservasEnZona >= limiteReservasPorZona) {
-            throw new RuntimeException("Has alcanzado el límite de reservas para esta zona común en esta fecha (" + 
-                    limiteReservasPorZona + ")");
-        }
-
-        // Verificar límite total del usuario (comentado para permitir reservas en diferentes fechas)
-        // int reservasTotal = reservaRepository.countActiveReservasByUsuario(user);
-        // if (reservasTotal >= limiteReservasPorUsuario) {
-        //     throw new RuntimeException("Has alcanzado el límite de reservas activas totales (" + 
-        //             limiteReservasPorUsuario + ")");
-        // }
+        // Límite por zona y fecha y límite total del usuario, contra los cupos en memoria;
+        // si caben, el cupo queda descontado hasta que termine la transacción
+        String motivo = cupoReservasService.reservar(user.getId(), zonaComun.getId(), fecha);
+        if (motivo != null) {
+            throw new RuntimeException(motivo);
+        }
     }
 
     @Transactional(readOnly = true)
     public List<MisReservasResponse> obtenerMisReservas(User user) {
         log.info("Usuario {} obteniendo sus reservas", user.getEmail());
         
-        List<Reserva> reservas = reservaRepository.findByUsuarioOrderByFechaDesc(user);
+        List<ReservaFilaDTO> reservas = reservaRepository.findByUsuarioOrderByFechaDesc(user);
         
         log.info("Encontradas {} reservas para el usuario", reservas.size());
         
@@ -201,10 +485,11 @@ public class ReservaService {
         ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(zonaId, user.getCommunity())
                 .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
 
-        List<Reserva> reservas = reservaRepository.findByZonaComunAndFechaAndEstadoActiva(zonaComun, fecha);
+        List<ReservaFilaDTO> reservas = reservaRepository.findNoCanceladasByZonaComunAndFecha(zonaComun, fecha);
         
-        // Generar horarios disponibles (de 8:00 a 22:00, en bloques de 2 horas)
-        List<String> horasDisponibles = generarHorasDisponibles(reservas);
+        // Generar horarios disponibles según el horario de la zona
+        List<String> horasDisponibles = generarHorasDisponibles(
+                horarioZonaService.obtenerHorario(zonaComun), zonaComun.getId(), fecha);
         
         List<CalendarioReservasResponse.ReservaCalendarioDTO> reservasCalendario = reservas.stream()
                 .map(reserva -> convertToReservaCalendario(reserva, user))
@@ -234,7 +519,7 @@ public class ReservaService {
             fechaFin = fechaInicio.plusDays(7);
         }
         
-        List<Reserva> reservas = reservaRepository.findReservasComunidadByFechaRange(
+        List<ReservaFilaDTO> reservas = reservaRepository.findReservasComunidadByFechaRange(
                 community, fechaInicio, fechaFin);
         
         log.info("Encontradas {} reservas en la comunidad", reservas.size());
@@ -244,6 +529,166 @@ public class ReservaService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Ocupación por zona y día de la comunidad en un rango (por defecto el mes actual),
+     * calculada con una única consulta agregada.
+     */
+    @Transactional(readOnly = true)
+    public OcupacionReservasResponse obtenerOcupacion(User user, LocalDate fechaInicio, LocalDate fechaFin) {
+        log.info("Usuario {} obteniendo ocupación de la comunidad del {} al {}", 
+                user.getEmail(), fechaInicio, fechaFin);
+        
+        if (fechaInicio == null) {
+            fechaInicio = LocalDate.now().withDayOfMonth(1);
+        }
+        if (fechaFin == null) {
+            fechaFin = fechaInicio.with(TemporalAdjusters.lastDayOfMonth());
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new RuntimeException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+        if (ChronoUnit.DAYS.between(fechaInicio, fechaFin) > MAX_DIAS_OCUPACION) {
+            throw new RuntimeException("El rango de fechas no puede superar " + MAX_DIAS_OCUPACION + " días");
+        }
+        
+        Community community = user.getCommunity();
+        List<ZonaComun> zonas = zonaComunRepository.findByCommunityOrderByNombre(community);
+        
+        Map<UUID, HorarioZona> horarios = new HashMap<>();
+        for (ZonaComun zona : zonas) {
+            horarios.put(zona.getId(), horarioZonaService.obtenerHorario(zona));
+        }
+        
+        Map<UUID, Map<LocalDate, OcupacionReservasResponse.OcupacionDia>> ocupacionPorZona = new HashMap<>();
+        for (ReservaRepository.OcupacionAgregada fila : 
+                reservaRepository.findOcupacionComunidad(community, fechaInicio, fechaFin)) {
+            HorarioZona horario = horarios.get(fila.getZonaId());
+            if (horario == null) {
+                continue;
+            }
+            OcupacionReservasResponse.OcupacionDia dia = ocupacionPorZona
+                    .computeIfAbsent(fila.getZonaId(), id -> new TreeMap<>())
+                    .computeIfAbsent(fila.getFecha(), f -> new OcupacionReservasResponse.OcupacionDia());
+            dia.setReservas(dia.getReservas() + fila.getTotal().intValue());
+            dia.setMascara(dia.getMascara() | 
+                    horario.mascaraDeIntervalo(fila.getHoraInicio(), fila.getHoraFin()));
+        }
+        
+        List<OcupacionReservasResponse.OcupacionZona> ocupacionZonas = zonas.stream()
+                .map(zona -> new OcupacionReservasResponse.OcupacionZona(
+                        zona.getId(),
+                        zona.getNombre(),
+                        horarios.get(zona.getId()).etiquetas(),
+                        ocupacionPorZona.getOrDefault(zona.getId(), Map.of())))
+                .collect(Collectors.toList());
+        
+        return new OcupacionReservasResponse(fechaInicio, fechaFin, ocupacionZonas);
+    }
+
+    /**
+     * Primeras franjas libres de un conjunto de zonas (por defecto todas las de la comunidad)
+     * en un rango de fechas (por defecto los próximos 7 días), opcionalmente dentro de una
+     * banda horaria. La ocupación de todo el rango sale de una única consulta agregada y se
+     * recorre día a día cruzándola con el horario compilado de cada zona.
+     */
+    @Transactional(readOnly = true)
+    public ProximosHuecosResponse buscarProximosHuecos(User user, List<UUID> zonaIds, LocalDate fechaInicio,
+                                                       LocalDate fechaFin, LocalTime horaDesde, LocalTime horaHasta,
+                                                       int limite) {
+        log.info("Usuario {} buscando huecos libres del {} al {} en zonas {}",
+                user.getEmail(), fechaInicio, fechaFin, zonaIds);
+
+        LocalDate hoy = LocalDate.now();
+        if (fechaInicio == null || fechaInicio.isBefore(hoy)) {
+            fechaInicio = hoy;
+        }
+        if (fechaFin == null) {
+            fechaFin = fechaInicio.plusDays(6);
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new RuntimeException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+        if (ChronoUnit.DAYS.between(fechaInicio, fechaFin) > MAX_DIAS_BUSQUEDA) {
+            throw new RuntimeException("El rango de fechas no puede superar " + MAX_DIAS_BUSQUEDA + " días");
+        }
+        if (horaDesde != null && horaHasta != null && !horaHasta.isAfter(horaDesde)) {
+            throw new RuntimeException("La hora de fin debe ser posterior a la hora de inicio");
+        }
+        int tamanio = Math.max(1, Math.min(limite, MAX_LIMITE_HUECOS));
+        int desde = horaDesde != null ? HorarioZona.minutos(horaDesde) : 0;
+        int hasta = horaHasta != null ? HorarioZona.minutos(horaHasta) : 24 * 60;
+
+        Community community = user.getCommunity();
+        List<ZonaComun> zonas = zonaComunRepository.findByCommunityOrderByNombre(community);
+        if (zonaIds != null && !zonaIds.isEmpty()) {
+            Set<UUID> pedidas = new HashSet<>(zonaIds);
+            zonas = zonas.stream().filter(zona -> pedidas.contains(zona.getId())).collect(Collectors.toList());
+            if (zonas.size() != pedidas.size()) {
+                throw new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad");
+            }
+        }
+
+        Map<UUID, HorarioZona> horarios = new HashMap<>();
+        for (ZonaComun zona : zonas) {
+            horarios.put(zona.getId(), horarioZonaService.obtenerHorario(zona));
+        }
+
+        // Intervalos reservados (con su número de reservas) por zona y fecha en todo el rango
+        Map<UUID, Map<LocalDate, List<ReservaRepository.OcupacionAgregada>>> ocupacion = new HashMap<>();
+        for (ReservaRepository.OcupacionAgregada fila :
+                reservaRepository.findOcupacionComunidad(community, fechaInicio, fechaFin)) {
+            if (horarios.containsKey(fila.getZonaId())) {
+                ocupacion.computeIfAbsent(fila.getZonaId(), id -> new HashMap<>())
+                        .computeIfAbsent(fila.getFecha(), f -> new ArrayList<>())
+                        .add(fila);
+            }
+        }
+
+        int ahora = HorarioZona.minutos(LocalTime.now());
+        List<ProximosHuecosResponse.Hueco> huecos = new ArrayList<>();
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin) && huecos.size() < tamanio;
+             fecha = fecha.plusDays(1)) {
+            List<ProximosHuecosResponse.Hueco> delDia = new ArrayList<>();
+            for (ZonaComun zona : zonas) {
+                HorarioZona horario = horarios.get(zona.getId());
+                if (horario.sorteo(fecha) != null) {
+                    continue;
+                }
+                long bloqueadas = horario.mascaraBloqueada(fecha);
+                List<ReservaRepository.OcupacionAgregada> reservadas =
+                        ocupacion.getOrDefault(zona.getId(), Map.of()).getOrDefault(fecha, List.of());
+                for (int i = 0; i < horario.numFranjas(); i++) {
+                    int inicio = horario.inicioFranja(i);
+                    int fin = horario.finFranja(i);
+                    if (inicio < desde || fin > hasta || HorarioZona.estaOcupada(bloqueadas, i)
+                            || (fecha.equals(hoy) && inicio < ahora)) {
+                        continue;
+                    }
+                    int plazasLibres = horario.capacidad() - reservasEnIntervalo(reservadas, inicio, fin);
+                    if (plazasLibres > 0) {
+                        delDia.add(new ProximosHuecosResponse.Hueco(zona.getId(), zona.getNombre(), fecha,
+                                horario.horaInicioFranja(i), horario.horaFinFranja(i), plazasLibres));
+                    }
+                }
+            }
+            // Las zonas se recorren por nombre, así que basta un orden estable por hora de inicio
+            delDia.sort(Comparator.comparing(ProximosHuecosResponse.Hueco::getHoraInicio));
+            huecos.addAll(delDia.subList(0, Math.min(delDia.size(), tamanio - huecos.size())));
+        }
+
+        return new ProximosHuecosResponse(fechaInicio, fechaFin, huecos);
+    }
+
+    private static int reservasEnIntervalo(List<ReservaRepository.OcupacionAgregada> reservadas, int inicio, int fin) {
+        int total = 0;
+        for (ReservaRepository.OcupacionAgregada fila : reservadas) {
+            if (HorarioZona.minutos(fila.getHoraInicio()) < fin && HorarioZona.minutos(fila.getHoraFin()) > inicio) {
+                total += fila.getTotal().intValue();
+            }
+        }
+        return total;
+    }
+
     @Transactional(readOnly = true)
     public HorariosDisponiblesResponse obtenerHorariosDisponibles(User user, UUID zonaId, LocalDate fecha) {
         log.info("Usuario {} obteniendo horarios disponibles para zona {} el {}", 
@@ -253,9 +698,10 @@ public class ReservaService {
         ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(zonaId, user.getCommunity())
                 .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
 
-        List<Reserva> reservasExistentes = reservaRepository.findByZonaComunAndFechaAndEstadoActiva(zonaComun, fecha);
-        
-        List<HorariosDisponiblesResponse.HorarioDisponible> horarios = generarHorariosCompletos(reservasExistentes, fecha);
+        // La ocupación se sirve desde memoria (índice de disponibilidad o contadores de plazas)
+        // y la rejilla desde el horario compilado
+        List<HorariosDisponiblesResponse.HorarioDisponible> horarios = generarHorariosCompletos(
+                horarioZonaService.obtenerHorario(zonaComun), zonaComun.getId(), fecha);
         
         return new HorariosDisponiblesResponse(
                 zonaComun.getId(),
@@ -266,60 +712,80 @@ public class ReservaService {
     }
 
     private List<HorariosDisponiblesResponse.HorarioDisponible> generarHorariosCompletos(
-            List<Reserva> reservasExistentes, LocalDate fecha) {
-        
-        List<String[]> horariosCompletos = List.of(
-                new String[]{"08:00", "10:00"},
-                new String[]{"10:00", "12:00"},
-                new String[]{"12:00", "14:00"},
-                new String[]{"14:00", "16:00"},
-                new String[]{"16:00", "18:00"},
-                new String[]{"18:00", "20:00"},
-                new String[]{"20:00", "22:00"}
-        );
+            HorarioZona horario, UUID zonaId, LocalDate fecha) {
         
-        return horariosCompletos.stream()
-                .map(horario -> {
-                    String horaInicio = horario[0];
-                    String horaFin = horario[1];
-                    
-                    boolean disponible = reservasExistentes.stream()
-                            .noneMatch(r -> r.getHoraInicio().toString().equals(horaInicio));
-                    
-                    String motivo = null;
-                    if (!disponible) {
-                        motivo = "Ya reservado";
-                    } else if (fecha.equals(LocalDate.now()) && 
-                               LocalTime.parse(horaInicio).isBefore(LocalTime.now())) {
-                        disponible = false;
-                        motivo = "Hora pasada";
-                    } else if (fecha.isBefore(LocalDate.now())) {
-                        disponible = false;
-                        motivo = "Fecha pasada";
-                    }
-                    
-                    return new HorariosDisponiblesResponse.HorarioDisponible(
-                            horaInicio, horaFin, disponible, motivo
-                    );
-                })
-                .collect(Collectors.toList());
+        int[] plazasOcupadas = plazasOcupadasPorFranja(horario, zonaId, fecha);
+        List<HorariosDisponiblesResponse.HorarioDisponible> horarios = new ArrayList<>(horario.numFranjas());
+        LocalDate hoy = LocalDate.now();
+        int ahora = HorarioZona.minutos(LocalTime.now());
+        boolean porSorteo = horario.sorteo(fecha) != null;
+        
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            int inicio = horario.inicioFranja(i);
+            int fin = horario.finFranja(i);
+            int plazasLibres = Math.max(0, horario.capacidad() - plazasOcupadas[i]);
+            
+            boolean disponible = true;
+            String motivo = null;
+            String motivoBloqueo;
+            if (plazasLibres == 0) {
+                disponible = false;
+                motivo = horario.conPlazas() ? "Completo" : "Ya reservado";
+            } else if ((motivoBloqueo = horario.motivoBloqueo(fecha, inicio, fin)) != null) {
+                disponible = false;
+                motivo = motivoBloqueo;
+            } else if (porSorteo) {
+                disponible = false;
+                motivo = "Asignación por sorteo";
+            } else if (fecha.equals(hoy) && inicio < ahora) {
+                disponible = false;
+                motivo = "Hora pasada";
+            } else if (fecha.isBefore(hoy)) {
+                disponible = false;
+                motivo = "Fecha pasada";
+            }
+            
+            horarios.add(new HorariosDisponiblesResponse.HorarioDisponible(
+                    horario.horaInicioFranja(i).toString(), horario.horaFinFranja(i).toString(), disponible, motivo,
+                    horario.capacidad(), plazasLibres
+            ));
+        }
+        
+        return horarios;
     }
 
-    private List<String> generarHorasDisponibles(List<Reserva> reservasExistentes) {
-        List<String> todasLasHoras = List.of(
-                "08:00", "10:00", "12:00", "14:00", "16:00", "18:00", "20:00"
-        );
-        
-        List<String> horasOcupadas = reservasExistentes.stream()
-                .map(r -> r.getHoraInicio().toString())
-                .collect(Collectors.toList());
-        
-        return todasLasHoras.stream()
-                .filter(hora -> !horasOcupadas.contains(hora))
-                .collect(Collectors.toList());
+    private List<String> generarHorasDisponibles(HorarioZona horario, UUID zonaId, LocalDate fecha) {
+        if (horario.sorteo(fecha) != null) {
+            return new ArrayList<>();
+        }
+        int[] plazasOcupadas = plazasOcupadasPorFranja(horario, zonaId, fecha);
+        long bloqueadas = horario.mascaraBloqueada(fecha);
+        List<String> horas = new ArrayList<>();
+        for (int i = 0; i < horario.numFranjas(); i++) {
+            if (plazasOcupadas[i] < horario.capacidad() && !HorarioZona.estaOcupada(bloqueadas, i)) {
+                horas.add(horario.etiquetas().get(i));
+            }
+        }
+        return horas;
+    }
+
+    /**
+     * Plazas ocupadas por franja: contadores de plazas en las zonas con capacidad y, en
+     * las de uso exclusivo, 1 si alguna reserva se solapa con la franja
+     */
+    private int[] plazasOcupadasPorFranja(HorarioZona horario, UUID zonaId, LocalDate fecha) {
+        if (horario.conPlazas()) {
+            return plazasService.obtenerOcupadas(zonaId, horario, fecha);
+        }
+        IntervalosOcupados ocupados = disponibilidadIndex.obtenerOcupacion(zonaId, fecha);
+        int[] plazasOcupadas = new int[horario.numFranjas()];
+        for (int i = 0; i < plazasOcupadas.length; i++) {
+            plazasOcupadas[i] = ocupados.solapa(horario.inicioFranja(i), horario.finFranja(i)) ? 1 : 0;
+        }
+        return plazasOcupadas;
     }
 
-    private CalendarioReservasResponse.ReservaCalendarioDTO convertToReservaCalendario(Reserva reserva, User currentUser) {
+    private CalendarioReservasResponse.ReservaCalendarioDTO convertToReservaCalendario(ReservaFilaDTO reserva, User currentUser) {
         CalendarioReservasResponse.ReservaCalendarioDTO dto = new CalendarioReservasResponse.ReservaCalendarioDTO();
         dto.setId(reserva.getId());
         dto.setHoraInicio(reserva.getHoraInicio().toString());
@@ -327,13 +793,13 @@ public class ReservaService {
         
         // Mostrar nombre solo si es el presidente o la reserva es propia
         if (currentUser.getRole() == Role.PRESIDENTE || 
-            currentUser.getId().equals(reserva.getUsuario().getId())) {
-            dto.setUsuarioNombre(reserva.getUsuario().getFullName());
+            currentUser.getId().equals(reserva.getUsuarioId())) {
+            dto.setUsuarioNombre(reserva.getUsuarioNombre());
         } else {
             dto.setUsuarioNombre("Reservado");
         }
         
-        dto.setEsPropia(currentUser.getId().equals(reserva.getUsuario().getId()));
+        dto.setEsPropia(currentUser.getId().equals(reserva.getUsuarioId()));
         dto.setPuedeCancelar(
             dto.isEsPropia() && 
             reserva.getEstado() == EstadoReserva.ACTIVA &&
@@ -343,11 +809,11 @@ public class ReservaService {
         return dto;
     }
 
-    private MisReservasResponse convertToMisReservasResponse(Reserva reserva) {
+    private MisReservasResponse convertToMisReservasResponse(ReservaFilaDTO reserva) {
         MisReservasResponse response = new MisReservasResponse();
         response.setId(reserva.getId());
-        response.setZonaComunId(reserva.getZonaComun().getId());
-        response.setZonaComunNombre(reserva.getZonaComun().getNombre());
+        response.setZonaComunId(reserva.getZonaComunId());
+        response.setZonaComunNombre(reserva.getZonaComunNombre());
         response.setFecha(reserva.getFecha());
         response.setHoraInicio(reserva.getHoraInicio());
         response.setHoraFin(reserva.getHoraFin());
@@ -376,12 +842,12 @@ public class ReservaService {
         return response;
     }
 
-    private ReservaResponse convertToResponse(Reserva reserva, User currentUser) {
+    private ReservaResponse convertToResponse(ReservaFilaDTO reserva, User currentUser) {
         ReservaResponse response = new ReservaResponse();
         response.setId(reserva.getId());
-        response.setZonaComunId(reserva.getZonaComun().getId());
-        response.setZonaComunNombre(reserva.getZonaComun().getNombre());
-        response.setUsuarioId(reserva.getUsuario().getId());
+        response.setZonaComunId(reserva.getZonaComunId());
+        response.setZonaComunNombre(reserva.getZonaComunNombre());
+        response.setUsuarioId(reserva.getUsuarioId());
         response.setFecha(reserva.getFecha());
         response.setHoraInicio(reserva.getHoraInicio());
         response.setHoraFin(reserva.getHoraFin());
@@ -391,10 +857,10 @@ public class ReservaService {
 
         // Datos del usuario que hizo la reserva (según el rol del usuario que consulta)
         if (currentUser.getRole() == Role.PRESIDENTE || 
-            currentUser.getId().equals(reserva.getUsuario().getId())) {
+            currentUser.getId().equals(reserva.getUsuarioId())) {
             // El presidente y el dueño de la reserva pueden ver todos los datos
-            response.setUsuarioNombre(reserva.getUsuario().getFullName());
-            response.setUsuarioEmail(reserva.getUsuario().getEmail());
+            response.setUsuarioNombre(reserva.getUsuarioNombre());
+            response.setUsuarioEmail(reserva.getUsuarioEmail());
         } else {
             // Otros usuarios solo ven datos básicos
             response.setUsuarioNombre("Reservado");
@@ -404,7 +870,7 @@ public class ReservaService {
         // Solo el usuario que hizo la reserva puede cancelarla (vecino o presidente)
         response.setPuedeCancelar(
             (currentUser.getRole() == Role.VECINO || currentUser.getRole() == Role.PRESIDENTE) && 
-            currentUser.getId().equals(reserva.getUsuario().getId()) &&
+            currentUser.getId().equals(reserva.getUsuarioId()) &&
             reserva.getEstado() == EstadoReserva.ACTIVA &&
             !LocalDateTime.of(reserva.getFecha(), reserva.getHoraInicio()).isBefore(LocalDateTime.now())
         );
@@ -0,0 +1,144 @@
+package com.micomunity.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda temporal jerárquica: programa y cancela tareas en O(1) y, al avanzar, devuelve
+ * las que han vencido.
+ *
+ * Hay NIVELES ruedas de 64 ranuras; una ranura del nivel n abarca 64^n ticks. Cada
+ * tarea se cuelga de la ranura del nivel más bajo que alcanza su instante y, cuando el
+ * nivel inferior da la vuelta, las tareas de la ranura correspondiente del nivel superior
+ * se redistribuyen hacia abajo. Las ranuras son listas doblemente enlazadas intrusivas,
+ * de modo que cancelar es desenganchar un nodo.
+ *
+ * No es segura entre hilos: quien la usa debe sincronizar el acceso.
+ */
+public final class RuedaTemporal<T> {
+
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int MASCARA = RANURAS - 1;
+    private static final int NIVELES = 4;
+
+    private final long tickMs;
+    private final Tarea<T>[][] ranuras;
+    private long tickActual;
+    private int pendientes;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporal(long tickMs, long ahoraMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("El tick debe ser positivo");
+        }
+        this.tickMs = tickMs;
+        this.tickActual = ahoraMs / tickMs;
+        this.ranuras = new Tarea[NIVELES][RANURAS];
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            for (int i = 0; i < RANURAS; i++) {
+                Tarea<T> cabecera = new Tarea<>(0, null);
+                cabecera.anterior = cabecera;
+                cabecera.siguiente = cabecera;
+                ranuras[nivel][i] = cabecera;
+            }
+        }
+    }
+
+    /**
+     * Programa un valor para el instante indicado (ms desde epoch). Los instantes ya
+     * pasados vencen en el siguiente avance.
+     */
+    public Tarea<T> programar(long instanteMs, T valor) {
+        Tarea<T> tarea = new Tarea<>(Math.max(instanteMs / tickMs, tickActual + 1), valor);
+        colgar(tarea);
+        pendientes++;
+        return tarea;
+    }
+
+    /**
+     * Cancela una tarea programada; no hace nada si ya venció o se canceló
+     */
+    public void cancelar(Tarea<T> tarea) {
+        if (tarea != null && tarea.siguiente != null) {
+            descolgar(tarea);
+            pendientes--;
+        }
+    }
+
+    /**
+     * Avanza la rueda hasta el instante indicado y devuelve los valores vencidos, en orden de vencimiento
+     */
+    public List<T> avanzar(long ahoraMs) {
+        long objetivo = ahoraMs / tickMs;
+        List<T> vencidas = new ArrayList<>();
+        while (tickActual < objetivo) {
+            tickActual++;
+            // Al dar la vuelta un nivel se baja la ranura que toca del nivel superior
+            for (int nivel = 1; nivel < NIVELES && (tickActual & ((1L << (BITS * nivel)) - 1)) == 0; nivel++) {
+                redistribuir(ranuras[nivel][(int) ((tickActual >>> (BITS * nivel)) & MASCARA)]);
+            }
+            Tarea<T> cabecera = ranuras[0][(int) (tickActual & MASCARA)];
+            while (cabecera.siguiente != cabecera) {
+                Tarea<T> tarea = cabecera.siguiente;
+                descolgar(tarea);
+                pendientes--;
+                vencidas.add(tarea.valor);
+            }
+        }
+        return vencidas;
+    }
+
+    public int pendientes() {
+        return pendientes;
+    }
+
+    private void redistribuir(Tarea<T> cabecera) {
+        while (cabecera.siguiente != cabecera) {
+            Tarea<T> tarea = cabecera.siguiente;
+            descolgar(tarea);
+            colgar(tarea);
+        }
+    }
+
+    private void colgar(Tarea<T> tarea) {
+        long delta = tarea.tick - tickActual;
+        int nivel = 0;
+        while (nivel < NIVELES - 1 && delta >= (1L << (BITS * (nivel + 1)))) {
+            nivel++;
+        }
+        long tick = tarea.tick;
+        if (delta >= (1L << (BITS * NIVELES))) {
+            // Más allá del horizonte de la rueda: se aparca en la última ranura alcanzable y se redistribuye al llegar
+            tick = tickActual + (1L << (BITS * NIVELES)) - 1;
+        }
+        Tarea<T> cabecera = ranuras[nivel][(int) ((tick >>> (BITS * nivel)) & MASCARA)];
+        tarea.anterior = cabecera.anterior;
+        tarea.siguiente = cabecera;
+        cabecera.anterior.siguiente = tarea;
+        cabecera.anterior = tarea;
+    }
+
+    private void descolgar(Tarea<T> tarea) {
+        tarea.anterior.siguiente = tarea.siguiente;
+        tarea.siguiente.anterior = tarea.anterior;
+        tarea.anterior = null;
+        tarea.siguiente = null;
+    }
+
+    /**
+     * Nodo de una tarea programada (sirve de referencia para cancelarla)
+     */
+    public static final class Tarea<T> {
+
+        private final long tick;
+        private final T valor;
+        private Tarea<T> anterior;
+        private Tarea<T> siguiente;
+
+        private Tarea(long tick, T valor) {
+            this.tick = tick;
+            this.valor = valor;
+        }
+    }
+}
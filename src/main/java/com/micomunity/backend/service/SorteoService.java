@@ -0,0 +1,352 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.ReservaRequest;
+import com.micomunity.backend.dto.SolicitudSorteoResponse;
+import com.micomunity.backend.dto.VentanaSorteoRequest;
+import com.micomunity.backend.dto.VentanaSorteoResponse;
+import com.micomunity.backend.event.HorarioZonaModificadoEvent;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.model.*;
+import com.micomunity.backend.repository.ReservaRepository;
+import com.micomunity.backend.repository.SolicitudSorteoRepository;
+import com.micomunity.backend.repository.VentanaSorteoRepository;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Asignación por sorteo de las reservas de una zona común.
+ *
+ * Mientras una ventana está abierta las solicitudes solo se insertan, sin bloqueos ni
+ * comprobaciones contra otras reservas. Al cerrar, un único nodo reclama la ventana y
+ * la resuelve en una pasada: baraja a los participantes con una semilla que queda
+ * guardada y, por rondas, da a cada uno su siguiente solicitud si cabe y no supera el
+ * límite de reservas por zona y día. Las reservas ganadoras se insertan en lote.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SorteoService {
+
+    private static final int MAX_DIAS_SORTEO = 93;
+    private static final int TAMANIO_LOTE_IDS = 1000;
+
+    private final VentanaSorteoRepository ventanaSorteoRepository;
+    private final SolicitudSorteoRepository solicitudSorteoRepository;
+    private final ZonaComunRepository zonaComunRepository;
+    private final ReservaRepository reservaRepository;
+    private final HorarioZonaService horarioZonaService;
+    private final PlazasService plazasService;
+    private final CupoReservasService cupoReservasService;
+    private final ReservaLockManager reservaLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Transactional
+    public VentanaSorteoResponse crearVentana(User user, VentanaSorteoRequest request) {
+        log.info("Usuario {} creando ventana de sorteo para zona {}", user.getEmail(), request.getZonaComunId());
+
+        if (user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo el presidente puede crear sorteos de reservas");
+        }
+        if (!request.getCierre().isAfter(request.getApertura())) {
+            throw new RuntimeException("El cierre de solicitudes debe ser posterior a la apertura");
+        }
+        if (!request.getCierre().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("El cierre de solicitudes debe ser futuro");
+        }
+        if (request.getFechaHasta().isBefore(request.getFechaDesde())) {
+            throw new RuntimeException("La fecha final debe ser posterior a la fecha inicial");
+        }
+        if (request.getFechaDesde().isBefore(LocalDate.now())) {
+            throw new RuntimeException("No se pueden sortear fechas pasadas");
+        }
+        if (ChronoUnit.DAYS.between(request.getFechaDesde(), request.getFechaHasta()) > MAX_DIAS_SORTEO) {
+            throw new RuntimeException("El rango de fechas no puede superar " + MAX_DIAS_SORTEO + " días");
+        }
+
+        ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(request.getZonaComunId(), user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+
+        boolean solapada = ventanaSorteoRepository.findPendientesByZona(zonaComun.getId()).stream()
+                .anyMatch(v -> !request.getFechaDesde().isAfter(v.getFechaHasta())
+                        && !request.getFechaHasta().isBefore(v.getFechaDesde()));
+        if (solapada) {
+            throw new RuntimeException("Ya hay un sorteo pendiente para esas fechas en la zona común");
+        }
+
+        VentanaSorteo ventana = new VentanaSorteo(null, zonaComun, request.getApertura(), request.getCierre(),
+                request.getFechaDesde(), request.getFechaHasta(), EstadoVentanaSorteo.PENDIENTE, null, null, null);
+        ventana = ventanaSorteoRepository.save(ventana);
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
+
+        log.info("Ventana de sorteo creada: ID={} para zona {} ({} a {})", ventana.getId(),
+                zonaComun.getNombre(), ventana.getFechaDesde(), ventana.getFechaHasta());
+        return convertToResponse(ventana);
+    }
+
+    @Transactional
+    public void eliminarVentana(User user, UUID ventanaId) {
+        log.info("Usuario {} eliminando ventana de sorteo {}", user.getEmail(), ventanaId);
+
+        if (user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo el presidente puede eliminar sorteos de reservas");
+        }
+        VentanaSorteo ventana = ventanaSorteoRepository.findByIdAndCommunity(ventanaId, user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Sorteo no encontrado"));
+        if (ventana.getEstado() != EstadoVentanaSorteo.PENDIENTE) {
+            throw new RuntimeException("No se puede eliminar un sorteo ya resuelto");
+        }
+
+        solicitudSorteoRepository.deleteByVentana(ventana);
+        ventanaSorteoRepository.delete(ventana);
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(ventana.getZonaComun().getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<VentanaSorteoResponse> obtenerVentanas(User user) {
+        return ventanaSorteoRepository.findByCommunity(user.getCommunity()).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Registra una solicitud en la ventana abierta de la zona. Solo se consulta la zona
+     * (el horario y la ventana salen del horario compilado) y se inserta la solicitud.
+     */
+    @Transactional
+    public SolicitudSorteoResponse solicitar(User user, ReservaRequest request) {
+        log.info("Usuario {} solicitando reserva por sorteo en zona {}", user.getEmail(), request.getZonaComunId());
+
+        if (user.getRole() != Role.VECINO && user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo los vecinos y el presidente pueden realizar reservas");
+        }
+        if (!request.getHoraFin().isAfter(request.getHoraInicio())) {
+            throw new RuntimeException("La hora de fin debe ser posterior a la hora de inicio");
+        }
+
+        ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(request.getZonaComunId(), user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        HorarioZona.Sorteo sorteo = horario.sorteo(request.getFecha());
+        if (sorteo == null) {
+            throw new RuntimeException("Esa fecha no se asigna por sorteo, puedes reservarla directamente");
+        }
+        if (!sorteo.admiteSolicitudes(LocalDateTime.now())) {
+            throw new RuntimeException("El plazo de solicitudes para esa fecha es del " + sorteo.apertura() +
+                    " al " + sorteo.cierre());
+        }
+        int inicio = HorarioZona.minutos(request.getHoraInicio());
+        int fin = HorarioZona.minutos(request.getHoraFin());
+        if (!horario.dentroDeHorario(inicio, fin)) {
+            throw new RuntimeException("La reserva debe estar dentro del horario de la zona común (" +
+                    horario.horaApertura() + " - " + horario.horaCierre() + ")");
+        }
+        String motivoBloqueo = horario.motivoBloqueo(request.getFecha(), inicio, fin);
+        if (motivoBloqueo != null) {
+            throw new RuntimeException("La zona común no está disponible en ese horario: " + motivoBloqueo);
+        }
+
+        VentanaSorteo ventana = ventanaSorteoRepository.getReferenceById(sorteo.ventanaId());
+        SolicitudSorteo solicitud;
+        try {
+            solicitud = solicitudSorteoRepository.saveAndFlush(new SolicitudSorteo(ventana, user,
+                    request.getFecha(), request.getHoraInicio(), request.getHoraFin()));
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Ya has enviado una solicitud para esa franja");
+        }
+
+        return new SolicitudSorteoResponse(solicitud.getId(), sorteo.ventanaId(), zonaComun.getId(),
+                zonaComun.getNombre(), solicitud.getFecha(), solicitud.getHoraInicio(), solicitud.getHoraFin(),
+                solicitud.getFechaCreacion(), sorteo.cierre(), null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SolicitudSorteoResponse> obtenerMisSolicitudes(User user) {
+        return solicitudSorteoRepository.findByUsuarioDesde(user, LocalDate.now()).stream()
+                .map(solicitud -> new SolicitudSorteoResponse(
+                        solicitud.getId(),
+                        solicitud.getVentana().getId(),
+                        solicitud.getVentana().getZonaComun().getId(),
+                        solicitud.getVentana().getZonaComun().getNombre(),
+                        solicitud.getFecha(),
+                        solicitud.getHoraInicio(),
+                        solicitud.getHoraFin(),
+                        solicitud.getFechaCreacion(),
+                        solicitud.getVentana().getCierre(),
+                        solicitud.getResultado()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resuelve las ventanas cuyo plazo de solicitudes ha terminado
+     */
+    @Scheduled(fixedDelayString = "${reservas.sorteos.intervalo-ms:60000}")
+    public void resolverVentanasCerradas() {
+        List<VentanaSorteo> cerradas;
+        try {
+            cerradas = ventanaSorteoRepository.findPendientesCerradas(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Error al buscar sorteos pendientes: {}", e.getMessage(), e);
+            return;
+        }
+        for (VentanaSorteo ventana : cerradas) {
+            try {
+                resolver(ventana);
+            } catch (Exception e) {
+                log.error("Error al resolver el sorteo {}: {}", ventana.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void resolver(VentanaSorteo ventana) {
+        ZonaComun zonaComun = ventana.getZonaComun();
+        List<LocalDate> fechas = ventana.getFechaDesde().datesUntil(ventana.getFechaHasta().plusDays(1))
+                .collect(Collectors.toList());
+
+        Integer asignadas = reservaLockManager.conBloqueos(zonaComun.getId(), fechas,
+                () -> transactionTemplate.execute(status -> resolverEnTransaccion(ventana, zonaComun, fechas)));
+
+        if (asignadas != null) {
+            log.info("Sorteo {} de zona {} resuelto: {} reservas asignadas",
+                    ventana.getId(), zonaComun.getNombre(), asignadas);
+        }
+    }
+
+    private Integer resolverEnTransaccion(VentanaSorteo ventana, ZonaComun zonaComun, List<LocalDate> fechas) {
+        long semilla = random.nextLong();
+        if (ventanaSorteoRepository.reclamarParaSorteo(ventana.getId(), LocalDateTime.now(), semilla) == 0) {
+            // Otro nodo ya lo ha resuelto
+            return null;
+        }
+
+        // Misma exclusión entre nodos que las altas, en orden ascendente de clave
+        fechas.stream()
+                .map(fecha -> ReservaLockManager.claveAdvisory(zonaComun.getId(), fecha))
+                .sorted()
+                .distinct()
+                .forEach(reservaRepository::bloquearZonaFecha);
+
+        // Intervalos ya ocupados de la zona en el rango; los límites por usuario salen de sus cupos
+        Map<LocalDate, List<int[]>> ocupados = new HashMap<>();
+        for (ReservaRepository.IntervaloReserva reserva : reservaRepository.findIntervalosZonaEnRango(
+                zonaComun.getId(), ventana.getFechaDesde(), ventana.getFechaHasta())) {
+            ocupados.computeIfAbsent(reserva.getFecha(), f -> new ArrayList<>())
+                    .add(new int[]{HorarioZona.minutos(reserva.getHoraInicio()), HorarioZona.minutos(reserva.getHoraFin())});
+        }
+
+        // Solicitudes agrupadas por participante, conservando su orden de envío
+        VentanaSorteo referencia = ventanaSorteoRepository.getReferenceById(ventana.getId());
+        Map<Long, ArrayDeque<SolicitudSorteo>> porParticipante = new LinkedHashMap<>();
+        for (SolicitudSorteo solicitud : solicitudSorteoRepository.findByVentanaOrdenadas(referencia)) {
+            porParticipante.computeIfAbsent(solicitud.getUsuario().getId(), id -> new ArrayDeque<>()).add(solicitud);
+        }
+        List<Long> participantes = new ArrayList<>(porParticipante.keySet());
+        Collections.shuffle(participantes, new Random(semilla));
+
+        HorarioZona horario = horarioZonaService.obtenerHorario(zonaComun);
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Reserva> ganadoras = new ArrayList<>();
+        List<UUID> solicitudesGanadoras = new ArrayList<>();
+
+        // Rondas: en cada una, cada participante (en el orden sorteado) opta a su siguiente solicitud
+        boolean quedan = true;
+        while (quedan) {
+            quedan = false;
+            for (Long participante : participantes) {
+                ArrayDeque<SolicitudSorteo> pendientes = porParticipante.get(participante);
+                SolicitudSorteo solicitud = pendientes.poll();
+                if (solicitud == null) {
+                    continue;
+                }
+                quedan = quedan || !pendientes.isEmpty();
+
+                LocalDate fecha = solicitud.getFecha();
+                int inicio = HorarioZona.minutos(solicitud.getHoraInicio());
+                int fin = HorarioZona.minutos(solicitud.getHoraFin());
+                if (LocalDateTime.of(fecha, solicitud.getHoraInicio()).isBefore(ahora)
+                        || horario.motivoBloqueo(fecha, inicio, fin) != null
+                        || (!horario.conPlazas() && solapa(ocupados.get(fecha), inicio, fin))
+                        || cupoReservasService.reservar(participante, zonaComun.getId(), fecha) != null) {
+                    continue;
+                }
+                // Zonas con capacidad: se asigna mientras queden plazas en todas las franjas de la solicitud
+                if (horario.conPlazas() && !plazasService.ocupar(zonaComun.getId(), horario, fecha,
+                        solicitud.getHoraInicio(), solicitud.getHoraFin())) {
+                    cupoReservasService.devolver(participante, zonaComun.getId(), fecha);
+                    continue;
+                }
+
+                ocupados.computeIfAbsent(fecha, f -> new ArrayList<>()).add(new int[]{inicio, fin});
+                ganadoras.add(new Reserva(zonaComun, solicitud.getUsuario(), fecha,
+                        solicitud.getHoraInicio(), solicitud.getHoraFin()));
+                solicitudesGanadoras.add(solicitud.getId());
+            }
+        }
+
+        // Inserción en lote (hibernate.jdbc.batch_size)
+        for (Reserva reserva : reservaRepository.saveAll(ganadoras)) {
+            eventPublisher.publishEvent(ReservaModificadaEvent.creada(reserva));
+        }
+        solicitudSorteoRepository.marcarNoAsignadas(referencia);
+        for (int i = 0; i < solicitudesGanadoras.size(); i += TAMANIO_LOTE_IDS) {
+            solicitudSorteoRepository.marcarAsignadas(
+                    solicitudesGanadoras.subList(i, Math.min(i + TAMANIO_LOTE_IDS, solicitudesGanadoras.size())));
+        }
+        ventanaSorteoRepository.registrarAsignadas(ventana.getId(), ganadoras.size());
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
+
+        return ganadoras.size();
+    }
+
+    private static boolean solapa(List<int[]> intervalos, int inicio, int fin) {
+        if (intervalos == null) {
+            return false;
+        }
+        for (int[] intervalo : intervalos) {
+            if (inicio < intervalo[1] && fin > intervalo[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private VentanaSorteoResponse convertToResponse(VentanaSorteo ventana) {
+        return new VentanaSorteoResponse(
+                ventana.getId(),
+                ventana.getZonaComun().getId(),
+                ventana.getZonaComun().getNombre(),
+                ventana.getApertura(),
+                ventana.getCierre(),
+                ventana.getFechaDesde(),
+                ventana.getFechaHasta(),
+                ventana.getEstado(),
+                ventana.getAsignadas(),
+                ventana.getSemilla()
+        );
+    }
+}
@@ -0,0 +1,239 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.UsoZonasResponse;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.model.Community;
+import com.micomunity.backend.model.Role;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.ZonaComun;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Estadísticas de utilización de las zonas comunes por día de la semana y hora.
+ *
+ * La tabla uso_franjas guarda, por (zona, fecha, hora), cuántas reservas empiezan en
+ * esa hora y cuántos minutos reservados caen en ella. Cada alta o cancelación suma o
+ * resta su parte en la misma transacción que la reserva: los cambios de una transacción
+ * se acumulan y se escriben de una vez justo antes del commit, de modo que una reserva
+ * recurrente genera un único lote. El mapa de calor lee solo la tabla agregada, así que
+ * su coste depende del rango pedido y no del tamaño del historial de reservas.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UsoZonasService {
+
+    private static final int DIAS_POR_DEFECTO = 90;
+
+    private static final String SQL_SUMAR =
+            "INSERT INTO uso_franjas (zona_comun_id, fecha, hora, reservas, minutos) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (zona_comun_id, fecha, hora) DO UPDATE SET " +
+            "reservas = uso_franjas.reservas + EXCLUDED.reservas, minutos = uso_franjas.minutos + EXCLUDED.minutos";
+
+    private static final String SQL_MAPA =
+            "SELECT u.zona_comun_id, EXTRACT(ISODOW FROM u.fecha)::INTEGER AS dia, u.hora, " +
+            "SUM(u.reservas) AS reservas, SUM(u.minutos) AS minutos " +
+            "FROM uso_franjas u JOIN zonas_comunes z ON z.id = u.zona_comun_id " +
+            "WHERE z.community_id = ? AND u.fecha BETWEEN ? AND ? ";
+
+    private static final String SQL_MAPA_AGRUPAR = "GROUP BY u.zona_comun_id, dia, u.hora";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ZonaComunRepository zonaComunRepository;
+    private final HorarioZonaService horarioZonaService;
+
+    /**
+     * Acumula el uso de la reserva creada o cancelada; se escribe antes del commit de su transacción
+     */
+    @EventListener
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        int signo = event.getTipo() == ReservaModificadaEvent.Tipo.CREADA ? 1 : -1;
+        Map<ClaveHora, int[]> cambios = cambiosDeLaTransaccion();
+        acumular(cambios, event.getZonaComunId(), event.getFecha(), event.getHoraInicio(), event.getHoraFin(), signo);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escribir(cambios);
+        }
+    }
+
+    /**
+     * Borra el uso agregado de una zona (al eliminarla)
+     */
+    public void eliminarUso(UUID zonaId) {
+        jdbcTemplate.update("DELETE FROM uso_franjas WHERE zona_comun_id = ?", zonaId);
+    }
+
+    @Transactional(readOnly = true)
+    public UsoZonasResponse obtenerMapaUso(User user, UUID zonaId, LocalDate fechaInicio, LocalDate fechaFin) {
+        log.info("Usuario {} obteniendo utilización de zonas del {} al {}", user.getEmail(), fechaInicio, fechaFin);
+
+        if (user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException("Solo el presidente puede consultar las estadísticas de uso");
+        }
+        if (fechaFin == null) {
+            fechaFin = LocalDate.now();
+        }
+        if (fechaInicio == null) {
+            fechaInicio = fechaFin.minusDays(DIAS_POR_DEFECTO - 1);
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new RuntimeException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+
+        Community community = user.getCommunity();
+        List<ZonaComun> zonas;
+        if (zonaId != null) {
+            zonas = List.of(zonaComunRepository.findByIdAndCommunity(zonaId, community)
+                    .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad")));
+        } else {
+            zonas = zonaComunRepository.findByCommunityOrderByNombre(community);
+        }
+
+        // (zona -> (día, hora) -> {reservas, minutos})
+        Map<UUID, Map<Integer, long[]>> usoPorZona = new HashMap<>();
+        String sql = SQL_MAPA + (zonaId != null ? "AND u.zona_comun_id = ? " : "") + SQL_MAPA_AGRUPAR;
+        Object[] args = zonaId != null
+                ? new Object[]{community.getId(), Date.valueOf(fechaInicio), Date.valueOf(fechaFin), zonaId}
+                : new Object[]{community.getId(), Date.valueOf(fechaInicio), Date.valueOf(fechaFin)};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> usoPorZona
+                .computeIfAbsent(rs.getObject("zona_comun_id", UUID.class), z -> new HashMap<>())
+                .put(rs.getInt("dia") * 24 + rs.getInt("hora"),
+                        new long[]{rs.getLong("reservas"), rs.getLong("minutos")}), args);
+
+        int[] diasPorSemana = diasPorDiaSemana(fechaInicio, fechaFin);
+        List<UsoZonasResponse.UsoZona> resultado = new ArrayList<>();
+        for (ZonaComun zona : zonas) {
+            HorarioZona horario = horarioZonaService.obtenerHorario(zona);
+            int[] minutosAbiertos = minutosAbiertosPorHora(horario.horaApertura(), horario.horaCierre());
+            Map<Integer, long[]> uso = usoPorZona.getOrDefault(zona.getId(), Map.of());
+
+            List<UsoZonasResponse.CeldaUso> celdas = new ArrayList<>();
+            long totalReservas = 0;
+            long minutosReservados = 0;
+            long minutosDisponibles = 0;
+            for (int dia = 1; dia <= 7; dia++) {
+                for (int hora = 0; hora < 24; hora++) {
+                    long[] fila = uso.get(dia * 24 + hora);
+                    long disponibles = (long) diasPorSemana[dia] * minutosAbiertos[hora] * horario.capacidad();
+                    if (fila == null && disponibles == 0) {
+                        continue;
+                    }
+                    long reservas = fila != null ? fila[0] : 0;
+                    long minutos = fila != null ? fila[1] : 0;
+                    celdas.add(new UsoZonasResponse.CeldaUso(dia, hora, reservas, minutos,
+                            disponibles > 0 ? (double) minutos / disponibles : null));
+                    totalReservas += reservas;
+                    minutosReservados += minutos;
+                    minutosDisponibles += disponibles;
+                }
+            }
+            resultado.add(new UsoZonasResponse.UsoZona(zona.getId(), zona.getNombre(), horario.capacidad(),
+                    totalReservas, minutosDisponibles > 0 ? (double) minutosReservados / minutosDisponibles : null,
+                    celdas));
+        }
+
+        return new UsoZonasResponse(fechaInicio, fechaFin, resultado);
+    }
+
+    private void escribir(Map<ClaveHora, int[]> cambios) {
+        List<Object[]> filas = new ArrayList<>(cambios.size());
+        for (Map.Entry<ClaveHora, int[]> cambio : cambios.entrySet()) {
+            int[] delta = cambio.getValue();
+            if (delta[0] != 0 || delta[1] != 0) {
+                ClaveHora clave = cambio.getKey();
+                filas.add(new Object[]{clave.zonaId(), Date.valueOf(clave.fecha()), clave.hora(), delta[0], delta[1]});
+            }
+        }
+        cambios.clear();
+        if (!filas.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_SUMAR, filas);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<ClaveHora, int[]> cambiosDeLaTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new LinkedHashMap<>();
+        }
+        Map<ClaveHora, int[]> cambios = (Map<ClaveHora, int[]>) TransactionSynchronizationManager.getResource(this);
+        if (cambios != null) {
+            return cambios;
+        }
+        Map<ClaveHora, int[]> nuevos = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                escribir(nuevos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(UsoZonasService.this);
+            }
+        });
+        return nuevos;
+    }
+
+    /**
+     * Reparte el intervalo de una reserva entre las horas que toca: la reserva cuenta en
+     * la hora en que empieza y sus minutos en cada hora que ocupa
+     */
+    static void acumular(Map<ClaveHora, int[]> cambios, UUID zonaId, LocalDate fecha,
+                         LocalTime horaInicio, LocalTime horaFin, int signo) {
+        int inicio = HorarioZona.minutos(horaInicio);
+        int fin = HorarioZona.minutos(horaFin);
+        for (int hora = inicio / 60; hora * 60 < fin; hora++) {
+            int minutos = Math.min(fin, (hora + 1) * 60) - Math.max(inicio, hora * 60);
+            int[] delta = cambios.computeIfAbsent(new ClaveHora(zonaId, fecha, hora), c -> new int[2]);
+            if (hora == inicio / 60) {
+                delta[0] += signo;
+            }
+            delta[1] += signo * minutos;
+        }
+    }
+
+    private static int[] minutosAbiertosPorHora(LocalTime apertura, LocalTime cierre) {
+        int inicio = HorarioZona.minutos(apertura);
+        int fin = HorarioZona.minutos(cierre);
+        int[] abiertos = new int[24];
+        for (int hora = inicio / 60; hora < 24 && hora * 60 < fin; hora++) {
+            abiertos[hora] = Math.min(fin, (hora + 1) * 60) - Math.max(inicio, hora * 60);
+        }
+        return abiertos;
+    }
+
+    // Número de fechas del rango que caen en cada día de la semana (índice 1 = lunes)
+    private static int[] diasPorDiaSemana(LocalDate fechaInicio, LocalDate fechaFin) {
+        long dias = ChronoUnit.DAYS.between(fechaInicio, fechaFin) + 1;
+        int[] resultado = new int[8];
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            int desplazamiento = Math.floorMod(dia.getValue() - fechaInicio.getDayOfWeek().getValue(), 7);
+            resultado[dia.getValue()] = dias > desplazamiento ? (int) ((dias - desplazamiento - 1) / 7 + 1) : 0;
+        }
+        return resultado;
+    }
+
+    record ClaveHora(UUID zonaId, LocalDate fecha, int hora) {
+    }
+}
@@ -1,18 +1,30 @@
 package com.micomunity.backend.service;
 
+import com.micomunity.backend.dto.BloqueoZonaRequest;
+import com.micomunity.backend.dto.BloqueoZonaResponse;
+import com.micomunity.backend.dto.HorarioZonaRequest;
 import com.micomunity.backend.dto.ZonaComunRequest;
 import com.micomunity.backend.dto.ZonaComunResponse;
+import com.micomunity.backend.event.HorarioZonaModificadoEvent;
+import com.micomunity.backend.model.BloqueoZona;
 import com.micomunity.backend.model.Community;
 import com.micomunity.backend.model.Role;
 import com.micomunity.backend.model.User;
 import com.micomunity.backend.model.ZonaComun;
+import com.micomunity.backend.repository.BloqueoZonaRepository;
+import com.micomunity.backend.repository.ListaEsperaReservaRepository;
 import com.micomunity.backend.repository.ReservaRepository;
+import com.micomunity.backend.repository.SolicitudSorteoRepository;
+import com.micomunity.backend.repository.VentanaSorteoRepository;
 import com.micomunity.backend.repository.ZonaComunRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -24,6 +36,13 @@ public class ZonaComunService {
 
     private final ZonaComunRepository zonaComunRepository;
     private final ReservaRepository reservaRepository;
+    private final BloqueoZonaRepository bloqueoZonaRepository;
+    private final ListaEsperaReservaRepository listaEsperaRepository;
+    private final SolicitudSorteoRepository solicitudSorteoRepository;
+    private final VentanaSorteoRepository ventanaSorteoRepository;
+    private final PlazasService plazasService;
+    private final UsoZonasService usoZonasService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ZonaComunResponse crearZonaComun(User user, ZonaComunRequest request) {
@@ -46,6 +65,12 @@ public class ZonaComunService {
 
         // Crear la zona común
         ZonaComun zonaComun = new ZonaComun(request.getNombre(), community);
+        if (request.getHoraApertura() != null || request.getHoraCierre() != null
+                || request.getDuracionFranjaMinutos() != null) {
+            aplicarHorario(zonaComun, request.getHoraApertura(), request.getHoraCierre(),
+                    request.getDuracionFranjaMinutos());
+        }
+        zonaComun.setCapacidad(request.getCapacidad());
         zonaComun = zonaComunRepository.save(zonaComun);
 
         log.info("Zona común creada exitosamente: ID={}, Nombre={}", zonaComun.getId(), zonaComun.getNombre());
@@ -71,7 +96,14 @@ public class ZonaComunService {
             throw new RuntimeException("No se puede eliminar la zona común porque tiene reservas futuras activas");
         }
 
+        bloqueoZonaRepository.deleteByZonaComun(zonaComun);
+        listaEsperaRepository.deleteByZonaComun(zonaComun);
+        solicitudSorteoRepository.deleteByZonaComun(zonaComun);
+        ventanaSorteoRepository.deleteByZonaComun(zonaComun);
+        plazasService.eliminarContadores(zonaComun.getId());
+        usoZonasService.eliminarUso(zonaComun.getId());
         zonaComunRepository.delete(zonaComun);
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
         log.info("Zona común eliminada exitosamente: ID={}, Nombre={}", zonaComun.getId(), zonaComun.getNombre());
     }
 
@@ -94,6 +126,111 @@ public class ZonaComunService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Cambia el horario de reservas de una zona. Las reservas ya hechas se mantienen
+     * aunque queden fuera del nuevo horario o superen la nueva capacidad.
+     */
+    @Transactional
+    public ZonaComunResponse actualizarHorario(User user, UUID zonaId, HorarioZonaRequest request) {
+        log.info("Usuario {} actualizando horario de zona común {}", user.getEmail(), zonaId);
+        
+        ZonaComun zonaComun = obtenerZonaDelPresidente(user, zonaId, "Solo el presidente puede modificar el horario de las zonas comunes");
+        aplicarHorario(zonaComun, request.getHoraApertura(), request.getHoraCierre(), request.getDuracionFranjaMinutos());
+        if (request.getCapacidad() != null) {
+            zonaComun.setCapacidad(request.getCapacidad());
+        }
+        zonaComun = zonaComunRepository.save(zonaComun);
+        // Con otra rejilla u otra capacidad los contadores de plazas ya no valen
+        plazasService.reiniciarContadores(zonaComun.getId());
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
+        
+        log.info("Horario de zona {} actualizado: {}-{} en franjas de {} minutos", zonaComun.getNombre(),
+                zonaComun.getHoraApertura(), zonaComun.getHoraCierre(), zonaComun.getDuracionFranjaMinutos());
+        return convertToResponse(zonaComun, user);
+    }
+
+    @Transactional
+    public BloqueoZonaResponse crearBloqueo(User user, UUID zonaId, BloqueoZonaRequest request) {
+        log.info("Usuario {} creando bloqueo en zona común {}", user.getEmail(), zonaId);
+        
+        ZonaComun zonaComun = obtenerZonaDelPresidente(user, zonaId, "Solo el presidente puede bloquear zonas comunes");
+        
+        if ((request.getFecha() == null) == (request.getDiaSemana() == null)) {
+            throw new RuntimeException("Indica una fecha o un día de la semana para el bloqueo");
+        }
+        if (request.getFecha() != null && request.getFecha().isBefore(LocalDate.now())) {
+            throw new RuntimeException("No se pueden crear bloqueos en fechas pasadas");
+        }
+        if ((request.getHoraInicio() == null) != (request.getHoraFin() == null)) {
+            throw new RuntimeException("Indica la hora de inicio y de fin del bloqueo, o ninguna para todo el día");
+        }
+        if (request.getHoraInicio() != null && !request.getHoraFin().isAfter(request.getHoraInicio())) {
+            throw new RuntimeException("La hora de fin debe ser posterior a la hora de inicio");
+        }
+        
+        BloqueoZona bloqueo = new BloqueoZona(null, zonaComun, request.getFecha(), request.getDiaSemana(),
+                request.getHoraInicio(), request.getHoraFin(), request.getMotivo());
+        bloqueo = bloqueoZonaRepository.save(bloqueo);
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
+        
+        log.info("Bloqueo creado en zona {}: ID={}", zonaComun.getNombre(), bloqueo.getId());
+        return convertToBloqueoResponse(bloqueo);
+    }
+
+    @Transactional
+    public void eliminarBloqueo(User user, UUID zonaId, UUID bloqueoId) {
+        log.info("Usuario {} eliminando bloqueo {} de zona común {}", user.getEmail(), bloqueoId, zonaId);
+        
+        ZonaComun zonaComun = obtenerZonaDelPresidente(user, zonaId, "Solo el presidente puede desbloquear zonas comunes");
+        BloqueoZona bloqueo = bloqueoZonaRepository.findByIdAndZonaComun(bloqueoId, zonaComun)
+                .orElseThrow(() -> new RuntimeException("Bloqueo no encontrado"));
+        
+        bloqueoZonaRepository.delete(bloqueo);
+        eventPublisher.publishEvent(new HorarioZonaModificadoEvent(zonaComun.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<BloqueoZonaResponse> obtenerBloqueos(User user, UUID zonaId) {
+        ZonaComun zonaComun = zonaComunRepository.findByIdAndCommunity(zonaId, user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+        
+        return bloqueoZonaRepository.findByZonaComunOrdenados(zonaComun).stream()
+                .map(this::convertToBloqueoResponse)
+                .collect(Collectors.toList());
+    }
+
+    private ZonaComun obtenerZonaDelPresidente(User user, UUID zonaId, String mensajeRol) {
+        if (user.getRole() != Role.PRESIDENTE) {
+            throw new RuntimeException(mensajeRol);
+        }
+        return zonaComunRepository.findByIdAndCommunity(zonaId, user.getCommunity())
+                .orElseThrow(() -> new RuntimeException("Zona común no encontrada o no pertenece a tu comunidad"));
+    }
+
+    private void aplicarHorario(ZonaComun zonaComun, LocalTime horaApertura, LocalTime horaCierre,
+                                Integer duracionFranjaMinutos) {
+        LocalTime apertura = horaApertura != null ? horaApertura : HorarioZona.APERTURA_POR_DEFECTO;
+        LocalTime cierre = horaCierre != null ? horaCierre : HorarioZona.CIERRE_POR_DEFECTO;
+        int duracion = duracionFranjaMinutos != null ? duracionFranjaMinutos : HorarioZona.DURACION_FRANJA_POR_DEFECTO;
+        HorarioZona.validar(apertura, cierre, duracion);
+        
+        zonaComun.setHoraApertura(apertura);
+        zonaComun.setHoraCierre(cierre);
+        zonaComun.setDuracionFranjaMinutos(duracion);
+    }
+
+    private BloqueoZonaResponse convertToBloqueoResponse(BloqueoZona bloqueo) {
+        return new BloqueoZonaResponse(
+                bloqueo.getId(),
+                bloqueo.getZonaComun().getId(),
+                bloqueo.getFecha(),
+                bloqueo.getDiaSemana(),
+                bloqueo.getHoraInicio(),
+                bloqueo.getHoraFin(),
+                bloqueo.getMotivo()
+        );
+    }
+
     private ZonaComunResponse convertToResponse(ZonaComun zonaComun, User currentUser) {
         ZonaComunResponse response = new ZonaComunResponse();
         response.setId(zonaComun.getId());
@@ -104,6 +241,14 @@ public class ZonaComunService {
         // Solo el presidente puede eliminar zonas comunes
         response.setPuedeEliminar(currentUser.getRole() == Role.PRESIDENTE);
         
+        response.setHoraApertura(zonaComun.getHoraApertura() != null
+                ? zonaComun.getHoraApertura() : HorarioZona.APERTURA_POR_DEFECTO);
+        response.setHoraCierre(zonaComun.getHoraCierre() != null
+                ? zonaComun.getHoraCierre() : HorarioZona.CIERRE_POR_DEFECTO);
+        response.setDuracionFranjaMinutos(zonaComun.getDuracionFranjaMinutos() != null
+                ? zonaComun.getDuracionFranjaMinutos() : HorarioZona.DURACION_FRANJA_POR_DEFECTO);
+        response.setCapacidad(zonaComun.getCapacidad() != null ? zonaComun.getCapacidad() : 1);
+        
         return response;
     }
 } 
\ No newline at end of file
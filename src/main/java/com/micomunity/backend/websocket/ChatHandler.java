@@ -1,65 +1,132 @@
 package com.micomunity.backend.websocket;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.micomunity.backend.dto.ChatMessageDTO;
+import com.micomunity.backend.dto.HistorialChatDTO;
+import com.micomunity.backend.dto.PresenciaChatDTO;
+import com.micomunity.backend.event.MensajeChatEvent;
+import com.micomunity.backend.event.PresenciaChatEvent;
 import com.micomunity.backend.model.ChatMessage;
-import com.micomunity.backend.model.Community;
 import com.micomunity.backend.service.ChatService;
+import com.micomunity.backend.service.PresenciaChatService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+/**
+ * Chat de comunidad (/ws/chat, requiere ?token=<JWT>).
+ *
+ * Cada sesión queda ligada en el handshake a la comunidad de su usuario y se registra
+ * en la sala de esa comunidad; los mensajes se guardan con su comunidad y solo se
+ * reparten a las sesiones de la misma sala, de modo que el coste de cada envío depende
+ * del tamaño de la sala y no del total de conexiones del servidor. Los mensajes no se
+ * reparten al recibirlos sino cuando los entrega el bus del chat (MensajeChatEvent), que
+ * también trae los escritos en otros nodos.
+ *
+ * Nada se escribe en el socket desde el hilo que recibe el mensaje: cada sesión tiene
+ * una cola de salida acotada (ColaSalida) que vacía el ejecutor chatEnvioExecutor, con
+ * límites de tiempo de envío y de bytes pendientes y una política configurable para los
+ * clientes lentos (chat.envio.*).
+ *
+ * Cada payload saliente se serializa una sola vez en un TextMessage inmutable que se
+ * comparte entre todos los destinatarios, y los avisos fijos del sistema se preparan al
+ * arrancar. Los clientes que se conectan con ?protocolo=2 reciben el historial en un
+ * único frame "historial_lote"; sin el parámetro se mantiene el protocolo original de un
+ * frame "historial" por mensaje.
+ *
+ * Las conexiones y desconexiones no se anuncian una a una: las registra
+ * PresenciaChatService, que publica periódicamente los cambios acumulados de cada
+ * comunidad y se reparten a la sala en un único frame "presencia".
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ChatHandler implements WebSocketHandler {
 
     private final ChatService chatService;
+    private final PresenciaChatService presenciaChatService;
     private final ObjectMapper objectMapper;
+    @Qualifier("chatEnvioExecutor")
+    private final Executor chatEnvioExecutor;
     
-    // Mapa para guardar todas las sesiones activas
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    @Value("${chat.envio.limite-tiempo-ms:5000}")
+    private long limiteEnvioMs;
     
-    // Mapa para asociar sesiones con comunidades (si implementas multi-community)
+    @Value("${chat.envio.limite-buffer-bytes:262144}")
+    private int limiteBufferBytes;
+    
+    @Value("${chat.envio.politica:DESCARTAR_ANTIGUOS}")
+    private ColaSalida.Politica politicaConsumidorLento;
+    
+    // Frames fijos, serializados una vez al arrancar
+    private TextMessage avisoResincronizar;
+    
+    // Colas de salida de las sesiones abiertas de cada comunidad (una sala por comunidad)
+    private final Map<Long, Map<String, ColaSalida>> salas = new ConcurrentHashMap<>();
+    
+    // Comunidad de cada sesión, fijada en el handshake
     private final Map<String, Long> sessionToCommunity = new ConcurrentHashMap<>();
     
     // Configuración: número de mensajes del historial
     private static final int HISTORY_LIMIT = 50;
+    
+    // Versiones del protocolo del cliente (parámetro "protocolo" de la URL)
+    public static final String PARAM_PROTOCOLO = "protocolo";
+    public static final int PROTOCOLO_ORIGINAL = 1;
+    public static final int PROTOCOLO_HISTORIAL_LOTE = 2;
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
-        sessions.put(sessionId, session);
+        Long communityId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_COMMUNITY_ID);
+        if (communityId == null) {
+            log.warn("Conexión de chat sin comunidad asociada: {}", sessionId);
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        ColaSalida cola = new ColaSalida(session, chatEnvioExecutor, limiteEnvioMs, limiteBufferBytes,
+                politicaConsumidorLento, avisoResincronizar);
+        sessionToCommunity.put(sessionId, communityId);
+        salas.computeIfAbsent(communityId, id -> new ConcurrentHashMap<>()).put(sessionId, cola);
         
-        log.info("Nueva conexión WebSocket establecida: {}", sessionId);
+        log.info("Nueva conexión WebSocket establecida: {} (comunidad {})", sessionId, communityId);
         
         // Obtener IP del cliente
         String clientIp = getClientIpAddress(session);
         log.debug("IP del cliente: {}", clientIp);
         
         // Enviar historial de mensajes al nuevo usuario
-        enviarHistorial(session);
-        
-        // Notificar a otros usuarios que alguien se conectó (opcional)
-        ChatMessageDTO connectionMessage = new ChatMessageDTO();
-        connectionMessage.setTipo("usuario_conectado");
-        connectionMessage.setContenido("Un usuario se ha conectado al chat");
-        connectionMessage.setUsuarioNombre("Sistema");
+        enviarHistorial(cola, communityId, leerProtocolo(session));
         
-        broadcastMessage(connectionMessage, sessionId); // No enviar al usuario que se acaba de conectar
+        // La sala se entera en el siguiente intervalo de presencia, junto con el resto de cambios
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        if (userId != null) {
+            presenciaChatService.conectar(communityId, userId,
+                    (String) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_NAME));
+        }
     }
 
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
         String sessionId = session.getId();
         String payload = message.getPayload().toString();
+        Long communityId = sessionToCommunity.get(sessionId);
+        if (communityId == null) {
+            return;
+        }
         
         log.info("Mensaje recibido de {}: {}", sessionId, payload);
         
@@ -74,33 +141,26 @@ public class ChatHandler implements WebSocketHandler {
                 // Es texto plano
                 messageDTO = new ChatMessageDTO();
                 messageDTO.setContenido(payload);
-                messageDTO.setUsuarioNombre("Usuario"); // Nombre por defecto
                 messageDTO.setTipo("mensaje");
             }
             
+            // El autor es el usuario autenticado en el handshake
+            String usuarioNombre = (String) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_NAME);
+            if (usuarioNombre == null) {
+                usuarioNombre = messageDTO.getUsuarioNombre();
+            }
+            
             // Obtener IP del cliente
             String clientIp = getClientIpAddress(session);
             
-            // Guardar mensaje en la base de datos
-            ChatMessage savedMessage = chatService.guardarMensaje(
+            // Guardar el mensaje; la sala lo recibe cuando lo entregue el bus (onMensajeChat)
+            chatService.guardarMensaje(
                 messageDTO.getContenido(), 
-                messageDTO.getUsuarioNombre(), 
+                usuarioNombre, 
                 clientIp,
-                null // Por ahora sin comunidad específica, se puede implementar después
-            );
-            
-            // Crear DTO para broadcast
-            ChatMessageDTO broadcastDTO = new ChatMessageDTO(
-                savedMessage.getId(),
-                savedMessage.getContenido(),
-                savedMessage.getUsuarioNombre(),
-                savedMessage.getTimestamp(),
-                "mensaje"
+                communityId
             );
             
-            // Retransmitir a todos los usuarios conectados
-            broadcastMessage(broadcastDTO, null); // null = enviar a todos
-            
         } catch (Exception e) {
             log.error("Error al procesar mensaje: {}", e.getMessage(), e);
             // Enviar mensaje de error al cliente
@@ -117,18 +177,49 @@ public class ChatHandler implements WebSocketHandler {
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
         String sessionId = session.getId();
-        sessions.remove(sessionId);
-        sessionToCommunity.remove(sessionId);
+        Long communityId = sessionToCommunity.remove(sessionId);
+        if (communityId == null) {
+            return;
+        }
+        quitarDeSala(communityId, sessionId);
         
         log.info("Conexión WebSocket cerrada: {} - Status: {}", sessionId, closeStatus);
         
-        // Notificar a otros usuarios que alguien se desconectó (opcional)
-        ChatMessageDTO disconnectionMessage = new ChatMessageDTO();
-        disconnectionMessage.setTipo("usuario_desconectado");
-        disconnectionMessage.setContenido("Un usuario se ha desconectado del chat");
-        disconnectionMessage.setUsuarioNombre("Sistema");
-        
-        broadcastMessage(disconnectionMessage, null);
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        if (userId != null) {
+            presenciaChatService.desconectar(communityId, userId);
+        }
+    }
+    
+    /**
+     * Reparte a la sala de su comunidad un mensaje entregado por el bus del chat
+     */
+    @EventListener
+    public void onMensajeChat(MensajeChatEvent event) {
+        ChatMessage mensaje = event.getMensaje();
+        ChatMessageDTO broadcastDTO = new ChatMessageDTO(
+            mensaje.getId(),
+            mensaje.getContenido(),
+            mensaje.getUsuarioNombre(),
+            mensaje.getTimestamp(),
+            "mensaje"
+        );
+        broadcastMessage(mensaje.getCommunityId(), broadcastDTO, null); // null = enviar a toda la sala
+    }
+    
+    /**
+     * Reparte a la sala los cambios de presencia acumulados en el último intervalo
+     */
+    @EventListener
+    public void onPresenciaChat(PresenciaChatEvent event) {
+        Map<String, ColaSalida> sala = salas.get(event.getCommunityId());
+        if (sala == null || sala.isEmpty()) {
+            return;
+        }
+        TextMessage frame = codificar(new PresenciaChatDTO("presencia", event.getConectados(), event.getDesconectados()));
+        if (frame != null) {
+            broadcastFrame(event.getCommunityId(), frame, null);
+        }
     }
 
     @Override
@@ -137,24 +228,25 @@ public class ChatHandler implements WebSocketHandler {
     }
     
     /**
-     * Envía el historial de mensajes a una sesión específica
+     * Envía el historial de mensajes de su comunidad a una sesión específica: en un único
+     * frame a los clientes del protocolo 2 y en un frame por mensaje a los antiguos
      */
-    private void enviarHistorial(WebSocketSession session) {
+    private void enviarHistorial(ColaSalida cola, Long communityId, int protocolo) {
         try {
-            List<ChatMessage> historial = chatService.obtenerHistorial(HISTORY_LIMIT);
+            // Desde memoria y ya serializado: ni consulta ni serialización por mensaje
+            List<RawValue> historial = chatService.obtenerHistorialReciente(communityId, HISTORY_LIMIT);
             
-            log.debug("Enviando {} mensajes del historial a {}", historial.size(), session.getId());
+            log.debug("Enviando {} mensajes del historial a {}", historial.size(), cola.sesion().getId());
             
-            for (ChatMessage mensaje : historial) {
-                ChatMessageDTO dto = new ChatMessageDTO(
-                    mensaje.getId(),
-                    mensaje.getContenido(),
-                    mensaje.getUsuarioNombre(),
-                    mensaje.getTimestamp(),
-                    "historial"
-                );
-                
-                enviarMensaje(session, dto);
+            if (protocolo >= PROTOCOLO_HISTORIAL_LOTE) {
+                TextMessage frame = codificar(new HistorialChatDTO("historial_lote", protocolo, historial));
+                if (frame != null) {
+                    cola.encolar(frame);
+                }
+            } else {
+                for (RawValue mensaje : historial) {
+                    cola.encolar(new TextMessage(mensaje.rawValue().toString()));
+                }
             }
             
         } catch (Exception e) {
@@ -163,41 +255,82 @@ public class ChatHandler implements WebSocketHandler {
     }
     
     /**
-     * Retransmite un mensaje a todos los usuarios conectados
+     * Retransmite un mensaje a los usuarios conectados de una comunidad
      */
-    private void broadcastMessage(ChatMessageDTO message, String excludeSessionId) {
-        String messageJson;
-        try {
-            messageJson = objectMapper.writeValueAsString(message);
-        } catch (Exception e) {
-            log.error("Error al serializar mensaje: {}", e.getMessage());
+    private void broadcastMessage(Long communityId, ChatMessageDTO message, String excludeSessionId) {
+        Map<String, ColaSalida> sala = salas.get(communityId);
+        if (sala == null || sala.isEmpty()) {
             return;
         }
         
-        sessions.forEach((sessionId, session) -> {
-            if (!sessionId.equals(excludeSessionId) && session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(messageJson));
-                } catch (IOException e) {
-                    log.error("Error al enviar mensaje a sesión {}: {}", sessionId, e.getMessage());
-                    // Remover sesión problemática
-                    sessions.remove(sessionId);
-                }
+        TextMessage frame = codificar(message);
+        if (frame != null) {
+            broadcastFrame(communityId, frame, excludeSessionId);
+        }
+    }
+    
+    /**
+     * Reparte a la sala un frame ya serializado; todos los destinatarios comparten la misma instancia
+     */
+    private void broadcastFrame(Long communityId, TextMessage frame, String excludeSessionId) {
+        Map<String, ColaSalida> sala = salas.get(communityId);
+        if (sala == null || sala.isEmpty()) {
+            return;
+        }
+        
+        sala.forEach((sessionId, cola) -> {
+            if (!sessionId.equals(excludeSessionId) && !cola.encolar(frame)) {
+                // Sesión cerrada o desconectada por lenta: afterConnectionClosed completa la limpieza
+                quitarDeSala(communityId, sessionId);
             }
         });
     }
     
     /**
-     * Envía un mensaje a una sesión específica
+     * Quita una sesión de la sala de su comunidad y elimina la sala si queda vacía
      */
-    private void enviarMensaje(WebSocketSession session, ChatMessageDTO message) {
-        if (session.isOpen()) {
-            try {
-                String messageJson = objectMapper.writeValueAsString(message);
-                session.sendMessage(new TextMessage(messageJson));
-            } catch (Exception e) {
-                log.error("Error al enviar mensaje a sesión {}: {}", session.getId(), e.getMessage());
-            }
+    private void quitarDeSala(Long communityId, String sessionId) {
+        salas.computeIfPresent(communityId, (id, sala) -> {
+            sala.remove(sessionId);
+            return sala.isEmpty() ? null : sala;
+        });
+    }
+    
+    /**
+     * Encola un mensaje para una sesión específica
+     */
+    private void enviarMensaje(ColaSalida cola, ChatMessageDTO message) {
+        TextMessage frame = codificar(message);
+        if (frame != null) {
+            cola.encolar(frame);
+        }
+    }
+    
+    /**
+     * Serializa un payload en un frame inmutable; null si no se puede serializar
+     */
+    private TextMessage codificar(Object payload) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(payload));
+        } catch (Exception e) {
+            log.error("Error al serializar mensaje: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Versión del protocolo declarada por el cliente al conectar (la original si no la indica)
+     */
+    private int leerProtocolo(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return PROTOCOLO_ORIGINAL;
+        }
+        String valor = UriComponentsBuilder.fromUri(session.getUri()).build()
+                .getQueryParams().getFirst(PARAM_PROTOCOLO);
+        try {
+            return valor != null ? Integer.parseInt(valor) : PROTOCOLO_ORIGINAL;
+        } catch (NumberFormatException e) {
+            return PROTOCOLO_ORIGINAL;
         }
     }
     
@@ -210,7 +343,34 @@ public class ChatHandler implements WebSocketHandler {
         errorDTO.setContenido(errorMessage);
         errorDTO.setUsuarioNombre("Sistema");
         
-        enviarMensaje(session, errorDTO);
+        ColaSalida cola = colaDe(session.getId());
+        if (cola != null) {
+            enviarMensaje(cola, errorDTO);
+        }
+    }
+    
+    private ColaSalida colaDe(String sessionId) {
+        Long communityId = sessionToCommunity.get(sessionId);
+        Map<String, ColaSalida> sala = communityId != null ? salas.get(communityId) : null;
+        return sala != null ? sala.get(sessionId) : null;
+    }
+    
+    /**
+     * Prepara los frames fijos del sistema. El aviso de resincronización sustituye, con la
+     * política COALESCER, a los mensajes pendientes de un cliente lento, que debe recargar
+     * el historial.
+     */
+    @PostConstruct
+    void prepararFrames() throws JsonProcessingException {
+        avisoResincronizar = frameSistema("resincronizar", "Se han perdido mensajes, recarga el historial");
+    }
+    
+    private TextMessage frameSistema(String tipo, String contenido) throws JsonProcessingException {
+        ChatMessageDTO aviso = new ChatMessageDTO();
+        aviso.setTipo(tipo);
+        aviso.setContenido(contenido);
+        aviso.setUsuarioNombre("Sistema");
+        return new TextMessage(objectMapper.writeValueAsString(aviso));
     }
     
     /**
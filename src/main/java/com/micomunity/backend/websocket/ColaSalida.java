@@ -0,0 +1,207 @@
+package com.micomunity.backend.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Cola de salida acotada de una sesión WebSocket.
+ *
+ * Encolar no bloquea: el frame se añade a la cola y, si no hay ya un envío en marcha,
+ * se lanza en el ejecutor de envíos una tarea que la vacía. Así solo hay un hilo
+ * escribiendo en cada sesión y un cliente lento no retiene el hilo que recibió el
+ * mensaje ni al resto de destinatarios. Cuando lo pendiente supera el límite de bytes
+ * se aplica la política de consumidor lento configurada.
+ *
+ * El propio envío está acotado: en las sesiones WebSocket nativas de Tomcat se fija el
+ * tiempo máximo de un envío bloqueante al límite de tiempo, así que un envío atascado
+ * falla, la sesión se cierra y el hilo del ejecutor queda libre. Para el resto de
+ * sesiones (p. ej. SockJS), un envío que lleva más del límite se detecta al encolar el
+ * siguiente frame y también se cierra la sesión.
+ */
+@Slf4j
+final class ColaSalida {
+
+    // Propiedad de sesión de Tomcat con el tiempo máximo (ms) de un envío bloqueante
+    private static final String TIMEOUT_ENVIO_TOMCAT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    /**
+     * Qué hacer cuando un cliente no consume a tiempo
+     */
+    enum Politica {
+        /** Se descartan los frames más antiguos hasta que el nuevo cabe */
+        DESCARTAR_ANTIGUOS,
+        /** Se sustituye todo lo pendiente por un único aviso de resincronización */
+        COALESCER,
+        /** Se cierra la sesión */
+        DESCONECTAR
+    }
+
+    private final WebSocketSession sesion;
+    private final Executor executor;
+    private final long limiteEnvioMs;
+    private final int limiteBytes;
+    private final Politica politica;
+    private final TextMessage avisoResincronizar;
+
+    // Protegido por el monitor de esta instancia
+    private final ArrayDeque<TextMessage> pendientes = new ArrayDeque<>();
+    private long bytesPendientes;
+    private boolean drenando;
+    private boolean cerrada;
+
+    // Instante en que empezó el envío en curso (0 = ninguno)
+    private volatile long envioIniciadoEn;
+
+    ColaSalida(WebSocketSession sesion, Executor executor, long limiteEnvioMs, int limiteBytes,
+               Politica politica, TextMessage avisoResincronizar) {
+        this.sesion = sesion;
+        this.executor = executor;
+        this.limiteEnvioMs = limiteEnvioMs;
+        this.limiteBytes = limiteBytes;
+        this.politica = politica;
+        this.avisoResincronizar = avisoResincronizar;
+        limitarEnvio(sesion, limiteEnvioMs);
+    }
+
+    WebSocketSession sesion() {
+        return sesion;
+    }
+
+    /**
+     * Encola un frame para la sesión. Devuelve false si la sesión está cerrada o se ha
+     * cerrado por no consumir a tiempo.
+     */
+    boolean encolar(TextMessage frame) {
+        long iniciado = envioIniciadoEn;
+        if (iniciado != 0 && System.currentTimeMillis() - iniciado > limiteEnvioMs) {
+            log.warn("Envío atascado más de {} ms en la sesión {}, se cierra", limiteEnvioMs, sesion.getId());
+            cerrar(CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+
+        boolean lanzar = false;
+        boolean desconectar = false;
+        synchronized (this) {
+            if (cerrada || !sesion.isOpen()) {
+                return false;
+            }
+            if (bytesPendientes + frame.getPayloadLength() > limiteBytes && !hacerSitio(frame)) {
+                cerrada = true;
+                pendientes.clear();
+                bytesPendientes = 0;
+                desconectar = true;
+            } else {
+                pendientes.addLast(frame);
+                bytesPendientes += frame.getPayloadLength();
+                lanzar = !drenando;
+                drenando = true;
+            }
+        }
+
+        if (desconectar) {
+            log.warn("La sesión {} no consume sus mensajes a tiempo, se cierra", sesion.getId());
+            cerrarSesion(CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+        if (lanzar) {
+            try {
+                executor.execute(this::drenar);
+            } catch (RejectedExecutionException e) {
+                log.error("Ejecutor de envíos saturado, se cierra la sesión {}", sesion.getId());
+                cerrar(CloseStatus.SERVICE_OVERLOAD);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cierra la cola y la sesión; los frames pendientes se descartan
+     */
+    void cerrar(CloseStatus estado) {
+        synchronized (this) {
+            cerrada = true;
+            pendientes.clear();
+            bytesPendientes = 0;
+        }
+        cerrarSesion(estado);
+    }
+
+    // Aplica la política de consumidor lento; false si hay que desconectar
+    private boolean hacerSitio(TextMessage nuevo) {
+        switch (politica) {
+            case DESCARTAR_ANTIGUOS -> {
+                while (!pendientes.isEmpty() && bytesPendientes + nuevo.getPayloadLength() > limiteBytes) {
+                    bytesPendientes -= pendientes.pollFirst().getPayloadLength();
+                }
+                return true;
+            }
+            case COALESCER -> {
+                // El cliente recibe el aviso y recarga el historial en lugar de los mensajes perdidos
+                pendientes.clear();
+                pendientes.addLast(avisoResincronizar);
+                bytesPendientes = avisoResincronizar.getPayloadLength();
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private void drenar() {
+        while (true) {
+            TextMessage frame;
+            synchronized (this) {
+                frame = pendientes.pollFirst();
+                if (frame == null || cerrada) {
+                    drenando = false;
+                    return;
+                }
+                bytesPendientes -= frame.getPayloadLength();
+            }
+            try {
+                envioIniciadoEn = System.currentTimeMillis();
+                sesion.sendMessage(frame);
+            } catch (Exception e) {
+                log.debug("Error al enviar a la sesión {}: {}", sesion.getId(), e.getMessage());
+                synchronized (this) {
+                    cerrada = true;
+                    pendientes.clear();
+                    bytesPendientes = 0;
+                    drenando = false;
+                }
+                cerrarSesion(CloseStatus.SERVER_ERROR);
+                return;
+            } finally {
+                envioIniciadoEn = 0;
+            }
+        }
+    }
+
+    private static void limitarEnvio(WebSocketSession sesion, long limiteEnvioMs) {
+        if (sesion instanceof NativeWebSocketSession nativa) {
+            jakarta.websocket.Session contenedor = nativa.getNativeSession(jakarta.websocket.Session.class);
+            if (contenedor != null) {
+                contenedor.getUserProperties().put(TIMEOUT_ENVIO_TOMCAT, limiteEnvioMs);
+            }
+        }
+    }
+
+    private void cerrarSesion(CloseStatus estado) {
+        try {
+            if (sesion.isOpen()) {
+                sesion.close(estado);
+            }
+        } catch (Exception e) {
+            log.debug("Error al cerrar la sesión {}: {}", sesion.getId(), e.getMessage());
+        }
+    }
+}
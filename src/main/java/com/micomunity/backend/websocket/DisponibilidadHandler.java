@@ -0,0 +1,309 @@
+package com.micomunity.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micomunity.backend.dto.DisponibilidadEventoDTO;
+import com.micomunity.backend.dto.PromocionListaEsperaDTO;
+import com.micomunity.backend.dto.RecordatorioReservaDTO;
+import com.micomunity.backend.event.RecordatorioReservaEvent;
+import com.micomunity.backend.event.ReservaModificadaEvent;
+import com.micomunity.backend.event.ReservaPromovidaEvent;
+import com.micomunity.backend.repository.ZonaComunRepository;
+import com.micomunity.backend.service.HorarioZonaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canal WebSocket de disponibilidad de reservas (/ws/reservas).
+ *
+ * El cliente se suscribe a pares (zona, fecha) con
+ * {"accion": "suscribir", "zonaId": "...", "fecha": "yyyy-MM-dd"} y recibe un
+ * DisponibilidadEventoDTO cada vez que se confirma una reserva o cancelación en ese
+ * día. Cada sesión puede tener como mucho reservas.disponibilidad.max-suscripciones
+ * canales, de hoy a reservas.disponibilidad.dias-suscripcion días vista. El reparto se
+ * hace solo a los suscriptores del canal, fuera de la transacción de la reserva y
+ * serializando el mensaje una única vez. Además, cada usuario recibe por sus sesiones
+ * abiertas el aviso de que una petición suya en lista de espera se ha convertido en
+ * reserva y el recordatorio de las reservas que están a punto de empezar.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DisponibilidadHandler extends TextWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int BUFFER_SIZE_LIMIT = 64 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ZonaComunRepository zonaComunRepository;
+    private final HorarioZonaService horarioZonaService;
+
+    @Value("${reservas.disponibilidad.max-suscripciones:50}")
+    private int maxSuscripciones;
+
+    @Value("${reservas.disponibilidad.dias-suscripcion:365}")
+    private int diasSuscripcion;
+
+    // Comunidad de cada zona ya comprobada (una zona no cambia de comunidad)
+    private final Map<UUID, Long> comunidadDeZona = new ConcurrentHashMap<>();
+
+    // Suscriptores por canal (zona, fecha)
+    private final Map<Canal, Set<WebSocketSession>> canales = new ConcurrentHashMap<>();
+
+    // Canales de cada sesión, para limpiar al desconectar
+    private final Map<String, Set<Canal>> canalesPorSesion = new ConcurrentHashMap<>();
+
+    // Sesiones decoradas para envíos concurrentes seguros
+    private final Map<String, WebSocketSession> sesiones = new ConcurrentHashMap<>();
+
+    // Sesiones abiertas de cada usuario, para los avisos personales
+    private final Map<Long, Set<WebSocketSession>> sesionesPorUsuario = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession decorada = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+        sesiones.put(session.getId(), decorada);
+        canalesPorSesion.put(session.getId(), ConcurrentHashMap.newKeySet());
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        if (userId != null) {
+            sesionesPorUsuario.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(decorada);
+        }
+        log.debug("Nueva suscripción de disponibilidad: {}", session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        JsonNode json;
+        UUID zonaId;
+        LocalDate fecha;
+        try {
+            json = objectMapper.readTree(message.getPayload());
+            zonaId = UUID.fromString(json.path("zonaId").asText());
+            fecha = LocalDate.parse(json.path("fecha").asText());
+        } catch (Exception e) {
+            enviarError(session, "Mensaje no válido: se esperaba accion, zonaId y fecha");
+            return;
+        }
+
+        Canal canal = new Canal(zonaId, fecha);
+        String accion = json.path("accion").asText();
+        if ("suscribir".equals(accion)) {
+            Set<Canal> suyos = canalesPorSesion.get(session.getId());
+            if (suyos.contains(canal)) {
+                return;
+            }
+            if (suyos.size() >= maxSuscripciones) {
+                enviarError(session, "Has alcanzado el máximo de " + maxSuscripciones + " suscripciones");
+                return;
+            }
+            LocalDate hoy = LocalDate.now();
+            if (fecha.isBefore(hoy) || fecha.isAfter(hoy.plusDays(diasSuscripcion))) {
+                enviarError(session, "La fecha debe estar entre hoy y los próximos " + diasSuscripcion + " días");
+                return;
+            }
+            Long communityId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_COMMUNITY_ID);
+            if (communityId == null || !communityId.equals(comunidadDe(zonaId))) {
+                enviarError(session, "Zona común no encontrada o no pertenece a tu comunidad");
+                return;
+            }
+            canales.computeIfAbsent(canal, c -> ConcurrentHashMap.newKeySet()).add(sesiones.get(session.getId()));
+            suyos.add(canal);
+        } else if ("cancelar".equals(accion)) {
+            quitarDeCanal(canal, session.getId());
+            canalesPorSesion.get(session.getId()).remove(canal);
+        } else {
+            enviarError(session, "Acción no soportada: " + accion);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.debug("Error de transporte en suscripción de disponibilidad {}: {}", session.getId(), exception.getMessage());
+        session.close(CloseStatus.SERVER_ERROR);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Set<Canal> suyos = canalesPorSesion.remove(session.getId());
+        if (suyos != null) {
+            suyos.forEach(canal -> quitarDeCanal(canal, session.getId()));
+        }
+        WebSocketSession decorada = sesiones.remove(session.getId());
+        Long userId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.ATTR_USER_ID);
+        if (decorada != null && userId != null) {
+            sesionesPorUsuario.computeIfPresent(userId, (id, suyas) -> {
+                suyas.remove(decorada);
+                return suyas.isEmpty() ? null : suyas;
+            });
+        }
+    }
+
+    /**
+     * Publica el cambio de disponibilidad a los suscriptores de la zona y fecha
+     * afectadas, una vez confirmada la transacción y en el ejecutor de eventos.
+     */
+    @Async("reservasEventosExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaModificada(ReservaModificadaEvent event) {
+        Set<WebSocketSession> suscriptores = canales.get(new Canal(event.getZonaComunId(), event.getFecha()));
+        if (suscriptores == null || suscriptores.isEmpty()) {
+            return;
+        }
+
+        long franjas;
+        try {
+            franjas = horarioZonaService.obtenerHorario(event.getZonaComunId())
+                    .mascaraDeIntervalo(event.getHoraInicio(), event.getHoraFin());
+        } catch (Exception e) {
+            log.debug("Zona {} no disponible para notificar: {}", event.getZonaComunId(), e.getMessage());
+            return;
+        }
+
+        DisponibilidadEventoDTO dto = new DisponibilidadEventoDTO(
+                "disponibilidad",
+                event.getZonaComunId(),
+                event.getFecha(),
+                event.getHoraInicio(),
+                event.getHoraFin(),
+                event.getTipo() == ReservaModificadaEvent.Tipo.CREADA,
+                franjas
+        );
+
+        TextMessage mensaje;
+        try {
+            mensaje = new TextMessage(objectMapper.writeValueAsString(dto));
+        } catch (IOException e) {
+            log.error("Error al serializar evento de disponibilidad: {}", e.getMessage());
+            return;
+        }
+
+        for (WebSocketSession sesion : suscriptores) {
+            enviar(sesion, mensaje);
+        }
+    }
+
+    /**
+     * Avisa al usuario promovido desde la lista de espera en todas sus sesiones abiertas
+     */
+    @Async("reservasEventosExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservaPromovida(ReservaPromovidaEvent event) {
+        Set<WebSocketSession> suyas = sesionesPorUsuario.get(event.getUsuarioId());
+        if (suyas == null || suyas.isEmpty()) {
+            return;
+        }
+
+        PromocionListaEsperaDTO dto = new PromocionListaEsperaDTO(
+                "promocion",
+                event.getReservaId(),
+                event.getZonaComunId(),
+                event.getZonaComunNombre(),
+                event.getFecha(),
+                event.getHoraInicio(),
+                event.getHoraFin()
+        );
+
+        TextMessage mensaje;
+        try {
+            mensaje = new TextMessage(objectMapper.writeValueAsString(dto));
+        } catch (IOException e) {
+            log.error("Error al serializar aviso de promoción: {}", e.getMessage());
+            return;
+        }
+
+        for (WebSocketSession sesion : suyas) {
+            enviar(sesion, mensaje);
+        }
+    }
+
+    /**
+     * Envía el recordatorio de una reserva a todas las sesiones abiertas de su titular
+     */
+    @Async("reservasEventosExecutor")
+    @EventListener
+    public void onRecordatorioReserva(RecordatorioReservaEvent event) {
+        Set<WebSocketSession> suyas = sesionesPorUsuario.get(event.getUsuarioId());
+        if (suyas == null || suyas.isEmpty()) {
+            return;
+        }
+
+        RecordatorioReservaDTO dto = new RecordatorioReservaDTO(
+                "recordatorio",
+                event.getReservaId(),
+                event.getZonaComunId(),
+                event.getZonaComunNombre(),
+                event.getFecha(),
+                event.getHoraInicio(),
+                event.getHoraFin()
+        );
+
+        TextMessage mensaje;
+        try {
+            mensaje = new TextMessage(objectMapper.writeValueAsString(dto));
+        } catch (IOException e) {
+            log.error("Error al serializar recordatorio de reserva: {}", e.getMessage());
+            return;
+        }
+
+        for (WebSocketSession sesion : suyas) {
+            enviar(sesion, mensaje);
+        }
+    }
+
+    private Long comunidadDe(UUID zonaId) {
+        Long comunidad = comunidadDeZona.get(zonaId);
+        if (comunidad == null) {
+            comunidad = zonaComunRepository.findById(zonaId)
+                    .map(zona -> zona.getCommunity().getId())
+                    .orElse(null);
+            if (comunidad != null) {
+                comunidadDeZona.put(zonaId, comunidad);
+            }
+        }
+        return comunidad;
+    }
+
+    private void quitarDeCanal(Canal canal, String sessionId) {
+        canales.computeIfPresent(canal, (c, suscriptores) -> {
+            suscriptores.removeIf(s -> s.getId().equals(sessionId));
+            return suscriptores.isEmpty() ? null : suscriptores;
+        });
+    }
+
+    private void enviar(WebSocketSession sesion, TextMessage mensaje) {
+        if (!sesion.isOpen()) {
+            return;
+        }
+        try {
+            sesion.sendMessage(mensaje);
+        } catch (Exception e) {
+            log.debug("No se pudo enviar evento de disponibilidad a {}: {}", sesion.getId(), e.getMessage());
+        }
+    }
+
+    private void enviarError(WebSocketSession session, String error) throws IOException {
+        WebSocketSession sesion = sesiones.getOrDefault(session.getId(), session);
+        sesion.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of("tipo", "error", "contenido", error))));
+    }
+
+    private record Canal(UUID zonaId, LocalDate fecha) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.micomunity.backend.websocket;
+
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.repository.UserRepository;
+import com.micomunity.backend.security.JwtService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Autentica el handshake WebSocket con el JWT recibido en el parámetro "token"
+ * (los navegadores no permiten cabeceras en el handshake) y guarda en los atributos
+ * de la sesión el usuario y su comunidad.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String ATTR_USER_ID = "userId";
+    public static final String ATTR_USER_NAME = "userName";
+    public static final String ATTR_COMMUNITY_ID = "communityId";
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = UriComponentsBuilder.fromUri(request.getURI()).build()
+                .getQueryParams().getFirst("token");
+        if (token == null || token.isBlank()) {
+            log.debug("Handshake WebSocket rechazado: token no proporcionado");
+            return false;
+        }
+
+        try {
+            String email = jwtService.extractUsername(token);
+            Optional<User> user = userRepository.findByEmailWithCommunity(email);
+            if (user.isEmpty() || !jwtService.isTokenValid(token, user.get()) || user.get().getCommunity() == null) {
+                log.debug("Handshake WebSocket rechazado para {}", email);
+                return false;
+            }
+            attributes.put(ATTR_USER_ID, user.get().getId());
+            attributes.put(ATTR_USER_NAME, user.get().getFullName());
+            attributes.put(ATTR_COMMUNITY_ID, user.get().getCommunity().getId());
+            return true;
+        } catch (Exception e) {
+            log.debug("Handshake WebSocket rechazado: token inválido ({})", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,64 @@
+-- Convierte reservas en una tabla particionada por rango mensual sobre fecha.
+-- Las particiones futuras las crea ReservaParticionService cada noche; aquí solo se
+-- crean las necesarias para los datos existentes y los próximos meses.
+--
+-- Todas las consultas de ReservaRepository filtran por fecha, por lo que el planificador
+-- descarta las particiones que no aplican, por ejemplo:
+--   EXPLAIN SELECT * FROM reservas WHERE zona_comun_id = '...' AND fecha = '2025-07-15';
+--   -> solo aparece reservas_p202507
+
+BEGIN;
+
+ALTER TABLE reservas RENAME TO reservas_sin_particionar;
+ALTER TABLE reservas_sin_particionar DROP CONSTRAINT IF EXISTS reservas_pkey;
+DROP INDEX IF EXISTS idx_reservas_fecha_hora_id;
+
+CREATE TABLE reservas (
+    id UUID NOT NULL,
+    zona_comun_id UUID NOT NULL REFERENCES zonas_comunes (id),
+    usuario_id BIGINT NOT NULL REFERENCES users (id),
+    fecha DATE NOT NULL,
+    hora_inicio TIME(6) NOT NULL,
+    hora_fin TIME(6) NOT NULL,
+    estado VARCHAR(255) NOT NULL,
+    fecha_creacion TIMESTAMP(6) NOT NULL,
+    fecha_cancelacion TIMESTAMP(6),
+    -- La clave primaria de una tabla particionada debe incluir la columna de partición
+    PRIMARY KEY (id, fecha)
+) PARTITION BY RANGE (fecha);
+
+ALTER TABLE reservas ADD CONSTRAINT reservas_estado_check
+    CHECK (estado IN ('ACTIVA', 'CANCELADA'));
+
+-- Recoge fechas fuera de las particiones mensuales creadas (reservas muy lejanas)
+CREATE TABLE reservas_default PARTITION OF reservas DEFAULT;
+
+-- Una partición por mes desde la reserva más antigua hasta 12 meses vista
+DO $$
+DECLARE
+    mes DATE := date_trunc('month', COALESCE((SELECT MIN(fecha) FROM reservas_sin_particionar), CURRENT_DATE));
+    ultimo DATE := date_trunc('month', CURRENT_DATE + INTERVAL '12 months');
+BEGIN
+    WHILE mes <= ultimo LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF reservas FOR VALUES FROM (%L) TO (%L)',
+                       'reservas_p' || to_char(mes, 'YYYYMM'), mes, mes + INTERVAL '1 month');
+        mes := mes + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO reservas (id, zona_comun_id, usuario_id, fecha, hora_inicio, hora_fin, estado,
+                      fecha_creacion, fecha_cancelacion)
+SELECT id, zona_comun_id, usuario_id, fecha, hora_inicio, hora_fin, estado,
+       fecha_creacion, fecha_cancelacion
+FROM reservas_sin_particionar;
+
+-- Índices particionados: se propagan a cada partición, también a las que se creen después
+CREATE INDEX idx_reservas_zona_fecha ON reservas (zona_comun_id, fecha, hora_inicio);
+CREATE INDEX idx_reservas_usuario_fecha ON reservas (usuario_id, fecha);
+CREATE INDEX idx_reservas_fecha_hora_id ON reservas (fecha, hora_inicio, id);
+
+DROP TABLE reservas_sin_particionar;
+
+COMMIT;
+
+ANALYZE reservas;
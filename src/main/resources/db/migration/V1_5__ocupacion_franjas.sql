@@ -0,0 +1,15 @@
+-- Capacidad de las zonas comunes (NULL = uso exclusivo, una reserva por franja)
+ALTER TABLE zonas_comunes ADD COLUMN IF NOT EXISTS capacidad INTEGER;
+
+-- Contadores de plazas ocupadas por franja para las zonas con capacidad mayor que uno.
+-- Las filas se crean al reservar a partir de las reservas activas; la restricción
+-- impide superar la capacidad aunque varios nodos reserven a la vez.
+CREATE TABLE IF NOT EXISTS ocupacion_franjas (
+    zona_comun_id UUID NOT NULL,
+    fecha DATE NOT NULL,
+    franja_inicio TIME NOT NULL,
+    ocupadas INTEGER NOT NULL,
+    capacidad INTEGER NOT NULL,
+    PRIMARY KEY (zona_comun_id, fecha, franja_inicio),
+    CONSTRAINT ocupacion_franjas_check CHECK (ocupadas >= 0 AND ocupadas <= capacidad)
+);
@@ -0,0 +1,5 @@
+-- Nuevo estado FINALIZADA para las reservas cuya franja ya ha pasado
+ALTER TABLE reservas DROP CONSTRAINT IF EXISTS reservas_estado_check;
+
+ALTER TABLE reservas ADD CONSTRAINT reservas_estado_check
+    CHECK (estado IN ('ACTIVA', 'CANCELADA', 'FINALIZADA'));
@@ -0,0 +1,27 @@
+-- Uso agregado por zona, fecha y hora del día para las estadísticas de utilización.
+-- "reservas" cuenta las reservas que empiezan en esa hora y "minutos" los minutos
+-- reservados que caen dentro de ella. Se mantiene en la misma transacción que cada
+-- alta o cancelación (ver UsoZonasService); las reservas finalizadas siguen contando.
+CREATE TABLE IF NOT EXISTS uso_franjas (
+    zona_comun_id UUID NOT NULL,
+    fecha DATE NOT NULL,
+    hora SMALLINT NOT NULL,
+    reservas INTEGER NOT NULL DEFAULT 0,
+    minutos INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (zona_comun_id, fecha, hora),
+    CONSTRAINT uso_franjas_hora_check CHECK (hora BETWEEN 0 AND 23)
+);
+
+-- Carga inicial a partir del histórico de reservas no canceladas (en minutos del día)
+INSERT INTO uso_franjas (zona_comun_id, fecha, hora, reservas, minutos)
+SELECT r.zona_comun_id, r.fecha, h.hora,
+       SUM(CASE WHEN r.inicio / 60 = h.hora THEN 1 ELSE 0 END),
+       SUM(LEAST(r.fin, (h.hora + 1) * 60) - GREATEST(r.inicio, h.hora * 60))
+FROM (SELECT zona_comun_id, fecha,
+             (EXTRACT(EPOCH FROM hora_inicio) / 60)::INTEGER AS inicio,
+             (EXTRACT(EPOCH FROM hora_fin) / 60)::INTEGER AS fin
+      FROM reservas
+      WHERE estado <> 'CANCELADA') r
+CROSS JOIN LATERAL generate_series(r.inicio / 60, (r.fin - 1) / 60) AS h(hora)
+GROUP BY r.zona_comun_id, r.fecha, h.hora
+ON CONFLICT (zona_comun_id, fecha, hora) DO NOTHING;
@@ -0,0 +1,5 @@
+-- Los ids de chat_messages los genera la aplicación (GeneradorIdsChat, ordenados en el
+-- tiempo) para poder difundir los mensajes antes de guardarlos en lote. Se quita la
+-- identidad de la columna; los ids ya existentes se conservan.
+ALTER TABLE chat_messages ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE chat_messages ALTER COLUMN id DROP DEFAULT;
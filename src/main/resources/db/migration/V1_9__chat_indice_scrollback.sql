@@ -0,0 +1,5 @@
+-- Índice para el scrollback del chat por cursor (community_id, timestamp, id); sustituye
+-- al de (community_id, timestamp). CONCURRENTLY: ejecutar fuera de una transacción.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_messages_community_timestamp_id
+    ON chat_messages (community_id, timestamp, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_chat_messages_community_timestamp;
@@ -0,0 +1,176 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.exception.ReservaConflictoException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el reparto en franjas de ReservaLockManager y la exclusión que da: una misma
+ * zona y fecha se serializa, otra franja no espera, y la variante en bloque toma todas
+ * las franjas sin bloquearse a sí misma y las libera si no puede tomarlas.
+ */
+class ReservaLockManagerTest {
+
+    private static final int STRIPES = 64;
+    private static final long TIMEOUT_MS = 100;
+    private static final LocalDate FECHA = LocalDate.of(2025, 6, 2);
+
+    private final ReservaLockManager lockManager = new ReservaLockManager(STRIPES, TIMEOUT_MS);
+    private final ExecutorService otroHilo = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void parar() {
+        otroHilo.shutdownNow();
+    }
+
+    @Test
+    void laMismaZonaYFechaCaeSiempreEnLaMismaFranja() {
+        UUID zona = UUID.randomUUID();
+        int indice = lockManager.indice(zona, FECHA);
+
+        assertEquals(indice, lockManager.indice(new UUID(zona.getMostSignificantBits(), zona.getLeastSignificantBits()), FECHA));
+        assertEquals(ReservaLockManager.claveAdvisory(zona, FECHA), ReservaLockManager.claveAdvisory(zona, FECHA));
+        assertTrue(indice >= 0 && indice < STRIPES);
+    }
+
+    @Test
+    void lasClavesSeRepartenEntreTodasLasFranjas() {
+        boolean[] usadas = new boolean[STRIPES];
+        UUID zona = new UUID(0x1234_5678_9abc_def0L, 0x0fed_cba9_8765_4321L);
+        for (int dia = 0; dia < 1000; dia++) {
+            usadas[lockManager.indice(zona, FECHA.plusDays(dia))] = true;
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            assertTrue(usadas[i], "franja sin usar: " + i);
+        }
+    }
+
+    @Test
+    void laMismaFranjaEsperaYAgotaElTiempo() throws Exception {
+        UUID zona = UUID.randomUUID();
+        try (Retenido retenido = retener(zona, FECHA)) {
+            assertThrows(ReservaConflictoException.class, () -> lockManager.conBloqueo(zona, FECHA, () -> null));
+        }
+        // Al soltarla se puede volver a tomar
+        assertEquals("ok", lockManager.conBloqueo(zona, FECHA, () -> "ok"));
+    }
+
+    @Test
+    void otraFranjaNoEspera() throws Exception {
+        UUID zona = UUID.randomUUID();
+        UUID otra = zonaEnOtraFranja(zona, FECHA);
+        try (Retenido retenido = retener(zona, FECHA)) {
+            assertEquals("ok", lockManager.conBloqueo(otra, FECHA, () -> "ok"));
+        }
+    }
+
+    @Test
+    void laFranjaSeLiberaSiLaAccionFalla() {
+        UUID zona = UUID.randomUUID();
+        assertThrows(IllegalStateException.class, () -> lockManager.conBloqueo(zona, FECHA, () -> {
+            throw new IllegalStateException("fallo");
+        }));
+        assertEquals("ok", lockManager.conBloqueo(zona, FECHA, () -> "ok"));
+    }
+
+    @Test
+    void enBloqueTomaTodasLasFranjasSinBloquearseASiMisma() throws Exception {
+        UUID zona = UUID.randomUUID();
+        // Fechas desordenadas y repetidas
+        List<LocalDate> fechas = new ArrayList<>();
+        for (int dia = 20; dia >= 0; dia--) {
+            fechas.add(FECHA.plusDays(dia));
+            fechas.add(FECHA.plusDays(dia));
+        }
+
+        lockManager.conBloqueos(zona, fechas, () -> {
+            for (LocalDate fecha : fechas) {
+                Future<?> intento = otroHilo.submit(() -> lockManager.conBloqueo(zona, fecha, () -> null));
+                fallaCon(ReservaConflictoException.class, intento);
+            }
+            return null;
+        });
+
+        for (LocalDate fecha : fechas) {
+            assertEquals("ok", otroHilo.submit(() -> lockManager.conBloqueo(zona, fecha, () -> "ok")).get());
+        }
+    }
+
+    @Test
+    void enBloqueLiberaLoTomadoSiNoPuedeTomarloTodo() throws Exception {
+        UUID zona = UUID.randomUUID();
+        LocalDate primera = FECHA;
+        LocalDate ocupada = fechaEnOtraFranja(zona, primera);
+
+        try (Retenido retenido = retener(zona, ocupada)) {
+            assertThrows(ReservaConflictoException.class,
+                    () -> lockManager.conBloqueos(zona, List.of(primera, ocupada), () -> null));
+        }
+        // La franja de la primera fecha no ha quedado tomada
+        assertEquals("ok", otroHilo.submit(() -> lockManager.conBloqueo(zona, primera, () -> "ok")).get());
+    }
+
+    private UUID zonaEnOtraFranja(UUID zona, LocalDate fecha) {
+        UUID otra = UUID.randomUUID();
+        while (lockManager.indice(otra, fecha) == lockManager.indice(zona, fecha)) {
+            otra = UUID.randomUUID();
+        }
+        assertNotEquals(lockManager.indice(zona, fecha), lockManager.indice(otra, fecha));
+        return otra;
+    }
+
+    private LocalDate fechaEnOtraFranja(UUID zona, LocalDate fecha) {
+        LocalDate otra = fecha.plusDays(1);
+        while (lockManager.indice(zona, otra) == lockManager.indice(zona, fecha)) {
+            otra = otra.plusDays(1);
+        }
+        return otra;
+    }
+
+    // Toma el bloqueo de (zona, fecha) en otro hilo hasta que se cierra el resultado
+    private Retenido retener(UUID zona, LocalDate fecha) throws InterruptedException {
+        CountDownLatch tomado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        Future<?> tarea = otroHilo.submit(() -> lockManager.conBloqueo(zona, fecha, () -> {
+            tomado.countDown();
+            try {
+                soltar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(tomado.await(5, TimeUnit.SECONDS));
+        return new Retenido(soltar, tarea);
+    }
+
+    private static void fallaCon(Class<? extends Throwable> tipo, Future<?> intento) {
+        ExecutionException error = assertThrows(ExecutionException.class, () -> intento.get(5, TimeUnit.SECONDS));
+        assertTrue(tipo.isInstance(error.getCause()), "se esperaba " + tipo.getSimpleName() + ": " + error.getCause());
+    }
+
+    private record Retenido(CountDownLatch soltar, Future<?> tarea) implements AutoCloseable {
+
+        @Override
+        public void close() throws Exception {
+            soltar.countDown();
+            tarea.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
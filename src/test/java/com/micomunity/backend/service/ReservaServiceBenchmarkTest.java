@@ -0,0 +1,164 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.dto.ReservaRequest;
+import com.micomunity.backend.model.Community;
+import com.micomunity.backend.model.Role;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.ZonaComun;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Benchmark de altas concurrentes con ReservaService.crearReserva, con su bloqueo local
+ * (ReservaLockManager) y su transacción (TransactionTemplate), sobre H2: N hilos
+ * reservando en la misma zona y fecha frente a N hilos reservando cada uno en su zona.
+ * Solo informa de las reservas por segundo de cada caso, sin comprobar tiempos.
+ *
+ * No se ejecuta con el resto de tests; se lanza con
+ * mvn test -Dtest=ReservaServiceBenchmarkTest -Dbenchmark=true
+ *
+ * H2 no tiene pg_advisory_xact_lock: se define como una función vacía, así que aquí solo
+ * serializa el bloqueo local (el caso de un único nodo).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+        "reservas.limite.por.usuario=0",
+        "reservas.limite.por.zona=100000",
+        "logging.level.com.micomunity.backend=INFO"
+})
+@Import({ReservaService.class, DisponibilidadIndex.class, ReservaLockManager.class, HorarioZonaService.class,
+        PlazasService.class, CupoReservasService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class ReservaServiceBenchmarkTest {
+
+    private static final int HILOS = 8;
+    private static final int RESERVAS_POR_HILO = 60;
+    private static final int CALENTAMIENTO_POR_HILO = 10;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<User> vecinos = new ArrayList<>();
+    private final List<ZonaComun> zonas = new ArrayList<>();
+
+    @BeforeEach
+    void prepararDatos() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("CREATE ALIAS IF NOT EXISTS PG_ADVISORY_XACT_LOCK FOR '"
+                    + AdvisoryLockH2.class.getName() + ".bloquear'").executeUpdate();
+
+            Community community = new Community();
+            community.setName("Comunidad de benchmark");
+            community.setAddress("Calle Mayor 1");
+            community.setPostalCode("41001");
+            community.setCommunityCode("BENCH1");
+            entityManager.persist(community);
+
+            for (int i = 0; i < HILOS; i++) {
+                vecinos.add(usuario("vecino" + i + "@test.com", community));
+                ZonaComun zona = new ZonaComun("Zona " + i, community);
+                entityManager.persist(zona);
+                zonas.add(zona);
+            }
+        });
+    }
+
+    @Test
+    void reservasPorSegundo() throws Exception {
+        LocalDate fecha = LocalDate.now().plusDays(1);
+
+        // Calentamiento en otra fecha (JIT, horarios compilados, pool de conexiones)
+        medir(CALENTAMIENTO_POR_HILO, hilo -> zonas.get(hilo), fecha.plusDays(10));
+        medir(CALENTAMIENTO_POR_HILO, hilo -> zonas.get(0), fecha.plusDays(11));
+
+        double mismaZona = medir(RESERVAS_POR_HILO, hilo -> zonas.get(0), fecha);
+        double zonasDistintas = medir(RESERVAS_POR_HILO, hilo -> zonas.get(hilo), fecha.plusDays(1));
+
+        log.info("crearReserva con {} hilos: misma zona y fecha {} reservas/s, zonas distintas {} reservas/s",
+                HILOS, String.format("%.0f", mismaZona), String.format("%.0f", zonasDistintas));
+    }
+
+    /**
+     * Lanza HILOS hilos con reservasPorHilo altas cada uno y devuelve las reservas por
+     * segundo. Cada alta ocupa un minuto distinto del día, así que ninguna choca.
+     */
+    private double medir(int reservasPorHilo, IntFunction<ZonaComun> zonaDelHilo, LocalDate fecha) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int hilo = 0; hilo < HILOS; hilo++) {
+                int h = hilo;
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < reservasPorHilo; i++) {
+                        LocalTime inicio = LocalTime.of(8, 0).plusMinutes((long) h * reservasPorHilo + i);
+                        reservaService.crearReserva(vecinos.get(h), new ReservaRequest(
+                                zonaDelHilo.apply(h).getId(), fecha, inicio, inicio.plusMinutes(1)));
+                    }
+                    return null;
+                }));
+            }
+            long inicio = System.nanoTime();
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            return HILOS * reservasPorHilo * 1_000_000_000.0 / nanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User usuario(String email, Community community) {
+        User user = new User();
+        user.setDni(email.substring(0, 8));
+        user.setFullName(email);
+        user.setFloor("1A");
+        user.setEmail(email);
+        user.setPassword("secreto");
+        user.setRole(Role.VECINO);
+        user.setCommunity(community);
+        entityManager.persist(user);
+        return user;
+    }
+
+    /**
+     * Sustituto en H2 de pg_advisory_xact_lock
+     */
+    public static class AdvisoryLockH2 {
+
+        public static int bloquear(long clave) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.micomunity.backend.service;
+
+import com.micomunity.backend.model.Community;
+import com.micomunity.backend.model.Reserva;
+import com.micomunity.backend.model.Role;
+import com.micomunity.backend.model.User;
+import com.micomunity.backend.model.ZonaComun;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba el número de sentencias SQL de cada lectura de ReservaService. Las
+ * lecturas usan proyecciones planas, así que el recuento no depende del número de
+ * reservas devueltas (sin N+1 al construir las respuestas).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true"
+})
+@Import({ReservaService.class, DisponibilidadIndex.class, ReservaLockManager.class, HorarioZonaService.class,
+        PlazasService.class, CupoReservasService.class})
+class ReservaServiceQueryCountTest {
+
+    private static final int RESERVAS = 6;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User presidente;
+    private ZonaComun piscina;
+    private LocalDate fecha;
+
+    @BeforeEach
+    void prepararDatos() {
+        Community community = new Community();
+        community.setName("Comunidad de prueba");
+        community.setAddress("Calle Mayor 1");
+        community.setPostalCode("41001");
+        community.setCommunityCode("TEST01");
+        entityManager.persist(community);
+
+        presidente = usuario("presidente@test.com", Role.PRESIDENTE, community);
+        piscina = entityManager.persist(new ZonaComun("Piscina", community));
+        ZonaComun padel = entityManager.persist(new ZonaComun("Pádel", community));
+
+        fecha = LocalDate.now().plusDays(3);
+        for (int i = 0; i < RESERVAS; i++) {
+            User vecino = usuario("vecino" + i + "@test.com", Role.VECINO, community);
+            LocalTime inicio = LocalTime.of(8 + 2 * i, 0);
+            entityManager.persist(new Reserva(piscina, vecino, fecha, inicio, inicio.plusHours(2)));
+            entityManager.persist(new Reserva(padel, vecino, fecha.plusDays(1), inicio, inicio.plusHours(2)));
+            entityManager.persist(new Reserva(piscina, presidente, fecha.plusDays(7 + i), inicio, inicio.plusHours(2)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void reservasDeZona() {
+        assertEquals(2, contarSentencias(() -> reservaService.obtenerReservasDeZona(presidente, piscina.getId())));
+    }
+
+    @Test
+    void misReservas() {
+        assertEquals(1, contarSentencias(() -> reservaService.obtenerMisReservas(presidente)));
+    }
+
+    @Test
+    void reservasComunidad() {
+        assertEquals(1, contarSentencias(() ->
+                reservaService.obtenerReservasComunidad(presidente, fecha, fecha.plusDays(30))));
+    }
+
+    @Test
+    void calendarioZona() {
+        // zona + reservas del día + bloqueos y sorteos de la zona + carga inicial del índice de disponibilidad
+        assertEquals(5, contarSentencias(() -> reservaService.obtenerCalendarioZona(presidente, piscina.getId(), fecha)));
+        // con el horario compilado y el índice calientes solo quedan la zona y las reservas del día
+        assertEquals(2, contarSentencias(() -> reservaService.obtenerCalendarioZona(presidente, piscina.getId(), fecha)));
+    }
+
+    @Test
+    void proximosHuecos() {
+        reservaService.buscarProximosHuecos(presidente, null, fecha, fecha.plusDays(14), null, null, 10);
+        // con los horarios compilados: zonas de la comunidad + ocupación agregada de todo el rango
+        assertEquals(2, contarSentencias(() ->
+                reservaService.buscarProximosHuecos(presidente, null, fecha, fecha.plusDays(14), null, null, 10)));
+    }
+
+    @Test
+    void historialPaginado() {
+        assertEquals(1, contarSentencias(() ->
+                reservaService.obtenerHistorialPaginado(presidente, null, null, null, null, 50)));
+    }
+
+    private long contarSentencias(Runnable lectura) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        lectura.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User usuario(String email, Role role, Community community) {
+        User user = new User();
+        user.setDni(email.substring(0, 8));
+        user.setFullName(email);
+        user.setFloor("1A");
+        user.setEmail(email);
+        user.setPassword("secreto");
+        user.setRole(role);
+        user.setCommunity(community);
+        return entityManager.persist(user);
+    }
+}
@@ -0,0 +1,128 @@
+package com.micomunity.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba la rueda temporal: vencimiento en su tick, cancelación, redistribución entre
+ * niveles, tareas aparcadas más allá del horizonte y orden de vencimiento.
+ */
+class RuedaTemporalTest {
+
+    private static final long TICK_MS = 1000;
+    // Instante de arranque que no cae en el borde de ninguna ranura
+    private static final long INICIO_MS = 1_700_000_123_456L;
+    private static final long TICK_INICIO = INICIO_MS / TICK_MS;
+
+    @Test
+    void venceEnSuTickYEnOrden() {
+        RuedaTemporal<String> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        rueda.programar(instante(5), "b");
+        rueda.programar(instante(3), "a");
+        assertEquals(2, rueda.pendientes());
+
+        assertEquals(List.of(), rueda.avanzar(instante(2)));
+        assertEquals(List.of("a"), rueda.avanzar(instante(3)));
+        assertEquals(List.of("b"), rueda.avanzar(instante(10)));
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void instantesPasadosVencenEnElSiguienteAvance() {
+        RuedaTemporal<String> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        rueda.programar(INICIO_MS - 60_000, "pasada");
+
+        assertEquals(List.of("pasada"), rueda.avanzar(instante(1)));
+    }
+
+    @Test
+    void cancelarEvitaElVencimiento() {
+        RuedaTemporal<String> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        RuedaTemporal.Tarea<String> cancelada = rueda.programar(instante(100), "cancelada");
+        rueda.programar(instante(100), "viva");
+
+        rueda.cancelar(cancelada);
+        rueda.cancelar(cancelada);
+        rueda.cancelar(null);
+        assertEquals(1, rueda.pendientes());
+
+        assertEquals(List.of("viva"), rueda.avanzar(instante(200)));
+        // Cancelar una tarea ya vencida no cambia nada
+        rueda.cancelar(cancelada);
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void cancelarTrasBajarDeNivel() {
+        RuedaTemporal<String> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        RuedaTemporal.Tarea<String> tarea = rueda.programar(instante(5000), "tarea");
+
+        // Al pasar varias vueltas la tarea ya está en el nivel inferior
+        assertEquals(List.of(), rueda.avanzar(instante(4990)));
+        rueda.cancelar(tarea);
+
+        assertEquals(List.of(), rueda.avanzar(instante(6000)));
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void redistribuyeEntreNivelesYVenceEnElTickExacto() {
+        long[] ticks = {1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262_143, 262_144, 262_145, 300_001};
+        RuedaTemporal<Long> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        for (long tick : ticks) {
+            rueda.programar(instante(tick), tick);
+        }
+
+        for (long tick : ticks) {
+            assertEquals(List.of(), rueda.avanzar(instante(tick - 1)), "venció antes del tick " + tick);
+            assertEquals(List.of(tick), rueda.avanzar(instante(tick)), "no venció en el tick " + tick);
+        }
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void aparcaLasTareasMasAllaDelHorizonte() {
+        long horizonte = 1L << 24; // 4 niveles de 64 ranuras
+        long[] ticks = {horizonte - 1, horizonte, horizonte + 10, 2 * horizonte + 7};
+        RuedaTemporal<Long> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        for (long tick : ticks) {
+            rueda.programar(instante(tick), tick);
+        }
+
+        for (long tick : ticks) {
+            assertEquals(List.of(), rueda.avanzar(instante(tick - 1)), "venció antes del tick " + tick);
+            assertEquals(List.of(tick), rueda.avanzar(instante(tick)), "no venció en el tick " + tick);
+        }
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void unSoloAvanceDevuelveTodoEnOrdenDeVencimiento() {
+        Random random = new Random(42);
+        RuedaTemporal<Long> rueda = new RuedaTemporal<>(TICK_MS, INICIO_MS);
+        List<Long> esperados = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long tick = 1 + random.nextInt(1_000_000);
+            if (!esperados.contains(tick)) {
+                esperados.add(tick);
+                rueda.programar(instante(tick), tick);
+            }
+        }
+        esperados.sort(Long::compare);
+
+        List<Long> vencidos = rueda.avanzar(instante(1_000_000));
+        assertEquals(esperados, vencidos);
+        assertTrue(rueda.avanzar(instante(2_000_000)).isEmpty());
+    }
+
+    // Instante (ms) del tick que está a la distancia indicada del de arranque
+    private static long instante(long ticksDesdeInicio) {
+        return (TICK_INICIO + ticksDesdeInicio) * TICK_MS;
+    }
+}
@@ -0,0 +1,192 @@
+package com.micomunity.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micomunity.backend.repository.ChatMessageRepository;
+import com.micomunity.backend.service.BusChatTcp;
+import com.micomunity.backend.service.ChatService;
+import com.micomunity.backend.service.GeneradorIdsChat;
+import com.micomunity.backend.service.HistorialChatCache;
+import com.micomunity.backend.service.PersistenciaChatService;
+import com.micomunity.backend.service.PresenciaChatService;
+import com.micomunity.backend.service.RelayChatServidor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dos nodos del chat en la misma JVM, cada uno con su contexto de Spring, unidos por el
+ * bus TCP (el primero arranca el relay). Comprueba que los mensajes escritos en un nodo
+ * llegan a las sesiones de la misma comunidad en el otro, sin duplicados, en el mismo
+ * orden en ambos nodos y sin salir de su comunidad.
+ */
+class ChatMultiNodoTest {
+
+    private static final long COMUNIDAD = 1L;
+    private static final long OTRA_COMUNIDAD = 2L;
+    private static final int MENSAJES_POR_NODO = 20;
+
+    private final List<ConfigurableApplicationContext> nodos = new ArrayList<>();
+
+    @AfterEach
+    void pararNodos() {
+        nodos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void mensajesLleganATodosLosNodosEnElMismoOrden() throws Exception {
+        int puerto = puertoLibre();
+        ConfigurableApplicationContext nodoA = arrancarNodo(1, puerto, true);
+        ConfigurableApplicationContext nodoB = arrancarNodo(2, puerto, false);
+        esperar(() -> nodoA.getBean(BusChatTcp.class).conectado() && nodoB.getBean(BusChatTcp.class).conectado());
+
+        ChatHandler handlerA = nodoA.getBean(ChatHandler.class);
+        ChatHandler handlerB = nodoB.getBean(ChatHandler.class);
+        List<String> recibidosA = Collections.synchronizedList(new ArrayList<>());
+        List<String> recibidosB = Collections.synchronizedList(new ArrayList<>());
+        List<String> recibidosOtra = Collections.synchronizedList(new ArrayList<>());
+        WebSocketSession sesionA = sesion("a", 10L, COMUNIDAD, recibidosA);
+        WebSocketSession sesionB = sesion("b", 20L, COMUNIDAD, recibidosB);
+        WebSocketSession sesionOtra = sesion("c", 30L, OTRA_COMUNIDAD, recibidosOtra);
+        handlerA.afterConnectionEstablished(sesionA);
+        handlerB.afterConnectionEstablished(sesionB);
+        handlerB.afterConnectionEstablished(sesionOtra);
+
+        for (int i = 0; i < MENSAJES_POR_NODO; i++) {
+            handlerA.handleMessage(sesionA, new TextMessage("A" + i));
+            handlerB.handleMessage(sesionB, new TextMessage("B" + i));
+        }
+        esperar(() -> recibidosA.size() >= 2 * MENSAJES_POR_NODO && recibidosB.size() >= 2 * MENSAJES_POR_NODO);
+        Thread.sleep(200);
+
+        assertEquals(2 * MENSAJES_POR_NODO, recibidosA.size());
+        assertEquals(recibidosA, recibidosB);
+        assertEquals(2 * MENSAJES_POR_NODO, new HashSet<>(recibidosA).size());
+        assertTrue(enOrden(recibidosA, "A") && enOrden(recibidosA, "B"));
+        assertTrue(recibidosOtra.isEmpty());
+    }
+
+    private ConfigurableApplicationContext arrancarNodo(int nodo, int puerto, boolean relay) {
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(NodoChat.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--chat.mensajes.nodo=" + nodo,
+                        "--chat.bus.tipo=tcp",
+                        "--chat.bus.puerto=" + puerto,
+                        "--chat.bus.reconexion-ms=100",
+                        "--chat.bus.relay.activo=" + relay,
+                        "--chat.bus.relay.puerto=" + puerto);
+        nodos.add(contexto);
+        return contexto;
+    }
+
+    // Sesión simulada que guarda el contenido de los frames "mensaje" que recibe
+    private static WebSocketSession sesion(String id, Long userId, Long communityId, List<String> recibidos)
+            throws IOException {
+        Map<String, Object> atributos = new HashMap<>();
+        atributos.put(JwtHandshakeInterceptor.ATTR_USER_ID, userId);
+        atributos.put(JwtHandshakeInterceptor.ATTR_USER_NAME, "Usuario " + userId);
+        atributos.put(JwtHandshakeInterceptor.ATTR_COMMUNITY_ID, communityId);
+
+        WebSocketSession sesion = Mockito.mock(WebSocketSession.class);
+        when(sesion.getId()).thenReturn(id);
+        when(sesion.getAttributes()).thenReturn(atributos);
+        when(sesion.isOpen()).thenReturn(true);
+        ObjectMapper lector = new ObjectMapper();
+        doAnswer(invocacion -> {
+            JsonNode frame = lector.readTree(invocacion.<TextMessage>getArgument(0).getPayload());
+            if ("mensaje".equals(frame.path("tipo").asText())) {
+                recibidos.add(frame.path("contenido").asText());
+            }
+            return null;
+        }).when(sesion).sendMessage(Mockito.any());
+        return sesion;
+    }
+
+    private static boolean enOrden(List<String> recibidos, String prefijo) {
+        int siguiente = 0;
+        for (String contenido : recibidos) {
+            if (contenido.startsWith(prefijo)) {
+                if (!contenido.equals(prefijo + siguiente)) {
+                    return false;
+                }
+                siguiente++;
+            }
+        }
+        return siguiente == MENSAJES_POR_NODO;
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError("Tiempo de espera agotado");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Un nodo del chat sin base de datos: el repositorio y la escritura diferida son simulados
+     */
+    @Configuration
+    @Import({ChatHandler.class, ChatService.class, HistorialChatCache.class, GeneradorIdsChat.class,
+            PresenciaChatService.class, BusChatTcp.class, RelayChatServidor.class})
+    static class NodoChat {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return Jackson2ObjectMapperBuilder.json().build();
+        }
+
+        @Bean
+        ThreadPoolTaskExecutor chatEnvioExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(2);
+            executor.setThreadNamePrefix("chat-envio-test-");
+            return executor;
+        }
+
+        @Bean
+        ChatMessageRepository chatMessageRepository() {
+            return Mockito.mock(ChatMessageRepository.class);
+        }
+
+        @Bean
+        PersistenciaChatService persistenciaChatService() {
+            return Mockito.mock(PersistenciaChatService.class);
+        }
+    }
+}